@@ -0,0 +1,2 @@
+./gradlew collect_app:testDebugUnitTest -Pbenchmark --tests 'org.odk.collect.android.benchmark.*' "$@"
+cat collect_app/build/benchmark-results/*.json
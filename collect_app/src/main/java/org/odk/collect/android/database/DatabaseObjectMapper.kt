@@ -67,6 +67,8 @@ object DatabaseObjectMapper {
         val deletedDateColumnIndex = cursor.getColumnIndex(DatabaseFormColumns.DELETED_DATE)
         val lastDetectedAttachmentsUpdateDateColumnIndex = cursor.getColumnIndex(DatabaseFormColumns.LAST_DETECTED_ATTACHMENTS_UPDATE_DATE)
         val usesEntitiesColumnIndex = cursor.getColumnIndex(DatabaseFormColumns.USES_ENTITIES)
+        val formFileSizeColumnIndex = cursor.getColumnIndex(DatabaseFormColumns.FORM_FILE_SIZE)
+        val formFileLastModifiedColumnIndex = cursor.getColumnIndex(DatabaseFormColumns.FORM_FILE_LAST_MODIFIED)
         return Form.Builder()
             .dbId(cursor.getLong(idColumnIndex))
             .displayName(cursor.getString(displayNameColumnIndex))
@@ -102,6 +104,8 @@ object DatabaseObjectMapper {
             .deleted(!cursor.isNull(deletedDateColumnIndex))
             .lastDetectedAttachmentsUpdateDate(cursor.getLongOrNull(lastDetectedAttachmentsUpdateDateColumnIndex))
             .usesEntities(Boolean.valueOf(cursor.getString(usesEntitiesColumnIndex)))
+            .formFileSize(cursor.getLongOrNull(formFileSizeColumnIndex))
+            .formFileLastModified(cursor.getLongOrNull(formFileLastModifiedColumnIndex))
             .build()
     }
 
@@ -5,32 +5,36 @@ import android.content.Context
 import android.database.Cursor
 import android.database.sqlite.SQLiteDatabase
 import android.database.sqlite.SQLiteException
+import android.database.sqlite.SQLiteStatement
 import android.provider.BaseColumns._ID
 import org.odk.collect.db.sqlite.CursorExt.first
 import org.odk.collect.db.sqlite.CursorExt.foldAndClose
 import org.odk.collect.db.sqlite.CursorExt.getBoolean
-import org.odk.collect.db.sqlite.CursorExt.getInt
 import org.odk.collect.db.sqlite.CursorExt.getLongOrNull
 import org.odk.collect.db.sqlite.CursorExt.getString
 import org.odk.collect.db.sqlite.CursorExt.getStringOrNull
-import org.odk.collect.db.sqlite.CursorExt.rowToMap
 import org.odk.collect.db.sqlite.MigrationListDatabaseMigrator
-import org.odk.collect.db.sqlite.RowNumbers.invalidateRowNumbers
+import org.odk.collect.db.sqlite.RowNumbers.appendRowNumbers
+import org.odk.collect.db.sqlite.RowNumbers.deleteWithRowNumbers
+import org.odk.collect.db.sqlite.RowNumbers.explainQueryWithRowNumber
 import org.odk.collect.db.sqlite.RowNumbers.rawQueryWithRowNumber
 import org.odk.collect.db.sqlite.SQLiteColumns.ROW_NUMBER
 import org.odk.collect.db.sqlite.SQLiteDatabaseExt.addColumn
 import org.odk.collect.db.sqlite.SQLiteDatabaseExt.getColumnNames
 import org.odk.collect.db.sqlite.SQLiteDatabaseExt.query
+import org.odk.collect.db.sqlite.SqlQuery
 import org.odk.collect.db.sqlite.SynchronizedDatabaseConnection
 import org.odk.collect.db.sqlite.toSql
 import org.odk.collect.entities.javarosa.parse.EntitySchema
 import org.odk.collect.entities.storage.EntitiesRepository
 import org.odk.collect.entities.storage.Entity
 import org.odk.collect.entities.storage.EntityList
+import org.odk.collect.entities.storage.EntityVersion
 import org.odk.collect.entities.storage.QueryException
-import org.odk.collect.entities.storage.getListNames
 import org.odk.collect.shared.Query
 import org.odk.collect.shared.mapColumns
+import java.util.Collections
+import java.util.concurrent.ConcurrentHashMap
 
 private object ListsTable {
     const val TABLE_NAME = "lists"
@@ -52,6 +56,17 @@ private object EntitiesTable {
     fun getPropertyColumn(property: String) = "$COLUMN_PROPERTY_PREFIX$property"
 }
 
+/**
+ * Store state as an Int rather than a string to avoid increasing the storage needed for
+ * entities.
+ */
+private fun convertStateToInt(state: Entity.State): Int {
+    return when (state) {
+        Entity.State.OFFLINE -> 0
+        Entity.State.ONLINE -> 1
+    }
+}
+
 class DatabaseEntitiesRepository(context: Context, dbPath: String, private val clock: () -> Long) :
     EntitiesRepository {
 
@@ -60,83 +75,65 @@ class DatabaseEntitiesRepository(context: Context, dbPath: String, private val c
         dbPath,
         "entities.db",
         EntitiesDatabaseMigrator(DATABASE_VERSION),
-        DATABASE_VERSION
+        DATABASE_VERSION,
+        concurrentReads = true
     )
 
+    private val indexedColumns = Collections.synchronizedSet(mutableSetOf<Pair<String, String>>())
+
+    /**
+     * Caches of the names of lists and the columns of their tables so that they don't need to be
+     * looked up for every call. These are updated whenever this repository alters the schema.
+     */
+    private val listNames: MutableSet<String> by lazy {
+        val names = databaseConnection.withReadConnection {
+            readableDatabase
+                .query(ListsTable.TABLE_NAME)
+                .foldAndClose { it.getString(ListsTable.COLUMN_NAME) }
+        }
+
+        Collections.synchronizedSet(names.toMutableSet())
+    }
+    private val listColumns = ConcurrentHashMap<String, List<String>>()
+
     override fun save(list: String, vararg entities: Entity) {
-        if (entities.isEmpty()) {
+        save(list, entities.asSequence())
+    }
+
+    /**
+     * Saves entities in chunks of [SAVE_CHUNK_SIZE], each in its own transaction, so that large
+     * lists don't need to be held in memory (or in a single transaction) while being saved.
+     * Each entity is written with an `UPDATE` falling back to an `INSERT` using compiled
+     * statements rather than looking up the existing entity first.
+     */
+    override fun save(list: String, entities: Sequence<Entity>) {
+        val iterator = entities.iterator()
+        if (!iterator.hasNext()) {
             return
         }
 
-        val listExists = listExists(list)
-        if (!listExists) {
+        if (!listExists(list)) {
             createList(list)
         }
 
-        updatePropertyColumns(list, entities.first())
+        Sequence { iterator }.chunked(SAVE_CHUNK_SIZE).forEach { chunk ->
+            updatePropertyColumns(list, chunk)
 
-        databaseConnection.transaction {
-            entities.forEach { entity ->
-                val existing = if (listExists) {
-                    query(
-                        quote(list),
-                        "${EntitiesTable.COLUMN_ID} = ?",
-                        arrayOf(entity.id)
-                    ).first { mapCursorRowToEntity(it, 0) }
-                } else {
-                    null
+            databaseConnection.transaction {
+                val statements = UpsertStatements(this, list)
+                try {
+                    chunk.forEach { statements.upsert(it) }
+                } finally {
+                    statements.close()
                 }
 
-                if (existing != null) {
-                    val state = if (existing.state == Entity.State.OFFLINE) {
-                        entity.state
-                    } else {
-                        Entity.State.ONLINE
-                    }
-
-                    val contentValues = ContentValues().also {
-                        it.put(EntitiesTable.COLUMN_ID, entity.id)
-                        it.put(EntitiesTable.COLUMN_LABEL, entity.label ?: existing.label)
-                        it.put(EntitiesTable.COLUMN_VERSION, entity.version)
-                        it.put(EntitiesTable.COLUMN_TRUNK_VERSION, entity.trunkVersion)
-                        it.put(EntitiesTable.COLUMN_BRANCH_ID, entity.branchId)
-                        it.put(EntitiesTable.COLUMN_STATE, convertStateToInt(state))
-
-                        addPropertiesToContentValues(it, entity)
-                    }
-
-                    update(
-                        quote(list),
-                        contentValues,
-                        "${EntitiesTable.COLUMN_ID} = ?",
-                        arrayOf(entity.id)
-                    )
-                } else {
-                    val contentValues = ContentValues().also {
-                        it.put(EntitiesTable.COLUMN_ID, entity.id)
-                        it.put(EntitiesTable.COLUMN_LABEL, entity.label)
-                        it.put(EntitiesTable.COLUMN_VERSION, entity.version)
-                        it.put(EntitiesTable.COLUMN_TRUNK_VERSION, entity.trunkVersion)
-                        it.put(EntitiesTable.COLUMN_BRANCH_ID, entity.branchId)
-                        it.put(EntitiesTable.COLUMN_STATE, convertStateToInt(entity.state))
-
-                        addPropertiesToContentValues(it, entity)
-                    }
-
-                    insertOrThrow(
-                        quote(list),
-                        null,
-                        contentValues
-                    )
-                }
+                appendRowNumbers(list)
             }
         }
-
-        invalidateRowNumbers()
     }
 
     override fun getLists(): List<EntityList> {
-        return databaseConnection.withConnection {
+        return databaseConnection.withReadConnection {
             readableDatabase
                 .query(ListsTable.TABLE_NAME)
                 .foldAndClose(emptyList()) { list, cursor ->
@@ -168,7 +165,7 @@ class DatabaseEntitiesRepository(context: Context, dbPath: String, private val c
     }
 
     override fun getList(list: String): EntityList? {
-        return databaseConnection.withConnection {
+        return databaseConnection.withReadConnection {
             readableDatabase
                 .query(ListsTable.TABLE_NAME, "${ListsTable.COLUMN_NAME} = ?", arrayOf(list))
                 .first { mapCursorRowToEntityList(it) }
@@ -180,7 +177,7 @@ class DatabaseEntitiesRepository(context: Context, dbPath: String, private val c
             return 0
         }
 
-        return databaseConnection.withConnection {
+        return databaseConnection.withReadConnection {
             readableDatabase.rawQuery(
                 """
                 SELECT COUNT(*)
@@ -196,16 +193,21 @@ class DatabaseEntitiesRepository(context: Context, dbPath: String, private val c
     override fun addList(list: String) {
         if (!listExists(list)) {
             createList(list)
-            invalidateRowNumbers()
         }
     }
 
     override fun delete(list: String, id: String) {
-        databaseConnection.withConnection {
-            writableDatabase.delete(quote(list), "${EntitiesTable.COLUMN_ID} = ?", arrayOf(id))
+        delete(list, listOf(id))
+    }
+
+    override fun delete(list: String, ids: List<String>) {
+        if (ids.isEmpty()) {
+            return
         }
 
-        invalidateRowNumbers()
+        databaseConnection.transaction {
+            deleteWithRowNumbers(list, EntitiesTable.COLUMN_ID, ids)
+        }
     }
 
     override fun query(list: String, query: Query?): List<Entity.Saved> {
@@ -213,14 +215,33 @@ class DatabaseEntitiesRepository(context: Context, dbPath: String, private val c
             return emptyList()
         }
 
-        return queryWithAttachedRowNumber(list, query?.mapColumns { columnName ->
-            when (columnName) {
-                EntitySchema.ID -> EntitiesTable.COLUMN_ID
-                EntitySchema.LABEL -> EntitiesTable.COLUMN_LABEL
-                EntitySchema.VERSION -> EntitiesTable.COLUMN_VERSION
-                else -> EntitiesTable.getPropertyColumn(columnName)
-            }
-        })
+        val columnQuery = query?.let { mapToColumns(it) }
+        if (columnQuery != null) {
+            ensurePropertyIndexes(list, columnQuery)
+        }
+
+        return queryWithAttachedRowNumber(list, columnQuery)
+    }
+
+    /**
+     * Returns the details of SQLite's query plan (`EXPLAIN QUERY PLAN`) for [query] so that it's
+     * possible to check which parts of a query are able to use an index (`SEARCH ... USING INDEX`)
+     * and which require a full scan of the list (`SCAN ...`).
+     */
+    fun explainQuery(list: String, query: Query): List<String> {
+        if (!listExists(list)) {
+            return emptyList()
+        }
+
+        val columnQuery = mapToColumns(query)
+        ensurePropertyIndexes(list, columnQuery)
+
+        val sqlQuery = columnQuery.toSql()
+        return databaseConnection.explainQueryWithRowNumber(
+            list,
+            sqlQuery.selection,
+            sqlQuery.selectionArgs
+        )
     }
 
     override fun getByIndex(list: String, index: Int): Entity.Saved? {
@@ -232,18 +253,58 @@ class DatabaseEntitiesRepository(context: Context, dbPath: String, private val c
         return queryWithAttachedRowNumber(list, query).firstOrNull()
     }
 
+    override fun getVersions(list: String): List<EntityVersion> {
+        if (!listExists(list)) {
+            return emptyList()
+        }
+
+        return databaseConnection.withReadConnection {
+            readableDatabase.rawQuery(
+                """
+                SELECT ${EntitiesTable.COLUMN_ID}, ${EntitiesTable.COLUMN_VERSION}, ${EntitiesTable.COLUMN_TRUNK_VERSION}, ${EntitiesTable.COLUMN_BRANCH_ID}, ${EntitiesTable.COLUMN_STATE}
+                FROM "$list"
+                """.trimIndent(),
+                null
+            ).foldAndClose {
+                EntityVersion(
+                    it.getString(0),
+                    it.getInt(1),
+                    if (it.isNull(2)) null else it.getInt(2),
+                    it.getString(3),
+                    if (it.getInt(4) == 0) Entity.State.OFFLINE else Entity.State.ONLINE
+                )
+            }
+        }
+    }
+
+    override fun getPage(list: String, offset: Int, limit: Int): List<Entity.Saved> {
+        if (!listExists(list)) {
+            return emptyList()
+        }
+
+        val sqlQuery = SqlQuery(
+            "$ROW_NUMBER > ? AND $ROW_NUMBER <= ?",
+            arrayOf(offset.toString(), (offset + limit).toString())
+        )
+        return queryWithAttachedRowNumber(list, sqlQuery)
+    }
+
     private fun queryWithAttachedRowNumber(list: String, query: Query?): List<Entity.Saved> {
+        return queryWithAttachedRowNumber(list, query?.toSql())
+    }
+
+    private fun queryWithAttachedRowNumber(list: String, sqlQuery: SqlQuery?): List<Entity.Saved> {
         try {
             val cursorMapper = { cursor: Cursor ->
+                val entityMapper = EntityCursorMapper(cursor)
                 cursor.foldAndClose {
-                    mapCursorRowToEntity(it, it.getInt(ROW_NUMBER))
+                    entityMapper.map(it)
                 }
             }
 
-            return if (query == null) {
+            return if (sqlQuery == null) {
                 databaseConnection.rawQueryWithRowNumber(list, cursorMapper = cursorMapper)
             } else {
-                val sqlQuery = query.toSql()
                 databaseConnection.rawQueryWithRowNumber(
                     list,
                     sqlQuery.selection,
@@ -256,14 +317,85 @@ class DatabaseEntitiesRepository(context: Context, dbPath: String, private val c
         }
     }
 
-    private fun invalidateRowNumbers() {
-        getListNames().forEach {
-            databaseConnection.invalidateRowNumbers(it)
+    private fun mapToColumns(query: Query): Query {
+        return query.mapColumns { columnName ->
+            when (columnName) {
+                EntitySchema.ID -> EntitiesTable.COLUMN_ID
+                EntitySchema.LABEL -> EntitiesTable.COLUMN_LABEL
+                EntitySchema.VERSION -> EntitiesTable.COLUMN_VERSION
+                else -> EntitiesTable.getPropertyColumn(columnName)
+            }
+        }
+    }
+
+    /**
+     * Creates indexes for property columns that [query] compares with `=` so that repeated
+     * lookups (like those from itemsets or `instance('list')/root/item[prop = ${x}]`) don't scan
+     * the whole list. Numeric comparisons cast their column and so can't make use of an index.
+     *
+     * Indexes that already exist (possibly created by another repository for the same database)
+     * are found in `sqlite_master` so that only missing ones need a write.
+     */
+    private fun ensurePropertyIndexes(list: String, query: Query) {
+        val columns = getStringEqColumns(query)
+            .filter { it.startsWith(EntitiesTable.COLUMN_PROPERTY_PREFIX) }
+            .distinctBy { it.lowercase() }
+            .filterNot { indexedColumns.contains(Pair(list, it.lowercase())) }
+
+        if (columns.isEmpty()) {
+            return
+        }
+
+        val missingColumns = getMissingColumns(list, columns)
+        val existingColumns = columns.filterNot { missingColumns.contains(it) }
+        if (existingColumns.isEmpty()) {
+            return
+        }
+
+        val existingIndexes = databaseConnection.withReadConnection {
+            readableDatabase.rawQuery(
+                "SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = ?",
+                arrayOf(list)
+            ).foldAndClose { it.getString(0) }
+        }
+
+        val unindexedColumns = existingColumns.filterNot { existingIndexes.contains(getPropertyIndexName(list, it)) }
+        if (unindexedColumns.isNotEmpty()) {
+            databaseConnection.transaction {
+                unindexedColumns.forEach {
+                    execSQL(
+                        """
+                        CREATE INDEX IF NOT EXISTS "${getPropertyIndexName(list, it)}" ON "$list" ("$it");
+                        """.trimIndent()
+                    )
+                }
+            }
+        }
+
+        indexedColumns.addAll(existingColumns.map { Pair(list, it.lowercase()) })
+    }
+
+    private fun getPropertyIndexName(list: String, column: String) = "${list}_${column.lowercase()}_index"
+
+    private fun getStringEqColumns(query: Query): List<String> {
+        return when (query) {
+            is Query.StringEq -> listOf(query.column)
+            is Query.And -> getStringEqColumns(query.queryA) + getStringEqColumns(query.queryB)
+            is Query.Or -> getStringEqColumns(query.queryA) + getStringEqColumns(query.queryB)
+            else -> emptyList()
         }
     }
 
+    /**
+     * Lists are never removed so a cached name can be trusted, but a list might have been
+     * created by another repository for the same database so misses are checked against the DB.
+     */
     private fun listExists(list: String): Boolean {
-        return databaseConnection.withConnection {
+        if (listNames.contains(list)) {
+            return true
+        }
+
+        val exists = databaseConnection.withReadConnection {
             readableDatabase
                 .query(
                     ListsTable.TABLE_NAME,
@@ -271,6 +403,39 @@ class DatabaseEntitiesRepository(context: Context, dbPath: String, private val c
                     selectionArgs = arrayOf(list)
                 ).use { it.count } > 0
         }
+
+        if (exists) {
+            listNames.add(list)
+        }
+
+        return exists
+    }
+
+    /**
+     * Returns the columns (compared case-insensitively) that don't exist in the list's table.
+     * Columns missing from the cached schema are rechecked against the DB in case they were
+     * added by another repository for the same database.
+     */
+    private fun getMissingColumns(list: String, columns: List<String>): List<String> {
+        val missingFromCache = columns.filterNot { hasColumn(getListColumns(list), it) }
+        return if (missingFromCache.isNotEmpty()) {
+            listColumns.remove(list)
+            missingFromCache.filterNot { hasColumn(getListColumns(list), it) }
+        } else {
+            missingFromCache
+        }
+    }
+
+    private fun hasColumn(columnNames: List<String>, column: String): Boolean {
+        return columnNames.any { it.equals(column, ignoreCase = true) }
+    }
+
+    private fun getListColumns(list: String): List<String> {
+        return listColumns.getOrPut(list) {
+            databaseConnection.withReadConnection {
+                readableDatabase.getColumnNames(quote(list))
+            }
+        }
     }
 
     private fun createList(list: String) {
@@ -303,24 +468,17 @@ class DatabaseEntitiesRepository(context: Context, dbPath: String, private val c
                 """.trimIndent()
             )
         }
-    }
 
-    private fun updatePropertyColumns(list: String, entity: Entity) {
-        val columnNames = databaseConnection.withConnection {
-            readableDatabase.getColumnNames(quote(list))
-        }
+        listColumns.remove(list)
+        listNames.add(list)
+    }
 
-        val missingColumns = entity.properties
-            .map { EntitiesTable.getPropertyColumn(it.first) }
+    private fun updatePropertyColumns(list: String, entities: List<Entity>) {
+        val propertyColumns = entities
+            .flatMap { entity -> entity.properties.map { EntitiesTable.getPropertyColumn(it.first) } }
             .distinctBy { it.lowercase() }
-            .filterNot { columnName ->
-                columnNames.any {
-                    it.equals(
-                        columnName,
-                        ignoreCase = true
-                    )
-                }
-            }
+
+        val missingColumns = getMissingColumns(list, propertyColumns)
 
         if (missingColumns.isNotEmpty()) {
             databaseConnection.resetTransaction {
@@ -332,12 +490,8 @@ class DatabaseEntitiesRepository(context: Context, dbPath: String, private val c
                     )
                 }
             }
-        }
-    }
 
-    private fun addPropertiesToContentValues(contentValues: ContentValues, entity: Entity) {
-        entity.properties.forEach { (name, value) ->
-            contentValues.put(quote(EntitiesTable.getPropertyColumn(name)), value)
+            listColumns.remove(list)
         }
     }
 
@@ -350,57 +504,170 @@ class DatabaseEntitiesRepository(context: Context, dbPath: String, private val c
         )
     }
 
-    private fun mapCursorRowToEntity(
-        cursor: Cursor,
-        rowId: Int
-    ): Entity.Saved {
-        val map = cursor.rowToMap()
+    private fun quote(text: String) = "\"$text\""
 
-        val propertyColumns = map.keys.filter {
-            it.startsWith(EntitiesTable.COLUMN_PROPERTY_PREFIX)
-        }
+    companion object {
+        const val DATABASE_VERSION = 4
+        const val SAVE_CHUNK_SIZE = 1000
+    }
+}
 
-        val properties =
-            propertyColumns.fold(emptyList<Pair<String, String>>()) { accum, property ->
-                accum + Pair(
-                    property.removePrefix(EntitiesTable.COLUMN_PROPERTY_PREFIX),
-                    map[property] ?: ""
-                )
-            }
+/**
+ * Maps rows from a cursor over a list table (with an attached [ROW_NUMBER]) to [Entity.Saved].
+ * Column indices are resolved once per cursor rather than for every row. Like
+ * [org.odk.collect.db.sqlite.CursorExt.rowToMap], this avoids [Cursor.getColumnIndex] so that
+ * property names including a "." are supported.
+ */
+private class EntityCursorMapper(cursor: Cursor) {
+
+    private val columnNames = cursor.columnNames
+
+    private val idIndex = columnNames.lastIndexOf(EntitiesTable.COLUMN_ID)
+    private val labelIndex = columnNames.lastIndexOf(EntitiesTable.COLUMN_LABEL)
+    private val versionIndex = columnNames.lastIndexOf(EntitiesTable.COLUMN_VERSION)
+    private val trunkVersionIndex = columnNames.lastIndexOf(EntitiesTable.COLUMN_TRUNK_VERSION)
+    private val branchIdIndex = columnNames.lastIndexOf(EntitiesTable.COLUMN_BRANCH_ID)
+    private val stateIndex = columnNames.lastIndexOf(EntitiesTable.COLUMN_STATE)
+    private val rowNumberIndex = columnNames.lastIndexOf(ROW_NUMBER)
+
+    private val propertyIndices = columnNames.indices
+        .filter { columnNames[it].startsWith(EntitiesTable.COLUMN_PROPERTY_PREFIX) }
+        .toIntArray()
+
+    private val propertyNames = Array(propertyIndices.size) {
+        columnNames[propertyIndices[it]].removePrefix(EntitiesTable.COLUMN_PROPERTY_PREFIX)
+    }
+
+    fun map(cursor: Cursor): Entity.Saved {
+        val properties = ArrayList<Pair<String, String>>(propertyIndices.size)
+        for (i in propertyIndices.indices) {
+            properties.add(Pair(propertyNames[i], cursor.getString(propertyIndices[i]) ?: ""))
+        }
 
-        val state = if (map[EntitiesTable.COLUMN_STATE]!!.toInt() == 0) {
+        val state = if (cursor.getInt(stateIndex) == 0) {
             Entity.State.OFFLINE
         } else {
             Entity.State.ONLINE
         }
 
+        val trunkVersion = if (cursor.isNull(trunkVersionIndex)) {
+            null
+        } else {
+            cursor.getInt(trunkVersionIndex)
+        }
+
         return Entity.Saved(
-            map[EntitiesTable.COLUMN_ID]!!,
-            map[EntitiesTable.COLUMN_LABEL],
-            map[EntitiesTable.COLUMN_VERSION]!!.toInt(),
+            cursor.getString(idIndex),
+            cursor.getString(labelIndex),
+            cursor.getInt(versionIndex),
             properties,
             state,
-            rowId - 1,
-            map[EntitiesTable.COLUMN_TRUNK_VERSION]?.toInt(),
-            map[EntitiesTable.COLUMN_BRANCH_ID]!!
+            cursor.getInt(rowNumberIndex) - 1,
+            trunkVersion,
+            cursor.getString(branchIdIndex)
         )
     }
+}
+
+/**
+ * Compiled statements for "upserting" entities into a list table. Statements are compiled once
+ * per distinct set of property columns and reused for every entity with the same properties.
+ *
+ * This uses an `UPDATE` and then an `INSERT` if nothing was updated rather than
+ * `INSERT ... ON CONFLICT DO UPDATE` as the latter is not supported by the SQLite versions
+ * shipped with older Android versions.
+ */
+private class UpsertStatements(private val database: SQLiteDatabase, private val list: String) {
+
+    private val updates = mutableMapOf<List<String>, SQLiteStatement>()
+    private val inserts = mutableMapOf<List<String>, SQLiteStatement>()
+
+    fun upsert(entity: Entity) {
+        val properties = entity.properties.distinctBy { it.first.lowercase() }
+        val propertyColumns = properties.map { EntitiesTable.getPropertyColumn(it.first) }
+
+        val update = updates.getOrPut(propertyColumns) { compileUpdate(propertyColumns) }
+        update.clearBindings()
+        update.bindStringOrNull(1, entity.label)
+        update.bindLong(2, entity.version.toLong())
+        update.bindLongOrNull(3, entity.trunkVersion?.toLong())
+        update.bindString(4, entity.branchId)
+        update.bindLong(5, convertStateToInt(entity.state).toLong())
+        properties.forEachIndexed { index, (_, value) -> update.bindString(6 + index, value) }
+        update.bindString(6 + properties.size, entity.id)
+
+        if (update.executeUpdateDelete() == 0) {
+            val insert = inserts.getOrPut(propertyColumns) { compileInsert(propertyColumns) }
+            insert.clearBindings()
+            insert.bindString(1, entity.id)
+            insert.bindStringOrNull(2, entity.label)
+            insert.bindLong(3, entity.version.toLong())
+            insert.bindLongOrNull(4, entity.trunkVersion?.toLong())
+            insert.bindString(5, entity.branchId)
+            insert.bindLong(6, convertStateToInt(entity.state).toLong())
+            properties.forEachIndexed { index, (_, value) -> insert.bindString(7 + index, value) }
+            insert.executeInsert()
+        }
+    }
+
+    fun close() {
+        updates.values.forEach { it.close() }
+        inserts.values.forEach { it.close() }
+    }
 
     /**
-     * Store state as an Int rather than a string to avoid increasing the storage needed for
-     * entities.
+     * Entities that are [Entity.State.ONLINE] can't be moved back to [Entity.State.OFFLINE] and
+     * a `null` label doesn't override an existing one.
      */
-    private fun convertStateToInt(state: Entity.State): Int {
-        return when (state) {
-            Entity.State.OFFLINE -> 0
-            Entity.State.ONLINE -> 1
-        }
+    private fun compileUpdate(propertyColumns: List<String>): SQLiteStatement {
+        val propertyAssignments = propertyColumns.joinToString("") { ", \"$it\" = ?" }
+
+        return database.compileStatement(
+            """
+            UPDATE "$list" SET
+                ${EntitiesTable.COLUMN_LABEL} = IFNULL(?, ${EntitiesTable.COLUMN_LABEL}),
+                ${EntitiesTable.COLUMN_VERSION} = ?,
+                ${EntitiesTable.COLUMN_TRUNK_VERSION} = ?,
+                ${EntitiesTable.COLUMN_BRANCH_ID} = ?,
+                ${EntitiesTable.COLUMN_STATE} = CASE WHEN ${EntitiesTable.COLUMN_STATE} = 0 THEN ? ELSE 1 END
+                $propertyAssignments
+            WHERE ${EntitiesTable.COLUMN_ID} = ?
+            """.trimIndent()
+        )
     }
 
-    private fun quote(text: String) = "\"$text\""
+    private fun compileInsert(propertyColumns: List<String>): SQLiteStatement {
+        val columns = listOf(
+            EntitiesTable.COLUMN_ID,
+            EntitiesTable.COLUMN_LABEL,
+            EntitiesTable.COLUMN_VERSION,
+            EntitiesTable.COLUMN_TRUNK_VERSION,
+            EntitiesTable.COLUMN_BRANCH_ID,
+            EntitiesTable.COLUMN_STATE
+        ) + propertyColumns.map { "\"$it\"" }
+
+        return database.compileStatement(
+            """
+            INSERT INTO "$list" (${columns.joinToString(", ")})
+            VALUES (${columns.joinToString(", ") { "?" }})
+            """.trimIndent()
+        )
+    }
 
-    companion object {
-        const val DATABASE_VERSION = 4
+    private fun SQLiteStatement.bindStringOrNull(index: Int, value: String?) {
+        if (value != null) {
+            bindString(index, value)
+        } else {
+            bindNull(index)
+        }
+    }
+
+    private fun SQLiteStatement.bindLongOrNull(index: Int, value: Long?) {
+        if (value != null) {
+            bindLong(index, value)
+        } else {
+            bindNull(index)
+        }
     }
 }
 
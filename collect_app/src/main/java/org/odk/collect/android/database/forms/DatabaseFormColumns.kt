@@ -26,6 +26,8 @@ object DatabaseFormColumns : BaseColumns {
     const val DATE = "date"
     const val JRCACHE_FILE_PATH = "jrcacheFilePath"
     const val FORM_MEDIA_PATH = "formMediaPath"
+    const val FORM_FILE_SIZE = "formFileSize"
+    const val FORM_FILE_LAST_MODIFIED = "formFileLastModified"
 
     // this is null on create, and can only be set on an update.
     const val LANGUAGE = "language"
@@ -12,7 +12,9 @@ import static org.odk.collect.android.database.forms.DatabaseFormColumns.DELETED
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.DESCRIPTION;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.DISPLAY_NAME;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.USES_ENTITIES;
+import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_FILE_LAST_MODIFIED;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_FILE_PATH;
+import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_FILE_SIZE;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_MEDIA_PATH;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.GEOMETRY_XPATH;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.JRCACHE_FILE_PATH;
@@ -35,6 +37,7 @@ import android.os.StrictMode;
 
 import org.jetbrains.annotations.NotNull;
 import org.odk.collect.db.sqlite.DatabaseConnection;
+import org.odk.collect.db.sqlite.Metrics;
 import org.odk.collect.android.database.DatabaseConstants;
 import org.odk.collect.android.utilities.FileUtils;
 import org.odk.collect.forms.Form;
@@ -50,6 +53,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import javax.annotation.Nullable;
@@ -58,6 +62,12 @@ import timber.log.Timber;
 
 public class DatabaseFormsRepository implements FormsRepository {
 
+    /**
+     * Timings for the lookups that the table is indexed for (see {@link FormDatabaseMigrator}).
+     * A summary is logged periodically so the effect of the indexes can be checked on devices.
+     */
+    private static final Metrics QUERY_METRICS = new Metrics("Forms database query", TimeUnit.MINUTES.toMillis(5));
+
     private final DatabaseConnection databaseConnection;
     private final String formsPath;
     private final String cachePath;
@@ -100,7 +110,7 @@ public class DatabaseFormsRepository implements FormsRepository {
     public Form getOneByPath(String path) {
         String selection = FORM_FILE_PATH + "=?";
         String[] selectionArgs = {getRelativeFilePath(formsPath, path)};
-        return queryForForm(selection, selectionArgs);
+        return QUERY_METRICS.time("getOneByPath", () -> queryForForm(selection, selectionArgs));
     }
 
     @Nullable
@@ -112,7 +122,7 @@ public class DatabaseFormsRepository implements FormsRepository {
 
         String selection = DatabaseFormColumns.MD5_HASH + "=?";
         String[] selectionArgs = {hash};
-        return queryForForm(selection, selectionArgs);
+        return QUERY_METRICS.time("getOneByMd5Hash", () -> queryForForm(selection, selectionArgs));
     }
 
     @Override
@@ -123,11 +133,13 @@ public class DatabaseFormsRepository implements FormsRepository {
 
     @Override
     public List<Form> getAllByFormIdAndVersion(String jrFormId, @Nullable String jrVersion) {
-        if (jrVersion != null) {
-            return queryForForms(JR_FORM_ID + "=? AND " + JR_VERSION + "=?", new String[]{jrFormId, jrVersion});
-        } else {
-            return queryForForms(JR_FORM_ID + "=? AND " + JR_VERSION + " IS NULL", new String[]{jrFormId});
-        }
+        return QUERY_METRICS.time("getAllByFormIdAndVersion", () -> {
+            if (jrVersion != null) {
+                return queryForForms(JR_FORM_ID + "=? AND " + JR_VERSION + "=?", new String[]{jrFormId, jrVersion});
+            } else {
+                return queryForForms(JR_FORM_ID + "=? AND " + JR_VERSION + " IS NULL", new String[]{jrFormId});
+            }
+        });
     }
 
     @Override
@@ -158,7 +170,12 @@ public class DatabaseFormsRepository implements FormsRepository {
     public Form save(@NotNull Form form) {
         final ContentValues values = getValuesFromForm(form, formsPath);
 
-        String md5Hash = Md5.getMd5Hash(new File(form.getFormFilePath()));
+        // Stamp the file before hashing it so a change while it's being hashed is picked up later
+        File formFile = new File(form.getFormFilePath());
+        values.put(FORM_FILE_SIZE, formFile.length());
+        values.put(FORM_FILE_LAST_MODIFIED, formFile.lastModified());
+
+        String md5Hash = Md5.getMd5Hash(formFile);
         values.put(MD5_HASH, md5Hash);
         values.put(FORM_MEDIA_PATH, getRelativeFilePath(formsPath, FileUtils.constructMediaPath(form.getFormFilePath())));
         values.put(JRCACHE_FILE_PATH, md5Hash + ".formdef");
@@ -225,6 +242,14 @@ public class DatabaseFormsRepository implements FormsRepository {
         updateForm(id, values);
     }
 
+    @Override
+    public void updateFileStamp(Long id, long fileSize, long fileLastModified) {
+        ContentValues values = new ContentValues();
+        values.put(FORM_FILE_SIZE, fileSize);
+        values.put(FORM_FILE_LAST_MODIFIED, fileLastModified);
+        updateForm(id, values);
+    }
+
     public Cursor rawQuery(Map<String, String> projectionMap, String[] projection, String selection, String[] selectionArgs, String sortOrder, String groupBy) {
         return queryAndReturnCursor(projectionMap, projection, selection, selectionArgs, sortOrder, groupBy);
     }
@@ -274,7 +299,9 @@ public class DatabaseFormsRepository implements FormsRepository {
                     GEOMETRY_XPATH,
                     DELETED_DATE,
                     LAST_DETECTED_ATTACHMENTS_UPDATE_DATE,
-                    USES_ENTITIES
+                    USES_ENTITIES,
+                    FORM_FILE_SIZE,
+                    FORM_FILE_LAST_MODIFIED
             };
         }
 
@@ -3,6 +3,8 @@ package org.odk.collect.android.database.forms;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 
+import androidx.annotation.VisibleForTesting;
+
 import org.odk.collect.db.sqlite.DatabaseMigrator;
 import org.odk.collect.db.sqlite.SQLiteUtils;
 
@@ -17,7 +19,9 @@ import static org.odk.collect.android.database.forms.DatabaseFormColumns.DESCRIP
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.DISPLAY_NAME;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.DISPLAY_SUBTEXT;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.USES_ENTITIES;
+import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_FILE_LAST_MODIFIED;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_FILE_PATH;
+import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_FILE_SIZE;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_MEDIA_PATH;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.GEOMETRY_XPATH;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.JRCACHE_FILE_PATH;
@@ -34,6 +38,9 @@ import timber.log.Timber;
 
 public class FormDatabaseMigrator implements DatabaseMigrator {
 
+    public static final String FORM_ID_AND_VERSION_INDEX = "forms_jrFormId_jrVersion";
+    public static final String FORM_FILE_PATH_INDEX = "forms_formFilePath";
+
     private static final String[] COLUMN_NAMES_V7 = {_ID, DISPLAY_NAME, DESCRIPTION,
             JR_FORM_ID, JR_VERSION, MD5_HASH, DATE, FORM_MEDIA_PATH, FORM_FILE_PATH, LANGUAGE,
             SUBMISSION_URI, BASE64_RSA_PUBLIC_KEY, JRCACHE_FILE_PATH, AUTO_SEND, AUTO_DELETE,
@@ -44,7 +51,8 @@ public class FormDatabaseMigrator implements DatabaseMigrator {
     private static final String MODEL_VERSION = "modelVersion";
 
     public void onCreate(SQLiteDatabase db) {
-        createFormsTableV14(db);
+        createFormsTableV15(db);
+        createIndexesV16(db);
     }
 
     @SuppressWarnings({"checkstyle:FallThrough"})
@@ -77,8 +85,12 @@ public class FormDatabaseMigrator implements DatabaseMigrator {
             case 13:
                 upgradeToVersion14(db);
             case 14:
+                upgradeToVersion15(db);
+            case 15:
+                upgradeToVersion16(db);
+            case 16:
                 // Remember to bump the database version number in {@link org.odk.collect.android.database.DatabaseConstants}
-                // upgradeToVersion15(db);
+                // upgradeToVersion17(db);
         }
     }
 
@@ -280,6 +292,15 @@ public class FormDatabaseMigrator implements DatabaseMigrator {
         addColumn(db, FORMS_TABLE_NAME, USES_ENTITIES, "text");
     }
 
+    private void upgradeToVersion15(SQLiteDatabase db) {
+        addColumn(db, FORMS_TABLE_NAME, FORM_FILE_SIZE, "integer");
+        addColumn(db, FORMS_TABLE_NAME, FORM_FILE_LAST_MODIFIED, "integer");
+    }
+
+    private void upgradeToVersion16(SQLiteDatabase db) {
+        createIndexesV16(db);
+    }
+
     private void createFormsTableV4(SQLiteDatabase db, String tableName) {
         db.execSQL("CREATE TABLE IF NOT EXISTS " + tableName + " ("
                 + _ID + " integer primary key, "
@@ -449,7 +470,8 @@ public class FormDatabaseMigrator implements DatabaseMigrator {
                 + LAST_DETECTED_ATTACHMENTS_UPDATE_DATE + " integer);"); // milliseconds
     }
 
-    private void createFormsTableV14(SQLiteDatabase db) {
+    @VisibleForTesting
+    public void createFormsTableV14(SQLiteDatabase db) {
         db.execSQL("CREATE TABLE IF NOT EXISTS " + FORMS_TABLE_NAME + " ("
                 + _ID + " integer primary key autoincrement, "
                 + DISPLAY_NAME + " text not null, "
@@ -471,4 +493,41 @@ public class FormDatabaseMigrator implements DatabaseMigrator {
                 + LAST_DETECTED_ATTACHMENTS_UPDATE_DATE + " integer, " // milliseconds
                 + USES_ENTITIES + " text);");
     }
+
+    @VisibleForTesting
+    public void createFormsTableV15(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + FORMS_TABLE_NAME + " ("
+                + _ID + " integer primary key autoincrement, "
+                + DISPLAY_NAME + " text not null, "
+                + DESCRIPTION + " text, "
+                + JR_FORM_ID + " text not null, "
+                + JR_VERSION + " text, "
+                + MD5_HASH + " text not null UNIQUE ON CONFLICT IGNORE, "
+                + DATE + " integer not null, " // milliseconds
+                + FORM_MEDIA_PATH + " text not null, "
+                + FORM_FILE_PATH + " text not null, "
+                + LANGUAGE + " text, "
+                + SUBMISSION_URI + " text, "
+                + BASE64_RSA_PUBLIC_KEY + " text, "
+                + JRCACHE_FILE_PATH + " text not null, "
+                + AUTO_SEND + " text, "
+                + AUTO_DELETE + " text, "
+                + GEOMETRY_XPATH + " text, "
+                + DELETED_DATE + " integer, "
+                + LAST_DETECTED_ATTACHMENTS_UPDATE_DATE + " integer, " // milliseconds
+                + USES_ENTITIES + " text, "
+                + FORM_FILE_SIZE + " integer, "
+                + FORM_FILE_LAST_MODIFIED + " integer);"); // milliseconds
+    }
+
+    /**
+     * Indexes the columns forms are looked up by. {@link DatabaseFormColumns#MD5_HASH} doesn't
+     * need one as its UNIQUE constraint already gives it an index.
+     */
+    private void createIndexesV16(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + FORM_ID_AND_VERSION_INDEX + " ON " + FORMS_TABLE_NAME
+                + " (" + JR_FORM_ID + ", " + JR_VERSION + ");");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + FORM_FILE_PATH_INDEX + " ON " + FORMS_TABLE_NAME
+                + " (" + FORM_FILE_PATH + ");");
+    }
 }
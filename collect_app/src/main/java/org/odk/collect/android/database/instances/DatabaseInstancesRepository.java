@@ -3,12 +3,14 @@ package org.odk.collect.android.database.instances;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.os.StrictMode;
 
 import org.odk.collect.db.sqlite.DatabaseConnection;
+import org.odk.collect.db.sqlite.Metrics;
 import org.odk.collect.android.database.DatabaseConstants;
 import org.odk.collect.forms.instances.Instance;
 import org.odk.collect.forms.instances.InstancesRepository;
@@ -17,6 +19,7 @@ import org.odk.collect.shared.files.FileExt;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import static android.provider.BaseColumns._ID;
@@ -45,6 +48,12 @@ import static org.odk.collect.shared.PathUtils.getRelativeFilePath;
  */
 public final class DatabaseInstancesRepository implements InstancesRepository {
 
+    /**
+     * Timings for the lookups that the table is indexed for (see {@link InstanceDatabaseMigrator}).
+     * A summary is logged periodically so the effect of the indexes can be checked on devices.
+     */
+    private static final Metrics QUERY_METRICS = new Metrics("Instances database query", TimeUnit.MINUTES.toMillis(5));
+
     private final DatabaseConnection databaseConnection;
     private final Supplier<Long> clock;
     private final String instancesPath;
@@ -107,16 +116,23 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
 
     @Override
     public List<Instance> getAllByStatus(String... status) {
-        try (Cursor instancesCursor = getCursorForAllByStatus(status)) {
-            return getInstancesFromCursor(instancesCursor, instancesPath);
-        }
+        return QUERY_METRICS.time("getAllByStatus", () -> {
+            try (Cursor instancesCursor = query(null, getStatusSelection(status), status, null)) {
+                return getInstancesFromCursor(instancesCursor, instancesPath);
+            }
+        });
     }
 
     @Override
     public int getCountByStatus(String... status) {
-        try (Cursor cursorForAllByStatus = getCursorForAllByStatus(status)) {
-            return cursorForAllByStatus.getCount();
-        }
+        // Count in SQLite rather than by loading every row into a cursor so that only the status
+        // index needs to be read
+        return QUERY_METRICS.time("getCountByStatus", () -> (int) DatabaseUtils.queryNumEntries(
+                databaseConnection.getReadableDatabase(),
+                INSTANCES_TABLE_NAME,
+                getStatusSelection(status),
+                status
+        ));
     }
 
 
@@ -124,24 +140,28 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
     public List<Instance> getAllByFormId(String formId) {
         StrictMode.noteSlowCall("Accessing readable DB");
 
-        try (Cursor c = query(null, JR_FORM_ID + " = ?", new String[]{formId}, null)) {
-            return getInstancesFromCursor(c, instancesPath);
-        }
+        return QUERY_METRICS.time("getAllByFormId", () -> {
+            try (Cursor c = query(null, JR_FORM_ID + " = ?", new String[]{formId}, null)) {
+                return getInstancesFromCursor(c, instancesPath);
+            }
+        });
     }
 
     @Override
     public List<Instance> getAllNotDeletedByFormIdAndVersion(String jrFormId, String jrVersion) {
         StrictMode.noteSlowCall("Accessing readable DB");
 
-        if (jrVersion != null) {
-            try (Cursor cursor = query(null, JR_FORM_ID + " = ? AND " + JR_VERSION + " = ? AND " + DELETED_DATE + " IS NULL", new String[]{jrFormId, jrVersion}, null)) {
-                return getInstancesFromCursor(cursor, instancesPath);
-            }
-        } else {
-            try (Cursor cursor = query(null, JR_FORM_ID + " = ? AND " + JR_VERSION + " IS NULL AND " + DELETED_DATE + " IS NULL", new String[]{jrFormId}, null)) {
-                return getInstancesFromCursor(cursor, instancesPath);
+        return QUERY_METRICS.time("getAllNotDeletedByFormIdAndVersion", () -> {
+            if (jrVersion != null) {
+                try (Cursor cursor = query(null, JR_FORM_ID + " = ? AND " + JR_VERSION + " = ? AND " + DELETED_DATE + " IS NULL", new String[]{jrFormId, jrVersion}, null)) {
+                    return getInstancesFromCursor(cursor, instancesPath);
+                }
+            } else {
+                try (Cursor cursor = query(null, JR_FORM_ID + " = ? AND " + JR_VERSION + " IS NULL AND " + DELETED_DATE + " IS NULL", new String[]{jrFormId}, null)) {
+                    return getInstancesFromCursor(cursor, instancesPath);
+                }
             }
-        }
+        });
     }
 
     @Override
@@ -233,13 +253,13 @@ public final class DatabaseInstancesRepository implements InstancesRepository {
         return query(projection, selection, selectionArgs, sortOrder);
     }
 
-    private Cursor getCursorForAllByStatus(String[] status) {
+    private static String getStatusSelection(String[] status) {
         StringBuilder selection = new StringBuilder(STATUS + "=?");
         for (int i = 1; i < status.length; i++) {
             selection.append(" or ").append(STATUS).append("=?");
         }
 
-        return query(null, selection.toString(), status, null);
+        return selection.toString();
     }
 
     private Cursor query(String[] projection, String selection, String[] selectionArgs, String sortOrder) {
@@ -33,6 +33,9 @@ import java.util.List;
 import timber.log.Timber;
 
 public class InstanceDatabaseMigrator implements DatabaseMigrator {
+    public static final String STATUS_INDEX = "instances_status";
+    public static final String FORM_ID_AND_VERSION_INDEX = "instances_jrFormId_jrVersion_deletedDate";
+
     private static final String[] COLUMN_NAMES_V5 = {_ID, DISPLAY_NAME, SUBMISSION_URI, CAN_EDIT_WHEN_COMPLETE,
             INSTANCE_FILE_PATH, JR_FORM_ID, JR_VERSION, STATUS, LAST_STATUS_CHANGE_DATE, DELETED_DATE};
 
@@ -42,6 +45,7 @@ public class InstanceDatabaseMigrator implements DatabaseMigrator {
 
     public void onCreate(SQLiteDatabase db) {
         createInstancesTableV10(db);
+        createIndexesV11(db);
     }
 
     @SuppressWarnings({"checkstyle:FallThrough"})
@@ -67,8 +71,10 @@ public class InstanceDatabaseMigrator implements DatabaseMigrator {
             case 9:
                 upgradeToVersion10(db);
             case 10:
+                upgradeToVersion11(db);
+            case 11:
                 // Remember to bump the database version number in {@link org.odk.collect.android.database.DatabaseConstants}
-                // upgradeToVersion11(db);
+                // upgradeToVersion12(db);
         }
     }
 
@@ -164,6 +170,10 @@ public class InstanceDatabaseMigrator implements DatabaseMigrator {
         );
     }
 
+    private void upgradeToVersion11(SQLiteDatabase db) {
+        createIndexesV11(db);
+    }
+
     private void createInstancesTableV5(SQLiteDatabase db, String name) {
         db.execSQL("CREATE TABLE IF NOT EXISTS " + name + " ("
                 + _ID + " integer primary key, "
@@ -269,4 +279,15 @@ public class InstanceDatabaseMigrator implements DatabaseMigrator {
                 + ");"
         );
     }
+
+    /**
+     * Indexes the columns instances are counted and listed by. The form index's column order means
+     * it also covers lookups by {@link DatabaseInstanceColumns#JR_FORM_ID} alone.
+     */
+    private void createIndexesV11(SQLiteDatabase db) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + STATUS_INDEX + " ON " + INSTANCES_TABLE_NAME
+                + " (" + STATUS + ");");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + FORM_ID_AND_VERSION_INDEX + " ON " + INSTANCES_TABLE_NAME
+                + " (" + JR_FORM_ID + ", " + JR_VERSION + ", " + DELETED_DATE + ");");
+    }
 }
@@ -22,10 +22,18 @@ import android.content.res.Resources;
 import android.database.sqlite.SQLiteDatabase;
 
 import org.apache.commons.io.FileUtils;
+import org.odk.collect.android.exception.ExternalDataException;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -39,6 +47,9 @@ import timber.log.Timber;
  */
 public class ExternalDataReaderImpl implements ExternalDataReader {
 
+    private static final int MAX_THREADS = 4;
+    private static final Map<String, Object> LOCKS = new ConcurrentHashMap<>();
+
     private final Supplier<Boolean> isCancelled;
     private final Consumer<Function<Resources, String>> progressReporter;
 
@@ -47,23 +58,71 @@ public class ExternalDataReaderImpl implements ExternalDataReader {
         this.progressReporter = progressReporter;
     }
 
+    /**
+     * Imports each data set into its own database. Data sets are imported concurrently (as they
+     * don't share anything) and an import is abandoned as soon as the import is cancelled.
+     */
     @Override
     public void doImport(Map<String, File> externalDataMap) {
+        List<Map.Entry<String, File>> dataSets = new ArrayList<>();
         for (Map.Entry<String, File> stringFileEntry : externalDataMap.entrySet()) {
-            String dataSetName = stringFileEntry.getKey();
-            File dataSetFile = stringFileEntry.getValue();
-            if (!dataSetFile.exists()) {
-                continue;
+            if (stringFileEntry.getValue().exists()) {
+                dataSets.add(stringFileEntry);
+            }
+        }
+
+        if (dataSets.size() == 1) {
+            doImportDataSetAndContinue(dataSets.get(0).getKey(), dataSets.get(0).getValue());
+            return;
+        } else if (dataSets.isEmpty()) {
+            return;
+        }
+
+        int threads = Math.min(dataSets.size(), Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> imports = new ArrayList<>();
+            for (Map.Entry<String, File> dataSet : dataSets) {
+                imports.add(executor.submit(() -> {
+                    if (isCancelled.get()) {
+                        return false;
+                    }
+
+                    return doImportDataSetAndContinue(dataSet.getKey(), dataSet.getValue());
+                }));
             }
-            if (!doImportDataSetAndContinue(dataSetName, dataSetFile)) {
-                return; // halt if import was cancelled
+
+            for (Future<Boolean> dataSetImport : imports) {
+                dataSetImport.get();
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw new ExternalDataException(e.getCause().getMessage(), e.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
         }
     }
 
+    private static Object getLock(File dbFile) {
+        return LOCKS.computeIfAbsent(dbFile.getAbsolutePath(), path -> new Object());
+    }
+
     private boolean doImportDataSetAndContinue(String dataSetName, File dataSetFile) {
         File dbFile = new File(dataSetFile.getParentFile().getAbsolutePath(),
                 dataSetName + ".db");
+
+        // a form's data can be imported in the background while it's being opened
+        synchronized (getLock(dbFile)) {
+            return doImportDataSetAndContinue(dataSetFile, dbFile);
+        }
+    }
+
+    private boolean doImportDataSetAndContinue(File dataSetFile, File dbFile) {
         if (dbFile.exists()) {
             // Determine if we need to reimport
             if (ExternalSQLiteOpenHelper.shouldUpdateDBforDataSet(dbFile, dataSetFile)) {
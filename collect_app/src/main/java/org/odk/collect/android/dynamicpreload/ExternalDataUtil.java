@@ -61,6 +61,12 @@ public final class ExternalDataUtil {
 
     public static final String EXTERNAL_DATA_TABLE_NAME = "externalData";
     public static final String EXTERNAL_METADATA_TABLE_NAME = "externalMetadata";
+    public static final String EXTERNAL_DATA_FTS_TABLE_NAME = "externalData_fts";
+    /**
+     * Columns with headers ending in this get a full-text index that search() uses for
+     * "contains" and "startsWith" queries.
+     */
+    public static final String FULL_TEXT_COLUMN_SUFFIX = "_search";
     public static final String SORT_COLUMN_NAME = "c_sortby";
     public static final String COLUMN_DATASET_FILENAME = "dataSetFilename";
     public static final String COLUMN_MD5_HASH = "md5Hash";
@@ -25,6 +25,8 @@ import android.content.res.Resources;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
 
 import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
@@ -62,6 +64,7 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
     private static final char DELIMITING_CHAR = ",".charAt(0);
     private static final char QUOTE_CHAR = "\"".charAt(0);
     private static final char ESCAPE_CHAR = "\0".charAt(0);
+    private static final int PROGRESS_INTERVAL = 1000;
 
     private File dataSetFile;
     private ExternalDataReader externalDataReader;
@@ -199,54 +202,81 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
                 }
             }
 
-            // populate the database
-            String[] row = reader.readNext();
-            int rowCount = 0;
-            while (row != null && !isCancelled()) {
-                // SCTO-894 - first we should make sure that this is not an empty line
-                if (!ExternalDataUtil.containsAnyData(row)) {
-                    // yes, that is an empty row, ignore it
-                    row = reader.readNext();
-                    continue;
-                }
-
-                // SCTO-894 - then check if the row contains less values than the header
-                // we should not ignore the existing values in the row,
-                // we will just fill up the rest with empty strings
-                if (row.length < headerRow.length) {
-                    row = ExternalDataUtil.fillUpNullValues(row, headerRow);
+            List<String> fullTextColumns = new ArrayList<>();
+            for (String header : headerRow) {
+                if (header.trim().endsWith(ExternalDataUtil.FULL_TEXT_COLUMN_SUFFIX)) {
+                    fullTextColumns.add(ExternalDataUtil.toSafeColumnName(header, columnNamesCache));
                 }
+            }
 
-                ContentValues values = new ContentValues();
-                if (!sortColumnAlreadyPresent) {
-                    values.put(ExternalDataUtil.SORT_COLUMN_NAME, rowCount + 1);
+            // populate the database with a single compiled insert rather than building
+            // ContentValues (and safe column names) for every row
+            String[] safeColumnNames = new String[headerRow.length];
+            List<String> insertColumns = new ArrayList<>();
+            for (int i = 0; i < headerRow.length; i++) {
+                String columnName = headerRow[i].trim();
+                if (columnName.length() != 0) {
+                    safeColumnNames[i] = ExternalDataUtil.toSafeColumnName(columnName, columnNamesCache);
+                    insertColumns.add(safeColumnNames[i]);
                 }
+            }
+            if (!sortColumnAlreadyPresent) {
+                insertColumns.add(ExternalDataUtil.SORT_COLUMN_NAME);
+            }
 
-                for (int i = 0; i < row.length && i < headerRow.length; i++) {
-                    String columnName = headerRow[i].trim();
-                    String columnValue = row[i];
-                    if (columnName.length() == 0) {
+            SQLiteStatement insert = db.compileStatement(createInsertSQL(tableName, insertColumns));
+            try {
+                String[] row = reader.readNext();
+                int rowCount = 0;
+                while (row != null && !isCancelled()) {
+                    // SCTO-894 - first we should make sure that this is not an empty line
+                    if (!ExternalDataUtil.containsAnyData(row)) {
+                        // yes, that is an empty row, ignore it
+                        row = reader.readNext();
                         continue;
                     }
-                    String safeColumnName = ExternalDataUtil.toSafeColumnName(columnName,
-                            columnNamesCache);
-                    if (safeColumnName.equals(ExternalDataUtil.SORT_COLUMN_NAME)) {
-                        try {
-                            values.put(safeColumnName, Double.parseDouble(columnValue));
-                        } catch (NumberFormatException e) {
-                            throw new ExternalDataException(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.ext_sortBy_numeric_error, columnValue));
+
+                    // SCTO-894 - then check if the row contains less values than the header
+                    // we should not ignore the existing values in the row,
+                    // we will just fill up the rest with empty strings
+                    if (row.length < headerRow.length) {
+                        row = ExternalDataUtil.fillUpNullValues(row, headerRow);
+                    }
+
+                    insert.clearBindings();
+                    int index = 1;
+                    for (int i = 0; i < headerRow.length; i++) {
+                        String safeColumnName = safeColumnNames[i];
+                        if (safeColumnName == null) {
+                            continue;
                         }
-                    } else {
-                        values.put(safeColumnName, columnValue);
+
+                        String columnValue = row[i];
+                        if (safeColumnName.equals(ExternalDataUtil.SORT_COLUMN_NAME)) {
+                            try {
+                                insert.bindDouble(index, Double.parseDouble(columnValue));
+                            } catch (NumberFormatException e) {
+                                throw new ExternalDataException(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.ext_sortBy_numeric_error, columnValue));
+                            }
+                        } else if (columnValue != null) {
+                            insert.bindString(index, columnValue);
+                        }
+                        index++;
+                    }
+                    if (!sortColumnAlreadyPresent) {
+                        insert.bindLong(index, rowCount + 1);
+                    }
+
+                    insert.executeInsert();
+                    row = reader.readNext();
+                    rowCount++;
+                    if (rowCount % PROGRESS_INTERVAL == 0) {
+                        onProgress(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.ext_import_progress_message,
+                                dataSetFile.getName(), " (" + rowCount + " records so far)"));
                     }
                 }
-                db.insertOrThrow(tableName, null, values);
-                row = reader.readNext();
-                rowCount++;
-                if (rowCount % 100 == 0) {
-                    onProgress(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.ext_import_progress_message,
-                            dataSetFile.getName(), " (" + rowCount + " records so far)"));
-                }
+            } finally {
+                insert.close();
             }
 
             if (isCancelled()) {
@@ -262,6 +292,10 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
                     db.execSQL(createIndexCommand);
                 }
 
+                if (!fullTextColumns.isEmpty()) {
+                    createFullTextIndex(db, tableName, fullTextColumns);
+                }
+
                 Timber.w("Read all data from %s", dataSetFile.toString());
                 onProgress(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.ext_import_completed_message));
             }
@@ -276,6 +310,35 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
         }
     }
 
+    /**
+     * Creates an FTS4 table over the passed columns that uses the data table as its content (so
+     * the data isn't stored twice) and populates it in one go.
+     */
+    private void createFullTextIndex(SQLiteDatabase db, String tableName, List<String> columns) {
+        String ftsTableName = ExternalDataUtil.EXTERNAL_DATA_FTS_TABLE_NAME;
+        String createSQL = "CREATE VIRTUAL TABLE IF NOT EXISTS " + ftsTableName + " USING fts4(content=\""
+                + tableName + "\", " + TextUtils.join(", ", columns) + ");";
+        Timber.w(createSQL);
+        db.execSQL(createSQL);
+        db.execSQL("INSERT INTO " + ftsTableName + "(" + ftsTableName + ") VALUES('rebuild');");
+    }
+
+    private static String createInsertSQL(String tableName, List<String> columns) {
+        StringBuilder sb = new StringBuilder()
+                .append("INSERT INTO ")
+                .append(tableName)
+                .append(" (")
+                .append(TextUtils.join(", ", columns))
+                .append(") VALUES (");
+        for (int i = 0; i < columns.size(); i++) {
+            if (i != 0) {
+                sb.append(", ");
+            }
+            sb.append('?');
+        }
+        return sb.append(");").toString();
+    }
+
     protected boolean isCancelled() {
         return isCancelled.get();
     }
@@ -318,7 +381,11 @@ public class ExternalSQLiteOpenHelper extends SQLiteOpenHelper {
 
     static boolean shouldUpdateDBforDataSet(File dbFile, File dataSetFile) {
         SQLiteDatabase db = SQLiteDatabase.openDatabase(dbFile.getPath(), null, SQLiteDatabase.OPEN_READONLY);
-        return shouldUpdateDBforDataSet(db, ExternalDataUtil.EXTERNAL_DATA_TABLE_NAME, ExternalDataUtil.EXTERNAL_METADATA_TABLE_NAME, dataSetFile);
+        try {
+            return shouldUpdateDBforDataSet(db, ExternalDataUtil.EXTERNAL_DATA_TABLE_NAME, ExternalDataUtil.EXTERNAL_METADATA_TABLE_NAME, dataSetFile);
+        } finally {
+            db.close();
+        }
     }
 
     static boolean shouldUpdateDBforDataSet(SQLiteDatabase db, String dataTableName, String metadataTableName, File dataSetFile) {
@@ -22,6 +22,8 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 
+import androidx.annotation.Nullable;
+
 import org.javarosa.core.model.condition.EvaluationContext;
 import org.javarosa.xpath.expr.XPathFuncExpr;
 import org.jetbrains.annotations.NotNull;
@@ -29,8 +31,11 @@ import org.odk.collect.android.dynamicpreload.ExternalDataManager;
 import org.odk.collect.android.dynamicpreload.ExternalDataUtil;
 import org.odk.collect.android.dynamicpreload.ExternalSQLiteOpenHelper;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import timber.log.Timber;
 
@@ -43,6 +48,10 @@ public class ExternalDataHandlerPull extends ExternalDataHandlerBase {
 
     public static final String HANDLER_NAME = "pulldata";
 
+    private static final int MAX_LOAD_ALL_ROWS = 20_000;
+
+    private final PullDataCache cache = new PullDataCache();
+
     public ExternalDataHandlerPull(ExternalDataManager externalDataManager) {
         super(externalDataManager);
     }
@@ -83,7 +92,6 @@ public class ExternalDataHandlerPull extends ExternalDataHandlerBase {
         // SCTO-545
         dataSetName = normalize(dataSetName);
 
-        Cursor c = null;
         try {
             ExternalSQLiteOpenHelper sqLiteOpenHelper = getExternalDataManager().getDatabase(
                     dataSetName, false);
@@ -92,27 +100,91 @@ public class ExternalDataHandlerPull extends ExternalDataHandlerBase {
             }
 
             SQLiteDatabase db = sqLiteOpenHelper.getReadableDatabase();
-            String[] columns = {ExternalDataUtil.toSafeColumnName(queriedColumn)};
-            String selection = ExternalDataUtil.toSafeColumnName(referenceColumn) + "=?";
-            String[] selectionArgs = {referenceValue};
+            String safeQueriedColumn = ExternalDataUtil.toSafeColumnName(queriedColumn);
+            String safeReferenceColumn = ExternalDataUtil.toSafeColumnName(referenceColumn);
 
-            c = db.query(ExternalDataUtil.EXTERNAL_DATA_TABLE_NAME, columns, selection,
-                    selectionArgs, null, null, null);
-            if (c.getCount() > 0) {
-                c.moveToFirst();
-                return ExternalDataUtil.nullSafe(c.getString(0));
-            } else {
+            PullDataCache.Lookups lookups = cache.getLookups(new File(db.getPath()), safeQueriedColumn,
+                    safeReferenceColumn);
+
+            String cachedValue = lookups.get(referenceValue);
+            if (cachedValue != null) {
+                return cachedValue;
+            }
+
+            if (lookups.shouldLoadAll()) {
+                loadAll(db, safeQueriedColumn, safeReferenceColumn, lookups);
+
+                cachedValue = lookups.get(referenceValue);
+                if (cachedValue != null) {
+                    return cachedValue;
+                }
+            }
+
+            String value = query(db, safeQueriedColumn, safeReferenceColumn, referenceValue);
+            if (value == null) {
                 Timber.i("Could not find a value in %s where the column %s has the value %s",
                         queriedColumn, referenceColumn, referenceValue);
-                return "";
+                value = "";
             }
+
+            lookups.put(referenceValue, value);
+            return value;
         } catch (SQLiteException e) {
             Timber.i(e);
             return "";
-        } finally {
-            if (c != null) {
-                c.close();
+        }
+    }
+
+    @Nullable
+    private String query(SQLiteDatabase db, String queriedColumn, String referenceColumn, String referenceValue) {
+        String[] columns = {queriedColumn};
+        String selection = referenceColumn + "=?";
+        String[] selectionArgs = {referenceValue};
+
+        try (Cursor c = db.query(ExternalDataUtil.EXTERNAL_DATA_TABLE_NAME, columns, selection,
+                selectionArgs, null, null, null)) {
+            if (c.getCount() > 0) {
+                c.moveToFirst();
+                return ExternalDataUtil.nullSafe(c.getString(0));
+            } else {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Loads the queried column for every value of the reference column in one query rather than
+     * querying each value (like the rows of a repeat) separately. Data sets that are too large to
+     * keep in memory are still looked up one value at a time.
+     */
+    private void loadAll(SQLiteDatabase db, String queriedColumn, String referenceColumn, PullDataCache.Lookups lookups) {
+        if (referenceColumn.equals(ExternalDataUtil.SORT_COLUMN_NAME)) {
+            // numeric so doesn't compare like the text columns
+            lookups.loadAllFailed();
+            return;
+        }
+
+        String[] columns = {referenceColumn, queriedColumn};
+        try (Cursor c = db.query(ExternalDataUtil.EXTERNAL_DATA_TABLE_NAME, columns, null, null,
+                null, null, "rowid", String.valueOf(MAX_LOAD_ALL_ROWS + 1))) {
+            if (c.getCount() > MAX_LOAD_ALL_ROWS) {
+                lookups.loadAllFailed();
+                return;
+            }
+
+            Map<String, String> values = new HashMap<>();
+            while (c.moveToNext()) {
+                String reference = c.getString(0);
+                if (reference != null) {
+                    // a query would return the first matching row
+                    String key = PullDataCache.Lookups.foldCase(reference);
+                    if (!values.containsKey(key)) {
+                        values.put(key, ExternalDataUtil.nullSafe(c.getString(1)));
+                    }
+                }
             }
+
+            lookups.putAll(values);
         }
     }
 }
@@ -35,10 +35,13 @@ import org.odk.collect.android.dynamicpreload.ExternalSelectChoice;
 import org.odk.collect.android.exception.ExternalDataException;
 import org.odk.collect.shared.strings.StringUtils;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import timber.log.Timber;
@@ -56,6 +59,11 @@ public class ExternalDataHandlerSearch extends ExternalDataHandlerBase {
     private final String valueColumn;
     private final String imageColumn;
 
+    /**
+     * The columns of each database's full-text index keyed by the database's path.
+     */
+    private final Map<String, FullTextColumns> fullTextColumns = new HashMap<>();
+
     public ExternalDataHandlerSearch(ExternalDataManager externalDataManager, String displayColumns,
             String valueColumn, String imageColumn) {
         super(externalDataManager);
@@ -160,18 +168,33 @@ public class ExternalDataHandlerSearch extends ExternalDataHandlerBase {
             String selection;
             String[] selectionArgs;
 
-            if (searchRows && useFilter) {
-                selection = "( " + createLikeExpression(queriedColumns) + " ) AND "
-                        + ExternalDataUtil.toSafeColumnName(filterColumn) + "=? ";
+            if (searchRows) {
+                String likeExpression = createLikeExpression(queriedColumns);
                 String[] likeArgs = externalDataSearchType.constructLikeArguments(queriedValue,
                         queriedColumns.size());
-                selectionArgs = new String[likeArgs.length + 1];
-                System.arraycopy(likeArgs, 0, selectionArgs, 0, likeArgs.length);
-                selectionArgs[selectionArgs.length - 1] = filterValue;
-            } else if (searchRows) {
-                selection = createLikeExpression(queriedColumns);
-                selectionArgs = externalDataSearchType.constructLikeArguments(queriedValue,
-                        queriedColumns.size());
+
+                String[] fullTextArgs = null;
+                if (externalDataSearchType.canUseFullTextIndex()
+                        && getFullTextColumns(db).containsAll(queriedColumns)) {
+                    fullTextArgs = constructFullTextArguments(queriedValue, queriedColumns);
+                }
+
+                if (fullTextArgs != null) {
+                    // the index only finds rows with words starting with the queried ones so
+                    // LIKE still decides what actually matches
+                    selection = "( " + createFullTextExpression(queriedColumns) + " ) AND ( "
+                            + likeExpression + " )";
+                    selectionArgs = concat(fullTextArgs, likeArgs);
+                } else {
+                    selection = likeExpression;
+                    selectionArgs = likeArgs;
+                }
+
+                if (useFilter) {
+                    selection = "( " + selection + " ) AND "
+                            + ExternalDataUtil.toSafeColumnName(filterColumn) + "=? ";
+                    selectionArgs = concat(selectionArgs, new String[]{filterValue});
+                }
             } else if (useFilter) {
                 selection = ExternalDataUtil.toSafeColumnName(filterColumn) + "=? ";
                 selectionArgs = new String[]{filterValue};
@@ -253,6 +276,100 @@ public class ExternalDataHandlerSearch extends ExternalDataHandlerBase {
         return sb.toString();
     }
 
+    protected String createFullTextExpression(List<String> queriedColumns) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < queriedColumns.size(); i++) {
+            if (sb.length() > 0) {
+                sb.append(" OR ");
+            }
+            sb.append("rowid IN (SELECT docid FROM ")
+                    .append(ExternalDataUtil.EXTERNAL_DATA_FTS_TABLE_NAME)
+                    .append(" WHERE ")
+                    .append(ExternalDataUtil.EXTERNAL_DATA_FTS_TABLE_NAME)
+                    .append(" MATCH ?) ");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Builds a prefix query for each column (like {@code c_name_search:red* c_name_search:app*})
+     * from the words in the queried value. Words are split the same way as SQLite's "simple"
+     * tokenizer splits them when indexing.
+     *
+     * @return null if the queried value doesn't contain any words
+     */
+    protected String[] constructFullTextArguments(String queriedValue, List<String> queriedColumns) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= queriedValue.length(); i++) {
+            char c = i < queriedValue.length() ? queriedValue.charAt(i) : ' ';
+            if (c >= 128) {
+                word.append(c);
+            } else if (Character.isLetterOrDigit(c)) {
+                // the simple tokenizer only folds the case of ASCII characters
+                word.append(Character.toLowerCase(c));
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+
+        if (words.isEmpty()) {
+            return null;
+        }
+
+        String[] args = new String[queriedColumns.size()];
+        for (int i = 0; i < queriedColumns.size(); i++) {
+            StringBuilder query = new StringBuilder();
+            for (String queriedWord : words) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                query.append(queriedColumns.get(i)).append(':').append(queriedWord).append('*');
+            }
+            args[i] = query.toString();
+        }
+        return args;
+    }
+
+    private synchronized Set<String> getFullTextColumns(SQLiteDatabase db) {
+        // the database is only ever written to when its CSV is imported again
+        long stamp = new File(db.getPath()).lastModified();
+
+        FullTextColumns cached = fullTextColumns.get(db.getPath());
+        if (cached != null && cached.stamp == stamp) {
+            return cached.columns;
+        }
+
+        Set<String> columns = new HashSet<>();
+        try (Cursor cursor = db.rawQuery("PRAGMA table_info(" + ExternalDataUtil.EXTERNAL_DATA_FTS_TABLE_NAME + ")", null)) {
+            int nameColumn = cursor.getColumnIndex("name");
+            while (cursor.moveToNext()) {
+                columns.add(cursor.getString(nameColumn));
+            }
+        }
+
+        fullTextColumns.put(db.getPath(), new FullTextColumns(stamp, columns));
+        return columns;
+    }
+
+    private static String[] concat(String[] first, String[] second) {
+        String[] result = new String[first.length + second.length];
+        System.arraycopy(first, 0, result, 0, first.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static class FullTextColumns {
+        final long stamp;
+        final Set<String> columns;
+
+        FullTextColumns(long stamp, Set<String> columns) {
+            this.stamp = stamp;
+            this.columns = columns;
+        }
+    }
+
     /**
      * So here are examples of labels with one, two, and three columns:
      * <p/>
@@ -44,6 +44,11 @@ enum ExternalDataSearchType {
         protected String getSingleLikeArgument(String queriedValue) {
             return queriedValue + '%';
         }
+
+        @Override
+        public boolean canUseFullTextIndex() {
+            return true;
+        }
     },
 
     ENDS("endsWith") {
@@ -85,5 +90,14 @@ enum ExternalDataSearchType {
         return args;
     }
 
+    /**
+     * Whether matches can be narrowed down with a full-text index (which only matches whole words
+     * or the start of them) before checking them with LIKE. This isn't the case for "contains" as
+     * the queried value can start in the middle of a word.
+     */
+    public boolean canUseFullTextIndex() {
+        return false;
+    }
+
     protected abstract String getSingleLikeArgument(String queriedValue);
 }
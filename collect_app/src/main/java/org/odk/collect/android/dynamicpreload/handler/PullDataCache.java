@@ -0,0 +1,106 @@
+package org.odk.collect.android.dynamicpreload.handler;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers the results of pulldata() lookups for a form session so that recalculating a form
+ * doesn't query the same values again. Results for a data set are dropped if its database file
+ * changes (when the CSV is imported again).
+ */
+class PullDataCache {
+
+    private final Map<String, DataSet> dataSets = new HashMap<>();
+
+    synchronized Lookups getLookups(File databaseFile, String queriedColumn, String referenceColumn) {
+        long stamp = databaseFile.lastModified();
+
+        DataSet dataSet = dataSets.get(databaseFile.getAbsolutePath());
+        if (dataSet == null || dataSet.stamp != stamp) {
+            dataSet = new DataSet(stamp);
+            dataSets.put(databaseFile.getAbsolutePath(), dataSet);
+        }
+
+        String key = queriedColumn + '\0' + referenceColumn;
+        Lookups lookups = dataSet.lookups.get(key);
+        if (lookups == null) {
+            lookups = new Lookups();
+            dataSet.lookups.put(key, lookups);
+        }
+
+        return lookups;
+    }
+
+    private static class DataSet {
+        final long stamp;
+        final Map<String, Lookups> lookups = new HashMap<>();
+
+        DataSet(long stamp) {
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * The values of a queried column for values of a reference column. Once enough different
+     * values have been looked up (which happens when pulldata() is used in a repeat), all of the
+     * column's values are loaded at once and the lookups are "complete".
+     */
+    static class Lookups {
+
+        private static final int BATCH_THRESHOLD = 16;
+
+        private Map<String, String> values = new HashMap<>();
+        private boolean complete;
+        private boolean batchFailed;
+
+        @Nullable
+        synchronized String get(String referenceValue) {
+            if (complete) {
+                String value = values.get(foldCase(referenceValue));
+                return value != null ? value : "";
+            } else {
+                return values.get(referenceValue);
+            }
+        }
+
+        synchronized void put(String referenceValue, String value) {
+            if (!complete) {
+                values.put(referenceValue, value);
+            }
+        }
+
+        synchronized boolean shouldLoadAll() {
+            return !complete && !batchFailed && values.size() >= BATCH_THRESHOLD;
+        }
+
+        /**
+         * @param allValues the first queried value for every reference value with keys folded
+         *                  with {@link #foldCase(String)}
+         */
+        synchronized void putAll(Map<String, String> allValues) {
+            values = allValues;
+            complete = true;
+        }
+
+        synchronized void loadAllFailed() {
+            batchFailed = true;
+        }
+
+        /**
+         * Matches the "nocase" collation used for external data columns, which only folds ASCII.
+         */
+        static String foldCase(String value) {
+            char[] chars = value.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] >= 'A' && chars[i] <= 'Z') {
+                    chars[i] = (char) (chars[i] + ('a' - 'A'));
+                }
+            }
+
+            return new String(chars);
+        }
+    }
+}
@@ -18,14 +18,17 @@ package org.odk.collect.android.fastexternalitemset;
 
 import android.database.Cursor;
 import android.database.sqlite.SQLiteException;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import org.javarosa.core.model.FormDef;
 import org.javarosa.core.model.SelectChoice;
 import org.javarosa.core.model.condition.EvaluationContext;
 import org.javarosa.core.model.instance.TreeElement;
 import org.javarosa.form.api.FormEntryPrompt;
-import org.javarosa.xpath.XPathNodeset;
-import org.javarosa.xpath.expr.XPathExpression;
 import org.javarosa.xpath.parser.XPathSyntaxException;
 import org.odk.collect.android.javarosawrapper.FormController;
 
@@ -37,7 +40,8 @@ import java.util.List;
 import timber.log.Timber;
 
 public class ItemsetDao {
-    private static final String QUOTATION_MARK = "\"";
+    private static final LruCache<String, ItemsetQuery> QUERIES = new LruCache<>(64);
+    private static final LruCache<String, List<String[]>> RESULTS = new LruCache<>(32);
 
     private final ItemsetDbAdapter adapter;
 
@@ -85,14 +89,39 @@ public class ItemsetDao {
         return itemLabel;
     }
 
+    /**
+     * Loads the items for a question with a {@code query} attribute. The query is only compiled
+     * once and the items for each set of arguments are cached, so re-rendering a cascading
+     * select whose dependencies haven't changed doesn't hit the database.
+     */
     public List<SelectChoice> getItems(FormEntryPrompt formEntryPrompt, XPathParseTool pathParseTool, FormController formController) throws FileNotFoundException, XPathSyntaxException {
-        String nodesetString = getNodesetString(formEntryPrompt);
+        if (formController == null) {
+            Timber.w("Can't instantiate ItemsetWidget with a null FormController.");
+            return null;
+        }
 
-        List<String> arguments = new ArrayList<>();
-        String selectionString = getSelectionStringAndPopulateArguments(getQueryString(nodesetString), arguments);
+        ItemsetQuery query = getQuery(getNodesetString(formEntryPrompt), pathParseTool);
+
+        FormDef form = formController.getFormDef();
+        TreeElement treeElement = form.getMainInstance().resolveReference(
+                formEntryPrompt.getIndex().getReference());
+        EvaluationContext ec = new EvaluationContext(form.getEvaluationContext(),
+                treeElement.getRef());
+        String[] selectionArgs = query.evaluateSelectionArgs(form.getMainInstance(), ec);
+
+        if (selectionArgs == null) {
+            return null;
+        }
 
-        String[] selectionArgs = getSelectionArgs(arguments, nodesetString, formController, pathParseTool, formEntryPrompt);
-        return selectionArgs == null ? null : getItemsFromDatabase(selectionString, selectionArgs, formController, adapter);
+        // try to get the value associated with the label:lang
+        // string if that doen't exist, then just use label
+        String lang = "";
+        if (formController.getLanguages() != null && formController.getLanguages().length > 0) {
+            lang = formController.getLanguage();
+        }
+
+        File itemsetFile = getItemsetFile(formController.getMediaFolder().getAbsolutePath());
+        return getItemsFromDatabase(itemsetFile, lang, query.getSelection(), selectionArgs);
     }
 
     private String getNodesetString(FormEntryPrompt formEntryPrompt) {
@@ -102,174 +131,83 @@ public class ItemsetDao {
         return formEntryPrompt.getQuestion().getAdditionalAttribute(null, "query");
     }
 
-    private String getQueryString(String nodesetStr) {
-        // isolate the string between between the [ ] characters
-        return nodesetStr.substring(nodesetStr.indexOf('[') + 1, nodesetStr.lastIndexOf(']'));
-    }
-
-    private String getSelectionStringAndPopulateArguments(String queryString, List<String> arguments) {
-        StringBuilder selectionString = new StringBuilder();
-        // add the list name as the first argument, which will always be there
-        selectionString.append("list_name=?");
-
-        // check to see if there are any arguments
-        if (queryString.indexOf('=') != -1) {
-            selectionString.append(" and ");
+    private static ItemsetQuery getQuery(String nodesetString, XPathParseTool pathParseTool) throws XPathSyntaxException {
+        ItemsetQuery query = QUERIES.get(nodesetString);
+        if (query == null) {
+            query = ItemsetQuery.compile(nodesetString, pathParseTool);
+            QUERIES.put(nodesetString, query);
         }
 
-        // can't just split on 'and' or 'or' because they have different
-        // behavior, so loop through and break them off until we don't have any more
-        // must include the spaces in indexOf so we don't match words like "land"
-        int andIndex;
-        int orIndex = -1;
-
-        while ((andIndex = queryString.indexOf(" and ")) != -1 || (orIndex = queryString.indexOf(" or ")) != -1) {
-            if (andIndex != -1) {
-                String[] pair = queryString
-                        .substring(0, andIndex)
-                        .split("=");
-
-                if (pair.length == 2) {
-                    selectionString
-                            .append(QUOTATION_MARK)
-                            .append(pair[0].trim())
-                            .append(QUOTATION_MARK)
-                            .append("=? and ");
-
-                    arguments
-                            .add(pair[1]
-                                    .trim());
-                }
-                // move string forward to after " and "
-                queryString = queryString.substring(andIndex + 5, queryString.length());
-            } else {
-                String subString = queryString.substring(0, orIndex);
-                String[] pair = subString.split("=");
-
-                if (pair.length == 2) {
-                    selectionString
-                            .append(QUOTATION_MARK)
-                            .append(pair[0].trim())
-                            .append(QUOTATION_MARK)
-                            .append("=? or ");
-                    arguments.add(pair[1].trim());
-                }
-                // move string forward to after " or "
-                queryString = queryString.substring(orIndex + 4, queryString.length());
-            }
-        }
-
-        // parse the last segment (or only segment if there are no 'and' or 'or' clauses
-        String[] pair = queryString.split("=");
-        if (pair.length == 2) {
-            selectionString
-                    .append(QUOTATION_MARK)
-                    .append(pair[0].trim())
-                    .append(QUOTATION_MARK)
-                    .append("=?");
-            arguments.add(pair[1].trim());
-        }
-        return selectionString.toString();
+        return query;
     }
 
-    @SuppressWarnings("PMD.AvoidThrowingNewInstanceOfSameException")
-    private String[] getSelectionArgs(List<String> arguments, String nodesetStr, FormController formController, XPathParseTool pathParseTool, FormEntryPrompt formEntryPrompt) throws XPathSyntaxException {
-        // +1 is for the list_name
-        String[] selectionArgs = new String[arguments.size() + 1];
-
-        // parse out the list name, between the ''
-        String listName = nodesetStr.substring(nodesetStr.indexOf('\'') + 1, nodesetStr.lastIndexOf('\''));
+    @VisibleForTesting
+    List<SelectChoice> getItemsFromDatabase(File itemsetFile, String lang, String selection, String[] selectionArgs) throws FileNotFoundException {
+        if (!itemsetFile.exists()) {
+            throw new FileNotFoundException(itemsetFile.getAbsolutePath());
+        }
 
-        selectionArgs[0] = listName; // first argument is always listname
+        // the itemsets table is only ever replaced when itemsets.csv changes
+        String resultsKey = itemsetFile.getAbsolutePath() + '\0' + itemsetFile.lastModified() + '\0' + itemsetFile.length()
+                + '\0' + lang + '\0' + selection + '\0' + TextUtils.join("\0", selectionArgs);
 
-        if (formController == null) {
-            Timber.w("Can't instantiate ItemsetWidget with a null FormController.");
-            return null;
-        }
+        List<String[]> rows = RESULTS.get(resultsKey);
 
-        // loop through the arguments, evaluate any expressions and build the query string for the DB
-        for (int i = 0; i < arguments.size(); i++) {
-            XPathExpression xpr;
-            try {
-                xpr = pathParseTool.parseXPath(arguments.get(i));
-            } catch (XPathSyntaxException e) {
-                throw new XPathSyntaxException(arguments.get(i));
+        if (rows == null) {
+            rows = queryItems(itemsetFile, selection, selectionArgs, lang);
+            if (rows == null) {
+                return new ArrayList<>();
             }
 
-            if (xpr != null) {
-                FormDef form = formController.getFormDef();
-                TreeElement treeElement = form.getMainInstance().resolveReference(
-                        formEntryPrompt.getIndex().getReference());
-                EvaluationContext ec = new EvaluationContext(form.getEvaluationContext(),
-                        treeElement.getRef());
-                Object value = xpr.eval(form.getMainInstance(), ec);
-
-                if (value == null) {
-                    return null;
-                } else {
-                    if (value instanceof XPathNodeset) {
-                        value = ((XPathNodeset) value).getValAt(0);
-                    }
-                    selectionArgs[i + 1] = value.toString();
-                }
-            }
+            RESULTS.put(resultsKey, rows);
         }
-        return selectionArgs;
-    }
 
-    private List<SelectChoice> getItemsFromDatabase(String selection, String[] selectionArgs, FormController formController, ItemsetDbAdapter adapter) throws FileNotFoundException {
-        List<SelectChoice> items = new ArrayList<>();
-
-        File itemsetFile = getItemsetFile(formController.getMediaFolder().getAbsolutePath());
-
-        if (itemsetFile.exists()) {
-            adapter.open();
+        // SelectChoice is mutable so each call gets its own
+        List<SelectChoice> items = new ArrayList<>(rows.size());
+        for (int index = 0; index < rows.size(); index++) {
+            String[] row = rows.get(index);
+            SelectChoice selectChoice = new SelectChoice(null, row[0], row[1], false);
+            selectChoice.setIndex(index);
+            items.add(selectChoice);
+        }
 
-            // name of the itemset table for this form
-            String pathHash = ItemsetDbAdapter.getMd5FromString(itemsetFile.getAbsolutePath());
-            try {
-                Cursor c = adapter.query(pathHash, selection, selectionArgs);
-                if (c != null) {
-                    c.move(-1);
-                    int index = 0;
-                    while (c.moveToNext()) {
-                        String label;
-                        String val;
-
-                        // try to get the value associated with the label:lang
-                        // string if that doen't exist, then just use label
-                        String lang = "";
-                        if (formController.getLanguages() != null && formController.getLanguages().length > 0) {
-                            lang = formController.getLanguage();
-                        }
+        return items;
+    }
 
-                        // apparently you only need the double quotes in the
-                        // column name when creating the column with a : included
-                        String labelLang = "label" + "::" + lang;
-                        int langCol = c.getColumnIndex(labelLang);
-                        if (langCol == -1) {
-                            label = c.getString(c.getColumnIndex("label"));
-                        } else {
-                            label = c.getString(c.getColumnIndex(labelLang));
-                        }
+    /**
+     * @return {label, value} pairs for the matching items or null if the itemsets table couldn't
+     * be queried
+     */
+    @Nullable
+    private List<String[]> queryItems(File itemsetFile, String selection, String[] selectionArgs, String lang) {
+        adapter.open();
+
+        // name of the itemset table for this form
+        String pathHash = ItemsetDbAdapter.getMd5FromString(itemsetFile.getAbsolutePath());
+        try (Cursor c = adapter.query(pathHash, selection, selectionArgs)) {
+            List<String[]> rows = new ArrayList<>();
+            if (c != null) {
+                // apparently you only need the double quotes in the
+                // column name when creating the column with a : included
+                int labelCol = c.getColumnIndex("label" + "::" + lang);
+                if (labelCol == -1) {
+                    labelCol = c.getColumnIndex("label");
+                }
+                int nameCol = c.getColumnIndex("name");
 
-                        val = c.getString(c.getColumnIndex("name"));
-                        SelectChoice selectChoice = new SelectChoice(null, label, val, false);
-                        selectChoice.setIndex(index);
-                        items.add(selectChoice);
-                        index++;
-                    }
-                    c.close();
+                c.move(-1);
+                while (c.moveToNext()) {
+                    rows.add(new String[]{c.getString(labelCol), c.getString(nameCol)});
                 }
-            } catch (SQLiteException e) {
-                Timber.i(e);
-            } finally {
-                adapter.close();
             }
-        } else {
-            throw new FileNotFoundException(itemsetFile.getAbsolutePath());
+
+            return rows;
+        } catch (SQLiteException e) {
+            Timber.i(e);
+            return null;
+        } finally {
+            adapter.close();
         }
-        return items;
     }
 
     public File getItemsetFile(String mediaFolderPath) {
@@ -7,6 +7,7 @@ import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 
 import org.odk.collect.android.application.Collect;
 import org.odk.collect.db.sqlite.AltDatabasePathContext;
@@ -23,6 +24,9 @@ import timber.log.Timber;
 
 public class ItemsetDbAdapter implements Closeable {
 
+    private final String metadataDir;
+    private final String formsDir;
+
     private DatabaseHelper dbHelper;
     private SQLiteDatabase db;
 
@@ -44,8 +48,8 @@ public class ItemsetDbAdapter implements Closeable {
      * This class helps open, create, and upgrade the database file.
      */
     private static class DatabaseHelper extends SQLiteOpenHelper {
-        DatabaseHelper() {
-            super(new AltDatabasePathContext(new StoragePathProvider().getOdkDirPath(StorageSubdirectory.METADATA), Collect.getInstance()), DATABASE_NAME, null, DATABASE_VERSION);
+        DatabaseHelper(String metadataDir) {
+            super(new AltDatabasePathContext(metadataDir, Collect.getInstance()), DATABASE_NAME, null, DATABASE_VERSION);
         }
 
         @Override
@@ -75,6 +79,21 @@ public class ItemsetDbAdapter implements Closeable {
         }
     }
 
+    public ItemsetDbAdapter() {
+        this(
+                new StoragePathProvider().getOdkDirPath(StorageSubdirectory.METADATA),
+                new StoragePathProvider().getOdkDirPath(StorageSubdirectory.FORMS)
+        );
+    }
+
+    /**
+     * Creates an adapter for a specific project rather than the current one.
+     */
+    public ItemsetDbAdapter(String metadataDir, String formsDir) {
+        this.metadataDir = metadataDir;
+        this.formsDir = formsDir;
+    }
+
     /**
      * Open the database. If it cannot be opened, try to create a new instance
      * of the database. If it cannot be created, throw an exception to signal
@@ -85,7 +104,7 @@ public class ItemsetDbAdapter implements Closeable {
      * @throws SQLException if the database could be neither opened or created
      */
     public ItemsetDbAdapter open() throws SQLException {
-        dbHelper = new DatabaseHelper();
+        dbHelper = new DatabaseHelper(metadataDir);
         db = dbHelper.getWritableDatabase();
         return this;
     }
@@ -124,24 +143,39 @@ public class ItemsetDbAdapter implements Closeable {
 
         ContentValues cv = new ContentValues();
         cv.put(KEY_ITEMSET_HASH, formHash);
-        cv.put(KEY_PATH, PathUtils.getRelativeFilePath(new StoragePathProvider().getOdkDirPath(StorageSubdirectory.FORMS), path));
+        cv.put(KEY_PATH, PathUtils.getRelativeFilePath(formsDir, path));
         db.insert(ITEMSET_TABLE, null, cv);
 
         return true;
     }
 
-    public boolean addRow(String tableName, String[] columns, String[] newRow) {
-        ContentValues cv = new ContentValues();
+    /**
+     * Compiles an insert into the itemset table for {@code pathHash}. Values should be bound in
+     * the order of {@code columns}, skipping any empty column names (as {@link #createTable}
+     * does).
+     */
+    public SQLiteStatement compileInsert(String pathHash, String[] columns) {
+        StringBuilder names = new StringBuilder();
+        StringBuilder placeholders = new StringBuilder();
 
-        // rows don't necessarily use all the columns
-        // but a column is guaranteed to exist for a row (or else blow up)
-        for (int i = 0; i < newRow.length; i++) {
-            if (!columns[i].isEmpty()) {
-                cv.put("\"" + columns[i] + "\"", newRow[i]);
+        for (String column : columns) {
+            if (!column.isEmpty()) {
+                if (names.length() > 0) {
+                    names.append(", ");
+                    placeholders.append(", ");
+                }
+
+                names.append('"').append(column).append('"');
+                placeholders.append('?');
             }
         }
-        db.insert(DATABASE_TABLE + tableName, null, cv);
-        return true;
+
+        return db.compileStatement("INSERT INTO " + DATABASE_TABLE + pathHash + " (" + names + ") VALUES (" + placeholders + ");");
+    }
+
+    public void createIndex(String pathHash, String column, int columnPosition) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + DATABASE_TABLE + pathHash + "_" + columnPosition + "_index ON "
+                + DATABASE_TABLE + pathHash + " (\"" + column + "\");");
     }
 
     public void beginTransaction() {
@@ -152,6 +186,10 @@ public class ItemsetDbAdapter implements Closeable {
         db.execSQL("COMMIT");
     }
 
+    public void rollback() {
+        db.execSQL("ROLLBACK");
+    }
+
     public Cursor query(String hash, String selection, String[] selectionArgs) throws SQLException {
         return db.query(true, DATABASE_TABLE + hash, null, selection, selectionArgs,
                 null, null, null, null);
@@ -164,7 +202,7 @@ public class ItemsetDbAdapter implements Closeable {
         // and remove the entry from the itemsets table
         String where = KEY_PATH + "=?";
         String[] whereArgs = {
-                PathUtils.getRelativeFilePath(new StoragePathProvider().getOdkDirPath(StorageSubdirectory.FORMS), path)
+                PathUtils.getRelativeFilePath(formsDir, path)
         };
         db.delete(ITEMSET_TABLE, where, whereArgs);
     }
@@ -172,7 +210,7 @@ public class ItemsetDbAdapter implements Closeable {
     public Cursor getItemsets(String path) {
         String selection = KEY_PATH + "=?";
         String[] selectionArgs = {
-                PathUtils.getRelativeFilePath(new StoragePathProvider().getOdkDirPath(StorageSubdirectory.FORMS), path)
+                PathUtils.getRelativeFilePath(formsDir, path)
         };
         return db.query(ITEMSET_TABLE, null, selection, selectionArgs, null, null, null);
     }
@@ -186,12 +224,11 @@ public class ItemsetDbAdapter implements Closeable {
     }
 
     public void delete(String path) {
-        StoragePathProvider storagePathProvider = new StoragePathProvider();
         Cursor c = getItemsets(path);
         if (c != null) {
             if (c.getCount() == 1) {
                 c.moveToFirst();
-                String table = getMd5FromString(getAbsoluteFilePath(storagePathProvider.getOdkDirPath(StorageSubdirectory.FORMS), c.getString(c.getColumnIndex(KEY_PATH))));
+                String table = getMd5FromString(getAbsoluteFilePath(formsDir, c.getString(c.getColumnIndex(KEY_PATH))));
                 db.execSQL("DROP TABLE IF EXISTS " + DATABASE_TABLE + table);
             }
             c.close();
@@ -199,7 +236,7 @@ public class ItemsetDbAdapter implements Closeable {
 
         String where = KEY_PATH + "=?";
         String[] whereArgs = {
-                PathUtils.getRelativeFilePath(new StoragePathProvider().getOdkDirPath(StorageSubdirectory.FORMS), path)
+                PathUtils.getRelativeFilePath(formsDir, path)
         };
         db.delete(ITEMSET_TABLE, where, whereArgs);
     }
@@ -0,0 +1,117 @@
+package org.odk.collect.android.fastexternalitemset
+
+import org.javarosa.core.model.CompareToNodeExpression
+import org.javarosa.core.model.condition.EvaluationContext
+import org.javarosa.core.model.instance.DataInstance
+import org.javarosa.xpath.XPathNodeset
+import org.javarosa.xpath.expr.XPathBoolExpr
+import org.javarosa.xpath.expr.XPathEqExpr
+import org.javarosa.xpath.expr.XPathExpression
+import org.javarosa.xpath.expr.XPathFuncExpr
+import org.javarosa.xpath.expr.XPathPathExpr
+import org.javarosa.xpath.expr.XPathStep
+import org.javarosa.xpath.expr.XPathStringLiteral
+import org.javarosa.xpath.parser.XPathSyntaxException
+
+/**
+ * An itemset `query` attribute (like `instance('cities')/root/item[state=/data/state]`)
+ * compiled to a SQL selection over the itemsets table. The selection only depends on the
+ * query, so it can be reused, and only the arguments need to be evaluated each time the
+ * items are loaded.
+ */
+class ItemsetQuery private constructor(
+    val listName: String,
+    val selection: String,
+    private val arguments: List<CompareToNodeExpression>
+) {
+
+    /**
+     * Evaluates the arguments for [selection] (starting with the list name) or returns `null`
+     * if any of them don't have a value.
+     */
+    fun evaluateSelectionArgs(
+        mainInstance: DataInstance<*>,
+        evaluationContext: EvaluationContext
+    ): Array<String>? {
+        val selectionArgs = arrayOf(listName) + arguments.map {
+            var value = it.evalContextSide(mainInstance, evaluationContext) ?: return null
+            if (value is XPathNodeset) {
+                value = value.getValAt(0) ?: return null
+            }
+
+            value.toString()
+        }
+
+        return selectionArgs
+    }
+
+    companion object {
+
+        @JvmStatic
+        @Throws(XPathSyntaxException::class)
+        fun compile(query: String, parseTool: XPathParseTool): ItemsetQuery {
+            val expression = parseTool.parseXPath(query) as? XPathPathExpr
+                ?: throw XPathSyntaxException(query)
+
+            val listName = getListName(expression) ?: throw XPathSyntaxException(query)
+            val predicates = expression.steps.lastOrNull()?.predicates ?: emptyArray()
+
+            val arguments = mutableListOf<CompareToNodeExpression>()
+            val selection = StringBuilder("list_name=?")
+            predicates.forEach {
+                val predicateSelection = toSelection(it, arguments) ?: throw XPathSyntaxException(query)
+                selection.append(" and (").append(predicateSelection).append(")")
+            }
+
+            return ItemsetQuery(listName, selection.toString(), arguments)
+        }
+
+        private fun getListName(expression: XPathPathExpr): String? {
+            val instanceFunction = expression.filtExpr?.x as? XPathFuncExpr ?: return null
+            if (instanceFunction.id.toString() != "instance" || instanceFunction.args.size != 1) {
+                return null
+            }
+
+            return (instanceFunction.args[0] as? XPathStringLiteral)?.s
+        }
+
+        private fun toSelection(
+            predicate: XPathExpression,
+            arguments: MutableList<CompareToNodeExpression>
+        ): String? {
+            return when (predicate) {
+                is XPathBoolExpr -> {
+                    val selectionA = toSelection(predicate.a, arguments) ?: return null
+                    val selectionB = toSelection(predicate.b, arguments) ?: return null
+                    val op = if (predicate.op == XPathBoolExpr.AND) "and" else "or"
+                    "($selectionA) $op ($selectionB)"
+                }
+
+                is XPathEqExpr -> {
+                    val candidate = CompareToNodeExpression.parse(predicate) ?: return null
+                    val column = getColumn(candidate.nodeSide.steps) ?: return null
+
+                    arguments.add(candidate)
+                    val op = if (predicate.isEqual) "=" else "!="
+                    "\"$column\"$op?"
+                }
+
+                else -> null
+            }
+        }
+
+        private fun getColumn(steps: Array<XPathStep>): String? {
+            return if (steps.size == 1) {
+                steps[0].name?.name
+            } else if (
+                steps.size == 2 &&
+                steps[0].test == XPathStep.TEST_TYPE_NODE &&
+                (steps[0].axis == XPathStep.AXIS_SELF || steps[0].axis == XPathStep.AXIS_CHILD)
+            ) {
+                steps[1].name?.name
+            } else {
+                null
+            }
+        }
+    }
+}
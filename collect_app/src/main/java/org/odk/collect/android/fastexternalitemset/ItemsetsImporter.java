@@ -0,0 +1,170 @@
+package org.odk.collect.android.fastexternalitemset;
+
+import android.content.res.Resources;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.Nullable;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import org.odk.collect.shared.strings.Md5;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Imports a form's itemsets.csv into the itemsets database so that it can be queried by
+ * {@link ItemsetDao}.
+ */
+public final class ItemsetsImporter {
+
+    private static final String ITEMSETS_CSV = "itemsets.csv";
+    private static final int PROGRESS_INTERVAL = 10_000;
+
+    private ItemsetsImporter() {
+
+    }
+
+    @Nullable
+    public static String importIfChanged(ItemsetDbAdapter ida, File formMediaDir) {
+        return importIfChanged(ida, formMediaDir, progress -> { });
+    }
+
+    /**
+     * Imports the itemsets.csv in {@code formMediaDir} if there is one and it has changed since
+     * it was last imported. Imports are serialized so that a form being opened and the same form
+     * being imported in the background don't both try to create its table.
+     * <p>
+     * Rows are streamed from the CSV through a single compiled insert in one transaction, and
+     * indexes on the filter columns are only created once all the rows are loaded.
+     *
+     * @return a warning message if the CSV could not be read, or null
+     */
+    @Nullable
+    public static synchronized String importIfChanged(ItemsetDbAdapter ida, File formMediaDir,
+                                                      Consumer<Function<Resources, String>> progressReporter) {
+        // for itemsets.csv, we only check to see if the itemset file has been
+        // updated
+        final File csv = new File(formMediaDir.getAbsolutePath() + "/" + ITEMSETS_CSV);
+        String csvmd5;
+        if (csv.exists()) {
+            csvmd5 = Md5.getMd5Hash(csv);
+            boolean readFile = false;
+            ida.open();
+            // get the database entry (if exists) for this itemsets.csv, based
+            // on the path
+            final Cursor c = ida.getItemsets(csv.getAbsolutePath());
+            if (c != null) {
+                if (c.getCount() == 1) {
+                    c.moveToFirst(); // should be only one, ever, if any
+                    final String oldmd5 = c.getString(c.getColumnIndex("hash"));
+                    if (oldmd5.equals(csvmd5)) {
+                        // they're equal, do nothing
+                    } else {
+                        // the csv has been updated, delete the old entries
+                        ida.dropTable(ItemsetDbAdapter.getMd5FromString(csv.getAbsolutePath()),
+                                csv.getAbsolutePath());
+                        // and read the new
+                        readFile = true;
+                    }
+                } else {
+                    // new csv, add it
+                    readFile = true;
+                }
+                c.close();
+            }
+            ida.close();
+            if (readFile) {
+                return readCSV(ida, csv, csvmd5, ItemsetDbAdapter.getMd5FromString(csv.getAbsolutePath()), progressReporter);
+            }
+        }
+
+        return null;
+    }
+
+    @Nullable
+    private static String readCSV(ItemsetDbAdapter ida, File csv, String formHash, String pathHash,
+                                  Consumer<Function<Resources, String>> progressReporter) {
+        ida.open();
+        ida.beginTransaction();
+
+        try (CSVReader reader = new CSVReader(new FileReader(csv))) {
+            // first line of csv is column headers
+            String[] columnHeaders = reader.readNext();
+            if (columnHeaders == null) {
+                ida.rollback();
+                return null;
+            }
+
+            ida.createTable(formHash, pathHash, columnHeaders, csv.getAbsolutePath());
+
+            SQLiteStatement insert = ida.compileInsert(pathHash, columnHeaders);
+            try {
+                String[] nextLine;
+                int rowCount = 0;
+                while ((nextLine = reader.readNext()) != null) {
+                    insert.clearBindings();
+
+                    int index = 1;
+                    for (int i = 0; i < columnHeaders.length; i++) {
+                        if (!columnHeaders[i].isEmpty()) {
+                            // rows don't necessarily use all the columns
+                            if (i < nextLine.length) {
+                                insert.bindString(index, nextLine[i]);
+                            } else {
+                                insert.bindNull(index);
+                            }
+
+                            index++;
+                        }
+                    }
+
+                    insert.executeInsert();
+
+                    rowCount++;
+                    if (rowCount % PROGRESS_INTERVAL == 0) {
+                        int records = rowCount;
+                        progressReporter.accept(resources -> resources.getString(org.odk.collect.strings.R.string.ext_import_progress_message,
+                                csv.getName(), " (" + records + " records so far)"));
+                    }
+                }
+            } finally {
+                insert.close();
+            }
+
+            // indexes are much cheaper to build once the data is loaded than to maintain during it
+            progressReporter.accept(resources -> resources.getString(org.odk.collect.strings.R.string.ext_import_finalizing_message));
+            for (int i = 0; i < columnHeaders.length; i++) {
+                if (isFilterColumn(columnHeaders[i])) {
+                    ida.createIndex(pathHash, columnHeaders[i], i);
+                }
+            }
+
+            ida.commit();
+            return null;
+        } catch (IOException | SQLException | CsvValidationException e) {
+            // Roll back the whole import (including the itemsets entry) so it's tried again next time
+            ida.rollback();
+            return e.getMessage();
+        } finally {
+            ida.close();
+        }
+    }
+
+    /**
+     * Whether a column could be used to filter items (as opposed to being the value or label of
+     * an item).
+     */
+    private static boolean isFilterColumn(String column) {
+        return !column.isEmpty()
+                && !column.equals("name")
+                && !column.equals("label")
+                && !column.startsWith("label::");
+    }
+}
@@ -1,6 +1,7 @@
 package org.odk.collect.android.formentry
 
 import org.javarosa.core.model.FormDef
+import org.odk.collect.forms.Form
 import java.io.File
 import java.io.IOException
 
@@ -9,4 +10,12 @@ interface FormDefCache {
     @Throws(IOException::class)
     fun writeCache(formDef: FormDef?, formPath: String?)
     fun readCache(formXml: File?): FormDef?
+
+    /**
+     * Like [writeCache] and [readCache] but uses the MD5 hash already stored for [form] to find
+     * the cache file so the form XML doesn't need to be hashed.
+     */
+    @Throws(IOException::class)
+    fun writeCache(formDef: FormDef, form: Form)
+    fun readCache(form: Form): FormDef?
 }
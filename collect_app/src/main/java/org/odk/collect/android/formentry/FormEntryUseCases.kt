@@ -64,7 +64,7 @@ object FormEntryUseCases {
             formMediaDir
         )
 
-        return createFormDefFromCacheOrXml(xForm, formDefCache)!!
+        return createFormDefFromCacheOrXml(form, xForm, formDefCache)!!
     }
 
     fun loadBlankForm(
@@ -193,15 +193,15 @@ object FormEntryUseCases {
         return instancesRepository.getOneByPath(instancePath)
     }
 
-    private fun createFormDefFromCacheOrXml(xForm: File, formDefCache: FormDefCache): FormDef? {
-        val formDefFromCache = formDefCache.readCache(xForm)
+    private fun createFormDefFromCacheOrXml(form: Form, xForm: File, formDefCache: FormDefCache): FormDef? {
+        val formDefFromCache = formDefCache.readCache(form)
         if (formDefFromCache != null) {
             return formDefFromCache
         }
 
         val lastSavedSrc = FileUtils.getOrCreateLastSavedSrc(xForm)
         return XFormUtils.getFormFromFormXml(xForm.absolutePath, lastSavedSrc)?.also {
-            formDefCache.writeCache(it, xForm.path)
+            formDefCache.writeCache(it, form)
         }
     }
 
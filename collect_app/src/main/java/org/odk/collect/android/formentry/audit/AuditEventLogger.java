@@ -20,7 +20,7 @@ import timber.log.Timber;
 
 /**
  * Handle logging of auditEvents (which contain time and might contain location coordinates),
- * and pass them to an Async task to append to a file
+ * and pass them to a {@link AuditEventWriter} to append to a file
  * Notes:
  * 1) If the user has saved the form, then resumes editing, then exits without saving then the timing data during the
  * second editing session will be saved.  This is OK as it records user activity.  However if the user exits
@@ -210,11 +210,18 @@ public class AuditEventLogger {
     }
 
     private void writeEvents() {
-        if (!writer.isWriting()) {
-            writer.writeEvents(auditEvents);
-            auditEvents = new ArrayList<>();
-        } else {
-            Timber.i("Queueing AuditEvent");
+        writer.writeEvents(auditEvents);
+        auditEvents = new ArrayList<>();
+    }
+
+    /**
+     * Makes sure events that have been written are on disk (when the form is saved). Should not be
+     * used on the UI thread. This doesn't hold the logger's lock (the writer is safe to use
+     * concurrently) so events can still be logged while the sync waits for the disk.
+     */
+    public void sync() {
+        if (isAuditEnabled()) {
+            writer.sync();
         }
     }
 
@@ -292,6 +299,6 @@ public class AuditEventLogger {
 
         void writeEvents(List<AuditEvent> auditEvents);
 
-        boolean isWriting();
+        void sync();
     }
 }
@@ -0,0 +1,268 @@
+package org.odk.collect.android.formentry.audit;
+
+import static org.odk.collect.android.formentry.audit.AuditEventCSVLine.toCSVLine;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * Appends events to the audit log for a form session. Events are buffered and committed to the
+ * file in groups (once enough have built up or after a short delay) through a writer that is
+ * kept open between commits (and closed once the session stops logging events). The header is
+ * only checked the first time the file is opened and the file is only synced to disk at save
+ * points (see {@link #sync()}).
+ */
+public class BufferedAuditEventWriter implements AuditEventLogger.AuditEventWriter {
+
+    // Shared so that commits for the same file (from different sessions) happen in order
+    private static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor();
+
+    private static final int COMMIT_THRESHOLD = 8 * 1024;
+    private static final long DEFAULT_COMMIT_DELAY = 1000;
+    private static final long DEFAULT_IDLE_TIMEOUT = 30_000;
+
+    private static final String DEFAULT_COLUMNS = "event,node,start,end";
+    private static final String LOCATION_COORDINATES_COLUMNS = ",latitude,longitude,accuracy";
+    private static final String ANSWER_VALUES_COLUMNS = ",old-value,new-value";
+    private static final String USER_COLUMNS = ",user";
+    private static final String CHANGE_REASON_COLUMNS = ",change-reason";
+
+    private final @NonNull
+    File file;
+    private final boolean isLocationEnabled;
+    private final boolean isTrackingChangesEnabled;
+    private final boolean isUserRequired;
+    private final boolean isTrackChangesReasonEnabled;
+    private final long commitDelay;
+    private final long idleTimeout;
+
+    // Guarded by this
+    private final StringBuilder pending = new StringBuilder();
+    private ScheduledFuture<?> scheduledCommit;
+
+    // Only accessed on EXECUTOR
+    private FileOutputStream outputStream;
+    private Writer writer;
+    private boolean headerChecked;
+    private boolean unsynced;
+    private ScheduledFuture<?> scheduledClose;
+
+    public BufferedAuditEventWriter(@NonNull File file, boolean isLocationEnabled, boolean isTrackingChangesEnabled, boolean isUserRequired, boolean isTrackChangesReasonEnabled) {
+        this(file, isLocationEnabled, isTrackingChangesEnabled, isUserRequired, isTrackChangesReasonEnabled, DEFAULT_COMMIT_DELAY, DEFAULT_IDLE_TIMEOUT);
+    }
+
+    @VisibleForTesting
+    BufferedAuditEventWriter(@NonNull File file, boolean isLocationEnabled, boolean isTrackingChangesEnabled, boolean isUserRequired, boolean isTrackChangesReasonEnabled, long commitDelay, long idleTimeout) {
+        this.file = file;
+        this.isLocationEnabled = isLocationEnabled;
+        this.isTrackingChangesEnabled = isTrackingChangesEnabled;
+        this.isUserRequired = isUserRequired;
+        this.isTrackChangesReasonEnabled = isTrackChangesReasonEnabled;
+        this.commitDelay = commitDelay;
+        this.idleTimeout = idleTimeout;
+    }
+
+    @Override
+    public synchronized void writeEvents(List<AuditEvent> auditEvents) {
+        for (AuditEvent aev : auditEvents) {
+            pending.append(toCSVLine(aev, isLocationEnabled, isTrackingChangesEnabled, isTrackChangesReasonEnabled)).append('\n');
+        }
+
+        boolean full = pending.length() >= COMMIT_THRESHOLD;
+        if (scheduledCommit == null) {
+            scheduledCommit = EXECUTOR.schedule(this::commit, full ? 0 : commitDelay, TimeUnit.MILLISECONDS);
+        } else if (full && scheduledCommit.cancel(false)) {
+            scheduledCommit = EXECUTOR.schedule(this::commit, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Commits any buffered events and waits for the file to be synced to disk. Should not be
+     * called on the UI thread.
+     */
+    @Override
+    public void sync() {
+        runOnExecutor(() -> {
+            commit();
+
+            if (unsynced) {
+                try {
+                    if (writer != null) {
+                        writer.flush();
+                        outputStream.getFD().sync();
+                    } else {
+                        // The writer has been closed since the last commit (after being idle)
+                        try (FileOutputStream syncStream = new FileOutputStream(file, true)) {
+                            syncStream.getFD().sync();
+                        }
+                    }
+
+                    unsynced = false;
+                } catch (IOException e) {
+                    Timber.e(e);
+                }
+            }
+
+            return null;
+        });
+    }
+
+    @VisibleForTesting
+    boolean isOpen() {
+        return Boolean.TRUE.equals(runOnExecutor(() -> writer != null));
+    }
+
+    @VisibleForTesting
+    boolean hasUnsyncedEvents() {
+        return Boolean.TRUE.equals(runOnExecutor(() -> unsynced));
+    }
+
+    @Nullable
+    private static <T> T runOnExecutor(Callable<T> task) {
+        try {
+            return EXECUTOR.submit(task).get();
+        } catch (ExecutionException e) {
+            Timber.e(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return null;
+    }
+
+    private void commit() {
+        String lines;
+        synchronized (this) {
+            lines = pending.toString();
+            pending.setLength(0);
+            scheduledCommit = null;
+        }
+
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        try {
+            open();
+            unsynced = true;
+            writer.write(lines);
+            writer.flush();
+        } catch (IOException e) {
+            Timber.e(e);
+            close();
+        }
+
+        // Don't hold on to the file once the session has stopped logging events
+        if (scheduledClose != null) {
+            scheduledClose.cancel(false);
+        }
+        scheduledClose = EXECUTOR.schedule(this::close, idleTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    private void open() throws IOException {
+        if (writer != null) {
+            return;
+        }
+
+        boolean newFile = !file.exists();
+        if (!newFile && !headerChecked) {
+            updateHeaderIfNeeded();
+        }
+        headerChecked = true;
+
+        outputStream = new FileOutputStream(file, true);
+        writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        if (newFile) {
+            writer.write(getHeader() + "\n");
+        }
+    }
+
+    private void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                Timber.e(e);
+            }
+
+            writer = null;
+            outputStream = null;
+        }
+    }
+
+    private void updateHeaderIfNeeded() {
+        FileWriter tfw = null;
+        BufferedReader br = null;
+        try {
+            br = new BufferedReader(new FileReader(file));
+            if (shouldHeaderBeUpdated(br.readLine())) { // update header
+                File temporaryFile = new File(file.getParentFile().getAbsolutePath() + "/temporaryAudit.csv");
+                tfw = new FileWriter(temporaryFile, true);
+                tfw.write(getHeader() + "\n");
+                String line;
+                while ((line = br.readLine()) != null) {
+                    tfw.write(line + "\n");
+                }
+                temporaryFile.renameTo(file);
+            }
+        } catch (IOException e) {
+            Timber.e(e);
+        } finally {
+            try {
+                if (tfw != null) {
+                    tfw.close();
+                }
+                if (br != null) {
+                    br.close();
+                }
+            } catch (Exception e) {
+                Timber.e(e);
+            }
+        }
+    }
+
+    private boolean shouldHeaderBeUpdated(String header) {
+        return header == null
+                || (isLocationEnabled && !header.contains(LOCATION_COORDINATES_COLUMNS))
+                || (isTrackingChangesEnabled && !header.contains(ANSWER_VALUES_COLUMNS))
+                || (isUserRequired && !header.contains(USER_COLUMNS));
+    }
+
+    private String getHeader() {
+        String header = DEFAULT_COLUMNS;
+        if (isLocationEnabled) {
+            header += LOCATION_COORDINATES_COLUMNS;
+        }
+        if (isTrackingChangesEnabled) {
+            header += ANSWER_VALUES_COLUMNS;
+        }
+        if (isUserRequired) {
+            header += USER_COLUMNS;
+        }
+        if (isTrackChangesReasonEnabled) {
+            header += CHANGE_REASON_COLUMNS;
+        }
+        return header;
+    }
+}
@@ -0,0 +1,90 @@
+package org.odk.collect.android.formmanagement
+
+import android.os.Process
+import org.javarosa.xform.util.XFormUtils
+import org.odk.collect.android.dynamicpreload.ExternalDataUseCases
+import org.odk.collect.android.fastexternalitemset.ItemsetDbAdapter
+import org.odk.collect.android.fastexternalitemset.ItemsetsImporter
+import org.odk.collect.android.projects.ProjectDependencyModule
+import org.odk.collect.android.utilities.ExternalizableFormDefCache
+import org.odk.collect.android.utilities.FileUtils
+import org.odk.collect.async.Scheduler
+import org.odk.collect.forms.Form
+import timber.log.Timber
+import java.io.File
+import java.util.Collections
+
+/**
+ * Parses and caches new or changed forms (and imports their itemsets and any CSVs used by
+ * `pulldata()` or `search()`) in the background at low priority so that opening a form for the
+ * first time is as fast as opening it again.
+ *
+ * Forms with external secondary instances are only cached when they are first opened. Parsing
+ * those requires `ReferenceManager` to be set up for the form, and that would interfere with
+ * any form that is open at the same time.
+ *
+ * Forms that fail to parse are remembered (by MD5 hash) so they aren't parsed again on every
+ * sync. The failure is reported when the form is opened instead.
+ */
+class FormCacheWarmer(private val scheduler: Scheduler) {
+
+    private val inProgress = Collections.synchronizedSet(mutableSetOf<String>())
+    private val failed = Collections.synchronizedSet(mutableSetOf<String>())
+
+    fun warm(projectDependencyModule: ProjectDependencyModule) {
+        scheduler.immediate {
+            val priority = Process.getThreadPriority(Process.myTid())
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND)
+
+            try {
+                projectDependencyModule.formsRepository.all
+                    .filter { !it.isDeleted }
+                    .forEach { warm(it, projectDependencyModule) }
+            } finally {
+                Process.setThreadPriority(priority)
+            }
+        }
+    }
+
+    private fun warm(form: Form, projectDependencyModule: ProjectDependencyModule) {
+        val cacheFile = File(form.jrCacheFilePath)
+        if (cacheFile.exists() || form.mD5Hash in failed || !inProgress.add(cacheFile.absolutePath)) {
+            return
+        }
+
+        try {
+            val formXml = File(form.formFilePath)
+            if (!formXml.exists()) {
+                return
+            }
+
+            if (!hasExternalInstances(formXml)) {
+                val lastSavedSrc = FileUtils.getOrCreateLastSavedSrc(formXml)
+                val formDef = XFormUtils.getFormFromFormXml(formXml.absolutePath, lastSavedSrc)
+                if (formDef != null) {
+                    ExternalizableFormDefCache(projectDependencyModule.cacheDir, false).writeCache(formDef, form)
+                    ExternalDataUseCases.create(formDef, File(form.formMediaPath), { false }, { })
+                } else {
+                    form.mD5Hash?.let { failed.add(it) }
+                }
+            }
+
+            ItemsetsImporter.importIfChanged(
+                ItemsetDbAdapter(projectDependencyModule.metaDir, projectDependencyModule.formsDir),
+                File(form.formMediaPath)
+            )
+        } catch (e: Exception) {
+            // The form will be parsed (and any error reported) when it's opened instead
+            Timber.w(e)
+            form.mD5Hash?.let { failed.add(it) }
+        } finally {
+            inProgress.remove(cacheFile.absolutePath)
+        }
+    }
+
+    private fun hasExternalInstances(formXml: File): Boolean {
+        return formXml.useLines { lines ->
+            lines.any { it.contains("src=\"jr://") || it.contains("src='jr://") }
+        }
+    }
+}
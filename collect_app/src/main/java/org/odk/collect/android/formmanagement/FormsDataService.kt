@@ -24,7 +24,8 @@ class FormsDataService(
     appState: AppState,
     private val notifier: Notifier,
     private val projectDependencyModuleFactory: ProjectDependencyFactory<ProjectDependencyModule>,
-    private val clock: Supplier<Long>
+    private val clock: Supplier<Long>,
+    private val formCacheWarmer: FormCacheWarmer? = null
 ) : DataService(appState) {
 
     private val forms by qualifiedData(DataKeys.FORMS, emptyList<Form>()) { projectId ->
@@ -71,6 +72,7 @@ class FormsDataService(
                 syncWithStorage(projectId)
                 update(projectId)
                 finishSyncWithStorage(projectId)
+                formCacheWarmer?.warm(projectDependencies)
             }
         }
     }
@@ -95,6 +97,7 @@ class FormsDataService(
                     progressReporter,
                     isCancelled
                 ))
+                formCacheWarmer?.warm(projectDependencyModule)
             }
         }
         return results
@@ -135,6 +138,8 @@ class FormsDataService(
                 } catch (_: FormSourceException) {
                     // Ignored
                 }
+
+                formCacheWarmer?.warm(projectDependencies)
             }
         }
     }
@@ -184,6 +189,7 @@ class FormsDataService(
 
                 update(projectId)
                 finishSyncWithServer(projectId, exception)
+                formCacheWarmer?.warm(projectDependencies)
                 exception == null
             } else {
                 false
@@ -7,6 +7,7 @@ import org.odk.collect.android.formmanagement.metadata.FormMetadata
 import org.odk.collect.android.formmanagement.metadata.FormMetadataParser
 import org.odk.collect.android.utilities.FileUtils
 import org.odk.collect.androidshared.utils.Validator
+import org.odk.collect.db.sqlite.Metrics
 import org.odk.collect.forms.Form
 import org.odk.collect.forms.FormsRepository
 import org.odk.collect.forms.instances.InstancesRepository
@@ -16,11 +17,19 @@ import timber.log.Timber
 import java.io.File
 import java.util.Collections
 import java.util.LinkedList
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
 
 object LocalFormUseCases {
 
+    private const val MAX_PARSE_THREADS = 4
+
     private var counter = 0
 
+    @JvmStatic
+    val syncMetrics = Metrics("Forms directory sync")
+
     @JvmStatic
     fun deleteForm(
         formsRepository: FormsRepository,
@@ -51,6 +60,10 @@ object LocalFormUseCases {
         var statusMessage = ""
         val instance = ++counter
         Timber.i("[%d] doInBackground begins!", instance)
+        val startTime = System.nanoTime()
+        var filesChecked = 0
+        var filesHashed = 0
+        var formsParsed = 0
         val idsToDelete: MutableList<Long> = ArrayList()
         return try {
             // Process everything then report what didn't work.
@@ -65,7 +78,8 @@ object LocalFormUseCases {
 
                 // Step 2: quickly run through and figure out what files we need to
                 // parse and update; this is quick, as we only calculate the md5
-                // and see if it has changed.
+                // for files whose size or last modified time has changed since they
+                // were last hashed.
                 val uriToUpdate: MutableList<IdFile?> = ArrayList()
                 val forms = formsRepository.all
                 for (form in forms) {
@@ -77,12 +91,25 @@ object LocalFormUseCases {
                         // remove it from the list of forms (we only want forms
                         // we haven't added at the end)
                         formsToAdd.remove(sqlFile)
+                        filesChecked++
+
+                        // Stamp the file before hashing it so a change while it's being hashed is picked up later
+                        val fileSize = sqlFile.length()
+                        val fileLastModified = sqlFile.lastModified()
+                        if (form.formFileSize == fileSize && form.formFileLastModified == fileLastModified) {
+                            continue
+                        }
+
+                        filesHashed++
                         val md5Computed = sqlFile.getMd5Hash()
                         if (md5Computed == null || md5 == null || md5Computed != md5) {
                             // Probably someone overwrite the file on the sdcard
                             // So re-parse it and update it's information
                             val id = form.dbId
                             uriToUpdate.add(IdFile(id, sqlFile))
+                        } else {
+                            // The file has been touched but hasn't changed so just update its stamp
+                            formsRepository.updateFileStamp(form.dbId, fileSize, fileLastModified)
                         }
                     } else {
                         // File not found in sdcard but file path found in database
@@ -99,65 +126,56 @@ object LocalFormUseCases {
                 }
 
                 // Step3: go through uriToUpdate to parse and update each in turn.
-                // Note: buildContentValues calls getMetadataFromFormDefinition which parses the
-                // form XML. This takes time for large forms and/or slow devices.
+                // Note: parseForm parses the form XML. This takes time for large forms and/or
+                // slow devices so forms are parsed in parallel.
                 Collections.shuffle(uriToUpdate) // Big win if multiple DiskSyncTasks running
-                for (entry in uriToUpdate) {
-                    val formDefFile = entry!!.file
-                    // Probably someone overwrite the file on the sdcard
-                    // So re-parse it and update it's information
-                    var form: Form
-                    form = try {
-                        parseForm(formDefFile)
-                    } catch (e: IllegalArgumentException) {
-                        errors.append(e.message).append("\r\n")
-                        val badFile = File(
-                            formDefFile.parentFile,
-                            formDefFile.name + ".bad"
-                        )
-                        badFile.delete()
-                        formDefFile.renameTo(badFile)
+                val parsedUpdates = parseForms(uriToUpdate.map { it!!.file })
+                formsParsed += parsedUpdates.size
+                for ((entry, parsed) in uriToUpdate.zip(parsedUpdates)) {
+                    val form = parsed.form
+                    if (form == null) {
+                        errors.append(parsed.error).append("\r\n")
+                        markAsBad(parsed.file)
                         continue
                     }
+
                     formsRepository.save(
                         Form.Builder(form)
-                            .dbId(entry.id)
+                            .dbId(entry!!.id)
                             .build()
                     )
                 }
                 uriToUpdate.clear()
 
                 // Step 4: go through the newly-discovered files in xFormsToAdd and add them.
-                // This is slow because buildContentValues(...) is slow.
+                // This is slow because parsing is slow.
                 //
                 Collections.shuffle(formsToAdd) // Big win if multiple DiskSyncTasks running
-                while (!formsToAdd.isEmpty()) {
-                    val formDefFile = formsToAdd.removeAt(0)
 
-                    // Since parsing is so slow, if there are multiple tasks,
-                    // they may have already updated the database.
-                    // Skip this file if that is the case.
-                    if (formsRepository.getOneByPath(formDefFile!!.absolutePath) != null) {
+                // Since parsing is so slow, if there are multiple tasks,
+                // they may have already updated the database.
+                // Skip any file where that is the case.
+                val newFormFiles = formsToAdd.filterNotNull().filter {
+                    if (formsRepository.getOneByPath(it.absolutePath) != null) {
                         Timber.i(
                             "[%d] skipping -- definition already recorded: %s",
                             instance,
-                            formDefFile.absolutePath
+                            it.absolutePath
                         )
-                        continue
+                        false
+                    } else {
+                        true
                     }
+                }
+                formsToAdd.clear()
 
-                    // Parse it for the first time...
-                    var form: Form
-                    form = try {
-                        parseForm(formDefFile)
-                    } catch (e: IllegalArgumentException) {
-                        errors.append(e.message).append("\r\n")
-                        val badFile = File(
-                            formDefFile.parentFile,
-                            formDefFile.name + ".bad"
-                        )
-                        badFile.delete()
-                        formDefFile.renameTo(badFile)
+                val parsedNewForms = parseForms(newFormFiles)
+                formsParsed += parsedNewForms.size
+                for (parsed in parsedNewForms) {
+                    val form = parsed.form
+                    if (form == null) {
+                        errors.append(parsed.error).append("\r\n")
+                        markAsBad(parsed.file)
                         continue
                     }
 
@@ -181,7 +199,20 @@ object LocalFormUseCases {
             }
             statusMessage
         } finally {
-            Timber.i("[%d] doInBackground ends!", instance)
+            val syncNanos = System.nanoTime() - startTime
+            syncMetrics.record("sync", syncNanos)
+            syncMetrics.record("files checked", count = filesChecked.toLong())
+            syncMetrics.record("files hashed", count = filesHashed.toLong())
+            syncMetrics.record("forms parsed", count = formsParsed.toLong())
+            Timber.i(
+                "[%d] doInBackground ends! Checked %d forms (%d hashed, %d parsed) in %dms",
+                instance,
+                filesChecked,
+                filesHashed,
+                formsParsed,
+                TimeUnit.NANOSECONDS.toMillis(syncNanos)
+            )
+            syncMetrics.logSummary()
         }
     }
 
@@ -210,6 +241,45 @@ object LocalFormUseCases {
         return !ignoredFile && (xmlFile || xhtmlFile)
     }
 
+    /**
+     * Parses forms on a bounded pool of threads. Results are returned in the same order as the
+     * files.
+     */
+    private fun parseForms(formDefFiles: List<File>): List<ParsedForm> {
+        if (formDefFiles.isEmpty()) {
+            return emptyList()
+        }
+
+        val threads = minOf(MAX_PARSE_THREADS, Runtime.getRuntime().availableProcessors(), formDefFiles.size)
+        val executor = Executors.newFixedThreadPool(threads)
+        try {
+            return formDefFiles
+                .map { file ->
+                    executor.submit<ParsedForm> {
+                        try {
+                            ParsedForm(file, parseForm(file), null)
+                        } catch (e: IllegalArgumentException) {
+                            ParsedForm(file, null, e.message)
+                        }
+                    }
+                }
+                .map { it.get() }
+        } catch (e: ExecutionException) {
+            throw e.cause ?: e
+        } finally {
+            executor.shutdownNow()
+        }
+    }
+
+    private fun markAsBad(formDefFile: File) {
+        val badFile = File(
+            formDefFile.parentFile,
+            formDefFile.name + ".bad"
+        )
+        badFile.delete()
+        formDefFile.renameTo(badFile)
+    }
+
     @Throws(IllegalArgumentException::class)
     private fun parseForm(formDefFile: File?): Form {
         // Probably someone overwrite the file on the sdcard
@@ -291,4 +361,6 @@ object LocalFormUseCases {
     }
 
     private class IdFile(val id: Long, val file: File)
+
+    private class ParsedForm(val file: File, val form: Form?, val error: String?)
 }
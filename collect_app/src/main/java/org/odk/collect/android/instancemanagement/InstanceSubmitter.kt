@@ -5,6 +5,7 @@ import org.odk.collect.android.analytics.AnalyticsEvents
 import org.odk.collect.android.application.Collect
 import org.odk.collect.android.upload.FormUploadException
 import org.odk.collect.android.upload.InstanceServerUploader
+import org.odk.collect.android.upload.InstanceUploadEngine
 import org.odk.collect.android.upload.InstanceUploader
 import org.odk.collect.android.utilities.FormsRepositoryProvider
 import org.odk.collect.android.utilities.InstanceAutoDeleteChecker
@@ -19,6 +20,7 @@ import org.odk.collect.openrosa.http.OpenRosaHttpInterface
 import org.odk.collect.settings.keys.ProjectKeys
 import org.odk.collect.shared.settings.Settings
 import timber.log.Timber
+import java.util.Collections
 
 class InstanceSubmitter(
     private val formsRepository: FormsRepository,
@@ -29,25 +31,35 @@ class InstanceSubmitter(
 ) {
 
     fun submitInstances(toUpload: List<Instance>): Map<Instance, FormUploadException?> {
-        val result = mutableMapOf<Instance, FormUploadException?>()
+        val results = Collections.synchronizedMap(mutableMapOf<Instance, FormUploadException?>())
         val deviceId = propertyManager.getSingularProperty(PROPMGR_DEVICE_ID)
 
         val uploader = setUpODKUploader()
 
-        for (instance in toUpload.sortedBy { it.finalizationDate }) {
-            try {
-                val destinationUrl = uploader.getUrlToSubmitTo(instance, deviceId, null, null)
-                uploader.uploadOneSubmission(instance, destinationUrl)
-                result[instance] = null
+        val sortedToUpload = toUpload.sortedBy { it.finalizationDate }
+        InstanceUploadEngine(uploader).upload(
+            sortedToUpload,
+            deviceId,
+            null,
+            { false },
+            object : InstanceUploadEngine.Listener {
+                override fun onUploadStarted(instance: Instance) = Unit
 
-                deleteInstance(instance)
-                logUploadedForm(instance)
-            } catch (e: FormUploadException) {
-                Timber.d(e)
-                result[instance] = e
+                override fun onUploadSucceeded(instance: Instance, customMessage: String?) {
+                    results[instance] = null
+
+                    deleteInstance(instance)
+                    logUploadedForm(instance)
+                }
+
+                override fun onUploadFailed(instance: Instance, exception: FormUploadException) {
+                    Timber.d(exception)
+                    results[instance] = exception
+                }
             }
-        }
-        return result
+        )
+
+        return sortedToUpload.filter { results.containsKey(it) }.associateWith { results[it] }
     }
 
     private fun setUpODKUploader(): InstanceUploader {
@@ -35,6 +35,7 @@ data class ProjectDependencyModule(
     val instancesLock by lazy { changeLockFactory.create(projectId).instancesLock }
     val formsDir by lazy { storagePathsFactory.create(projectId).formsDir }
     val cacheDir by lazy { storagePathsFactory.create(projectId).cacheDir }
+    val metaDir by lazy { storagePathsFactory.create(projectId).metaDir }
     val entitiesRepository by lazy { entitiesRepositoryFactory.create(projectId) }
     val savepointsRepository by lazy { savepointsRepositoryFactory.create(projectId) }
     val rootDir by lazy { storagePathsFactory.create(projectId).rootDir }
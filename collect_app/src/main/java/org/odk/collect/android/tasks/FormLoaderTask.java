@@ -18,16 +18,11 @@ import static org.odk.collect.android.utilities.FormUtils.setupReferenceManagerF
 import static org.odk.collect.strings.localization.LocalizedApplicationKt.getLocalizedString;
 
 import android.content.Intent;
-import android.database.Cursor;
-import android.database.SQLException;
 import android.net.Uri;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvValidationException;
-
 import org.javarosa.core.model.FormDef;
 import org.javarosa.core.model.FormIndex;
 import org.javarosa.core.model.instance.InstanceInitializationFactory;
@@ -46,6 +41,7 @@ import org.odk.collect.android.dynamicpreload.ExternalDataUseCases;
 import org.odk.collect.android.external.FormsContract;
 import org.odk.collect.android.external.InstancesContract;
 import org.odk.collect.android.fastexternalitemset.ItemsetDbAdapter;
+import org.odk.collect.android.fastexternalitemset.ItemsetsImporter;
 import org.odk.collect.android.javarosawrapper.FormController;
 import org.odk.collect.android.javarosawrapper.JavaRosaFormController;
 import org.odk.collect.android.listeners.FormLoaderListener;
@@ -62,11 +58,9 @@ import org.odk.collect.forms.Form;
 import org.odk.collect.forms.instances.Instance;
 import org.odk.collect.forms.savepoints.Savepoint;
 import org.odk.collect.forms.savepoints.SavepointsRepository;
-import org.odk.collect.shared.strings.Md5;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
@@ -81,7 +75,6 @@ import timber.log.Timber;
  * @author Yaw Anokwa (yanokwa@gmail.com)
  */
 public class FormLoaderTask extends SchedulerAsyncTaskMimic<Void, String, FormLoaderTask.FECWrapper> {
-    private static final String ITEMSETS_CSV = "itemsets.csv";
 
     private FormLoaderListener stateListener;
     private String errorMsg;
@@ -200,7 +193,7 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<Void, String, FormLo
 
         FormDef formDef = null;
         try {
-            formDef = createFormDefFromCacheOrXml(form.getFormFilePath(), formXml);
+            formDef = createFormDefFromCacheOrXml(form, formXml);
         } catch (StackOverflowError e) {
             Timber.e(e);
             errorMsg = getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.too_complex_form);
@@ -260,7 +253,12 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<Void, String, FormLo
             }
         }
 
-        processItemSets(formMediaDir);
+        String itemsetsWarning = ItemsetsImporter.importIfChanged(new ItemsetDbAdapter(), formMediaDir, progress -> {
+            publishProgress(progress.apply(Collect.getInstance().getResources()));
+        });
+        if (itemsetsWarning != null) {
+            warningMsg = itemsetsWarning;
+        }
 
         final FormController fc = new JavaRosaFormController(formMediaDir, fec, instancePath == null ? null
                 : new File(instancePath));
@@ -330,11 +328,11 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<Void, String, FormLo
         }
     }
 
-    private FormDef createFormDefFromCacheOrXml(String formPath, File formXml) throws XFormParser.ParseException {
+    private FormDef createFormDefFromCacheOrXml(Form form, File formXml) throws XFormParser.ParseException {
         publishProgress(
                 getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.survey_loading_reading_form_message));
 
-        final FormDef formDefFromCache = new ExternalizableFormDefCache().readCache(formXml);
+        final FormDef formDefFromCache = new ExternalizableFormDefCache().readCache(form);
         if (formDefFromCache != null) {
             return formDefFromCache;
         }
@@ -342,7 +340,7 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<Void, String, FormLo
         // no binary, read from xml
         final long start = System.currentTimeMillis();
         String lastSavedSrc = FileUtils.getOrCreateLastSavedSrc(formXml);
-        FormDef formDefFromXml = XFormUtils.getFormFromFormXml(formPath, lastSavedSrc);
+        FormDef formDefFromXml = XFormUtils.getFormFromFormXml(form.getFormFilePath(), lastSavedSrc);
         if (formDefFromXml == null) {
             Timber.w("Error reading XForm file");
             errorMsg = "Error reading XForm file";
@@ -352,7 +350,7 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<Void, String, FormLo
             formDef = formDefFromXml;
 
             try {
-                new ExternalizableFormDefCache().writeCache(formDef, formXml.getPath());
+                new ExternalizableFormDefCache().writeCache(formDef, form);
             } catch (IOException e) {
                 Timber.e(e);
             }
@@ -363,45 +361,6 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<Void, String, FormLo
         return null;
     }
 
-    private void processItemSets(File formMediaDir) {
-        // for itemsets.csv, we only check to see if the itemset file has been
-        // updated
-        final File csv = new File(formMediaDir.getAbsolutePath() + "/" + ITEMSETS_CSV);
-        String csvmd5;
-        if (csv.exists()) {
-            csvmd5 = Md5.getMd5Hash(csv);
-            boolean readFile = false;
-            final ItemsetDbAdapter ida = new ItemsetDbAdapter();
-            ida.open();
-            // get the database entry (if exists) for this itemsets.csv, based
-            // on the path
-            final Cursor c = ida.getItemsets(csv.getAbsolutePath());
-            if (c != null) {
-                if (c.getCount() == 1) {
-                    c.moveToFirst(); // should be only one, ever, if any
-                    final String oldmd5 = c.getString(c.getColumnIndex("hash"));
-                    if (oldmd5.equals(csvmd5)) {
-                        // they're equal, do nothing
-                    } else {
-                        // the csv has been updated, delete the old entries
-                        ida.dropTable(ItemsetDbAdapter.getMd5FromString(csv.getAbsolutePath()),
-                                csv.getAbsolutePath());
-                        // and read the new
-                        readFile = true;
-                    }
-                } else {
-                    // new csv, add it
-                    readFile = true;
-                }
-                c.close();
-            }
-            ida.close();
-            if (readFile) {
-                readCSV(csv, csvmd5, ItemsetDbAdapter.getMd5FromString(csv.getAbsolutePath()));
-            }
-        }
-    }
-
     private boolean initializeForm(FormDef formDef, FormEntryController fec) throws IOException {
         final InstanceInitializationFactory instanceInit = new InstanceInitializationFactory();
         boolean usedSavepoint = false;
@@ -569,49 +528,6 @@ public class FormLoaderTask extends SchedulerAsyncTaskMimic<Void, String, FormLo
         this.intent = intent;
     }
 
-    private void readCSV(File csv, String formHash, String pathHash) {
-
-        CSVReader reader;
-        ItemsetDbAdapter ida = new ItemsetDbAdapter();
-        ida.open();
-        boolean withinTransaction = false;
-
-        try {
-            reader = new CSVReader(new FileReader(csv));
-
-            String[] nextLine;
-            String[] columnHeaders = null;
-            int lineNumber = 0;
-            while ((nextLine = reader.readNext()) != null) {
-                lineNumber++;
-                if (lineNumber == 1) {
-                    // first line of csv is column headers
-                    columnHeaders = nextLine;
-                    ida.createTable(formHash, pathHash, columnHeaders,
-                            csv.getAbsolutePath());
-                    continue;
-                }
-                // add the rest of the lines to the specified database
-                // nextLine[] is an array of values from the line
-                // System.out.println(nextLine[4] + "etc...");
-                if (lineNumber == 2) {
-                    // start a transaction for the inserts
-                    withinTransaction = true;
-                    ida.beginTransaction();
-                }
-                ida.addRow(pathHash, columnHeaders, nextLine);
-
-            }
-        } catch (IOException | SQLException | CsvValidationException e) {
-            warningMsg = e.getMessage();
-        } finally {
-            if (withinTransaction) {
-                ida.commit();
-            }
-            ida.close();
-        }
-    }
-
     public FormDef getFormDef() {
         return formDef;
     }
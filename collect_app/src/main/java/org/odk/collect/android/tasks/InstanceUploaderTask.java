@@ -30,6 +30,7 @@ import org.odk.collect.android.projects.ProjectsDataService;
 import org.odk.collect.android.upload.FormUploadAuthRequestedException;
 import org.odk.collect.android.upload.FormUploadException;
 import org.odk.collect.android.upload.InstanceServerUploader;
+import org.odk.collect.android.upload.InstanceUploadEngine;
 import org.odk.collect.android.utilities.InstanceAutoDeleteChecker;
 import org.odk.collect.android.utilities.InstancesRepositoryProvider;
 import org.odk.collect.android.utilities.WebCredentialsUtils;
@@ -45,6 +46,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -100,34 +102,45 @@ public class InstanceUploaderTask extends AsyncTask<Long, Integer, InstanceUploa
 
         String deviceId = propertyManager.getSingularProperty(PropertyManager.PROPMGR_DEVICE_ID);
 
-        for (int i = 0; i < instancesToUpload.size(); i++) {
-            if (isCancelled()) {
-                return outcome;
-            }
-            Instance instance = instancesToUpload.get(i);
-
-            publishProgress(i + 1, instancesToUpload.size());
+        AtomicInteger uploadsStarted = new AtomicInteger();
+        new InstanceUploadEngine(uploader).upload(instancesToUpload, deviceId, completeDestinationUrl, this::isCancelled, new InstanceUploadEngine.Listener() {
+            @Override
+            public void onUploadStarted(Instance instance) {
+                publishProgress(uploadsStarted.incrementAndGet(), instancesToUpload.size());
 
-            if (completeDestinationUrl != null) {
-                Analytics.log(AnalyticsEvents.INSTANCE_UPLOAD_CUSTOM_SERVER, "label", referrer != null ? referrer : "");
+                if (completeDestinationUrl != null) {
+                    Analytics.log(AnalyticsEvents.INSTANCE_UPLOAD_CUSTOM_SERVER, "label", referrer != null ? referrer : "");
+                }
             }
 
-            try {
-                String destinationUrl = uploader.getUrlToSubmitTo(instance, deviceId, completeDestinationUrl, null);
-                String customMessage = uploader.uploadOneSubmission(instance, destinationUrl);
-                outcome.messagesByInstanceId.put(instance.getDbId().toString(),
-                        customMessage != null ? customMessage : getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.success));
+            @Override
+            public void onUploadSucceeded(Instance instance, String customMessage) {
+                synchronized (outcome) {
+                    outcome.messagesByInstanceId.put(instance.getDbId().toString(),
+                            customMessage != null ? customMessage : getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.success));
+                }
 
                 Analytics.log(SUBMISSION, "HTTP", Collect.getFormIdentifierHash(instance.getFormId(), instance.getFormVersion()));
-            } catch (FormUploadAuthRequestedException e) {
-                outcome.authRequestingServer = e.getAuthRequestingServer();
-                // Don't add the instance that caused an auth request to the map because we want to
-                // retry. Items present in the map are considered already attempted and won't be
-                // retried.
-            } catch (FormUploadException e) {
-                outcome.messagesByInstanceId.put(instance.getDbId().toString(),
-                        e.getMessage());
             }
+
+            @Override
+            public void onUploadFailed(Instance instance, FormUploadException exception) {
+                synchronized (outcome) {
+                    if (exception instanceof FormUploadAuthRequestedException) {
+                        outcome.authRequestingServer = ((FormUploadAuthRequestedException) exception).getAuthRequestingServer();
+                        // Don't add the instance that caused an auth request to the map because we want to
+                        // retry. Items present in the map are considered already attempted and won't be
+                        // retried.
+                    } else {
+                        outcome.messagesByInstanceId.put(instance.getDbId().toString(),
+                                exception.getMessage());
+                    }
+                }
+            }
+        });
+
+        if (isCancelled()) {
+            return outcome;
         }
 
         // Delete instances that were successfully sent and that need to be deleted
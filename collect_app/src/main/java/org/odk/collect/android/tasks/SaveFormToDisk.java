@@ -23,6 +23,7 @@ import android.net.Uri;
 import android.util.Pair;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 
 import org.javarosa.core.model.condition.EvaluationContext;
 import org.javarosa.core.model.data.GeoPointData;
@@ -332,19 +333,22 @@ public class SaveFormToDisk {
     private Instance exportData(boolean markCompleted, FormSaver.ProgressListener progressListener, ValidationResult validationResult) throws IOException, EncryptionException {
         progressListener.onProgressUpdate(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.survey_saving_collecting_message));
 
-        ByteArrayPayload payload = formController.getFilledInFormXml();
         // write out xml
         for (String fileName : tempFiles) {
             mediaUtils.deleteMediaFile(fileName);
         }
 
+        // the audit log is part of the instance so needs to be on disk before it's packaged up
+        formController.getAuditEventLogger().sync();
+
         progressListener.onProgressUpdate(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.survey_saving_saving_message));
 
-        writeFile(payload, formController.getInstanceFile());
+        writeFile(formController.getFilledInFormXml(), formController.getInstanceFile());
 
-        // Write last-saved instance
+        // Write last-saved instance (copied from the file just written rather than the serialized
+        // instance so we don't have to hold on to it)
         String lastSavedPath = formController.getLastSavedPath();
-        writeFile(payload, new File(lastSavedPath));
+        copyFile(formController.getInstanceFile(), new File(lastSavedPath));
 
         // update the uri. We have exported the reloadable instance, so update status...
         // Since we saved a reloadable instance, it is flagged as re-openable so that if any error
@@ -365,14 +369,12 @@ public class SaveFormToDisk {
             File instanceXml = formController.getInstanceFile();
             File submissionXml = new File(instanceXml.getParentFile(), "submission.xml");
 
-            payload = formController.getSubmissionXml();
-
             // write out submission.xml -- the data to actually submit to aggregate
 
             progressListener.onProgressUpdate(
                     getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.survey_saving_finalizing_message));
 
-            writeFile(payload, submissionXml);
+            writeSubmissionFile(formController, instanceXml, submissionXml);
 
             // see if the form is encrypted and we can encrypt it...
             EncryptedFormInformation formInfo = EncryptionUtils.getEncryptedFormInformation(uri, formController.getSubmissionMetadata());
@@ -471,6 +473,41 @@ public class SaveFormToDisk {
         }
     }
 
+    /**
+     * Writes the submission for the instance just saved to {@code instanceXml}. When the whole
+     * form is submitted, the submission only differs from the instance by leaving out
+     * non-relevant nodes so the instance is copied rather than serialized again if there are none.
+     */
+    @VisibleForTesting
+    static void writeSubmissionFile(FormController formController, File instanceXml, File submissionXml) throws IOException {
+        if (formController.isSubmissionEntireForm() && isRelevant(formController.getFormDef().getMainInstance().getRoot())) {
+            copyFile(instanceXml, submissionXml);
+        } else {
+            writeFile(formController.getSubmissionXml(), submissionXml);
+        }
+    }
+
+    private static boolean isRelevant(TreeElement element) {
+        if (!element.isRelevant()) {
+            return false;
+        }
+
+        for (int i = 0; i < element.getNumChildren(); i++) {
+            if (!isRelevant(element.getChildAt(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void copyFile(File source, File destination) throws IOException {
+        String errorMessage = FileUtils.copyFile(source, destination);
+        if (errorMessage != null) {
+            throw new IOException(errorMessage);
+        }
+    }
+
     /**
      * Writes payload contents to the disk.
      */
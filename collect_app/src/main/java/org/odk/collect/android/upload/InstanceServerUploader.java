@@ -39,9 +39,9 @@ import java.net.URI;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.net.ssl.HttpsURLConnection;
 
@@ -53,7 +53,8 @@ public class InstanceServerUploader extends InstanceUploader {
     private final OpenRosaHttpInterface httpInterface;
     private final WebCredentialsUtils webCredentialsUtils;
     private final Settings generalSettings;
-    private final Map<Uri, Uri> uriRemap = new HashMap<>();
+    private final Map<Uri, SubmissionTarget> submissionTargets = new ConcurrentHashMap<>();
+    private final Map<Uri, Object> targetLocks = new ConcurrentHashMap<>();
 
     public InstanceServerUploader(OpenRosaHttpInterface httpInterface,
                                   WebCredentialsUtils webCredentialsUtils,
@@ -74,88 +75,9 @@ public class InstanceServerUploader extends InstanceUploader {
     public String uploadOneSubmission(Instance instance, String urlString) throws FormUploadException {
         markSubmissionFailed(instance);
 
-        Uri submissionUri = Uri.parse(urlString);
-
-        long contentLength = 10000000L;
-
-        // We already issued a head request and got a response, so we know it was an
-        // OpenRosa-compliant server. We also know the proper URL to send the submission to and
-        // the proper scheme.
-        if (uriRemap.containsKey(submissionUri)) {
-            submissionUri = uriRemap.get(submissionUri);
-            Timber.i("Using Uri remap for submission %s. Now: %s", instance.getDbId(),
-                    submissionUri.toString());
-        } else {
-            if (submissionUri.getHost() == null) {
-                throw new FormUploadException(FAIL + "Host name may not be null");
-            }
-
-            URI uri;
-            try {
-                uri = URI.create(submissionUri.toString());
-            } catch (IllegalArgumentException e) {
-                Timber.d(e.getMessage() != null ? e.getMessage() : e.toString());
-                throw new FormUploadException(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.url_error));
-            }
-
-            HttpHeadResult headResult;
-            CaseInsensitiveHeaders responseHeaders;
-            try {
-                headResult = httpInterface.executeHeadRequest(uri, webCredentialsUtils.getCredentials(uri));
-                responseHeaders = headResult.getHeaders();
-
-                if (responseHeaders.containsHeader(OpenRosaConstants.ACCEPT_CONTENT_LENGTH_HEADER)) {
-                    String contentLengthString = responseHeaders.getAnyValue(OpenRosaConstants.ACCEPT_CONTENT_LENGTH_HEADER);
-                    try {
-                        contentLength = Long.parseLong(contentLengthString);
-                    } catch (Exception e) {
-                        Timber.e(e, "Exception thrown parsing contentLength %s", contentLengthString);
-                    }
-                }
-
-            } catch (Exception e) {
-                throw new FormUploadException(FAIL
-                        + (e.getMessage() != null ? e.getMessage() : e.toString()));
-            }
-
-            if (headResult.getStatusCode() == HttpsURLConnection.HTTP_UNAUTHORIZED) {
-                throw new FormUploadAuthRequestedException(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.server_auth_credentials, submissionUri.getHost()),
-                        submissionUri);
-            } else if (headResult.getStatusCode() == HttpsURLConnection.HTTP_NO_CONTENT) {
-                // Redirect header received
-                if (responseHeaders.containsHeader("Location")) {
-                    try {
-                        Uri newURI = Uri.parse(URLDecoder.decode(responseHeaders.getAnyValue("Location"), "utf-8"));
-                        // Allow redirects within same host. This could be redirecting to HTTPS.
-                        if (submissionUri.getHost().equalsIgnoreCase(newURI.getHost())) {
-                            // Re-add params if server didn't respond with params
-                            if (newURI.getQuery() == null) {
-                                newURI = newURI.buildUpon()
-                                        .encodedQuery(submissionUri.getEncodedQuery())
-                                        .build();
-                            }
-                            uriRemap.put(submissionUri, newURI);
-                            submissionUri = newURI;
-                        } else {
-                            // Don't follow a redirection attempt to a different host.
-                            // We can't tell if this is a spoof or not.
-                            throw new FormUploadException(FAIL
-                                    + "Unexpected redirection attempt to a different host: "
-                                    + newURI.toString());
-                        }
-                    } catch (Exception e) {
-                        throw new FormUploadException(FAIL + urlString + " " + e.toString());
-                    }
-                }
-            } else {
-                if (headResult.getStatusCode() >= HttpsURLConnection.HTTP_OK
-                        && headResult.getStatusCode() < HttpsURLConnection.HTTP_MULT_CHOICE) {
-                    throw new FormUploadException("Failed to send to " + uri + ". Is this an OpenRosa " +
-                            "submission endpoint? If you have a web proxy you may need to log in to " +
-                            "your network.\n\nHEAD request result status code: " + headResult.getStatusCode());
-                }
-            }
-        }
+        SubmissionTarget target = getSubmissionTarget(Uri.parse(urlString), urlString, instance);
+        Uri submissionUri = target.uri;
+        long contentLength = target.contentLength;
 
         // When encrypting submissions, there is a failure window that may mark the submission as
         // complete but leave the file-to-be-uploaded with the name "submission.xml" and the plaintext
@@ -227,6 +149,106 @@ public class InstanceServerUploader extends InstanceUploader {
         return null;
     }
 
+    /**
+     * Issues a HEAD request for a submission URL to find out where submissions should actually be
+     * sent (following a redirect to the same host) and how large they can be. The result is
+     * remembered for the lifetime of the uploader so each server is only checked once even when
+     * submissions are being uploaded concurrently. Failures (including auth requests) are not
+     * remembered so that they are retried for the next submission.
+     */
+    private SubmissionTarget getSubmissionTarget(Uri submissionUri, String urlString, Instance instance) throws FormUploadException {
+        synchronized (targetLocks.computeIfAbsent(submissionUri, key -> new Object())) {
+            SubmissionTarget target = submissionTargets.get(submissionUri);
+            if (target != null) {
+                // We already issued a head request and got a response, so we know it was an
+                // OpenRosa-compliant server. We also know the proper URL to send the submission to and
+                // the proper scheme.
+                Timber.i("Using Uri remap for submission %s. Now: %s", instance.getDbId(),
+                        target.uri.toString());
+                return target;
+            }
+
+            target = requestSubmissionTarget(submissionUri, urlString);
+            submissionTargets.put(submissionUri, target);
+            return target;
+        }
+    }
+
+    private SubmissionTarget requestSubmissionTarget(Uri submissionUri, String urlString) throws FormUploadException {
+        long contentLength = 10000000L;
+
+        if (submissionUri.getHost() == null) {
+            throw new FormUploadException(FAIL + "Host name may not be null");
+        }
+
+        URI uri;
+        try {
+            uri = URI.create(submissionUri.toString());
+        } catch (IllegalArgumentException e) {
+            Timber.d(e.getMessage() != null ? e.getMessage() : e.toString());
+            throw new FormUploadException(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.url_error));
+        }
+
+        HttpHeadResult headResult;
+        CaseInsensitiveHeaders responseHeaders;
+        try {
+            headResult = httpInterface.executeHeadRequest(uri, webCredentialsUtils.getCredentials(uri));
+            responseHeaders = headResult.getHeaders();
+
+            if (responseHeaders.containsHeader(OpenRosaConstants.ACCEPT_CONTENT_LENGTH_HEADER)) {
+                String contentLengthString = responseHeaders.getAnyValue(OpenRosaConstants.ACCEPT_CONTENT_LENGTH_HEADER);
+                try {
+                    contentLength = Long.parseLong(contentLengthString);
+                } catch (Exception e) {
+                    Timber.e(e, "Exception thrown parsing contentLength %s", contentLengthString);
+                }
+            }
+
+        } catch (Exception e) {
+            throw new FormUploadException(FAIL
+                    + (e.getMessage() != null ? e.getMessage() : e.toString()));
+        }
+
+        if (headResult.getStatusCode() == HttpsURLConnection.HTTP_UNAUTHORIZED) {
+            throw new FormUploadAuthRequestedException(getLocalizedString(Collect.getInstance(), org.odk.collect.strings.R.string.server_auth_credentials, submissionUri.getHost()),
+                    submissionUri);
+        } else if (headResult.getStatusCode() == HttpsURLConnection.HTTP_NO_CONTENT) {
+            // Redirect header received
+            if (responseHeaders.containsHeader("Location")) {
+                try {
+                    Uri newURI = Uri.parse(URLDecoder.decode(responseHeaders.getAnyValue("Location"), "utf-8"));
+                    // Allow redirects within same host. This could be redirecting to HTTPS.
+                    if (submissionUri.getHost().equalsIgnoreCase(newURI.getHost())) {
+                        // Re-add params if server didn't respond with params
+                        if (newURI.getQuery() == null) {
+                            newURI = newURI.buildUpon()
+                                    .encodedQuery(submissionUri.getEncodedQuery())
+                                    .build();
+                        }
+                        submissionUri = newURI;
+                    } else {
+                        // Don't follow a redirection attempt to a different host.
+                        // We can't tell if this is a spoof or not.
+                        throw new FormUploadException(FAIL
+                                + "Unexpected redirection attempt to a different host: "
+                                + newURI.toString());
+                    }
+                } catch (Exception e) {
+                    throw new FormUploadException(FAIL + urlString + " " + e.toString());
+                }
+            }
+        } else {
+            if (headResult.getStatusCode() >= HttpsURLConnection.HTTP_OK
+                    && headResult.getStatusCode() < HttpsURLConnection.HTTP_MULT_CHOICE) {
+                throw new FormUploadException("Failed to send to " + uri + ". Is this an OpenRosa " +
+                        "submission endpoint? If you have a web proxy you may need to log in to " +
+                        "your network.\n\nHEAD request result status code: " + headResult.getStatusCode());
+            }
+        }
+
+        return new SubmissionTarget(submissionUri, contentLength);
+    }
+
     private List<File> getFilesInParentDirectory(File instanceFile, File submissionFile) {
         List<File> files = new ArrayList<>();
 
@@ -294,4 +316,14 @@ public class InstanceServerUploader extends InstanceUploader {
 
         return serverBase + OpenRosaConstants.SUBMISSION;
     }
+
+    private static class SubmissionTarget {
+        final Uri uri;
+        final long contentLength;
+
+        SubmissionTarget(Uri uri, long contentLength) {
+            this.uri = uri;
+            this.contentLength = contentLength;
+        }
+    }
 }
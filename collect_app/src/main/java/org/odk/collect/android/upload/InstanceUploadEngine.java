@@ -0,0 +1,103 @@
+package org.odk.collect.android.upload;
+
+import androidx.annotation.Nullable;
+
+import org.odk.collect.forms.instances.Instance;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Uploads instances with an {@link InstanceUploader} running a bounded number of uploads at the
+ * same time. Instances of the same form are still uploaded one after another in the order they
+ * are passed in so that the server receives each form's submissions in order.
+ */
+public class InstanceUploadEngine {
+
+    public static final int DEFAULT_MAX_CONCURRENT_UPLOADS = 3;
+
+    private final InstanceUploader uploader;
+    private final int maxConcurrentUploads;
+
+    public InstanceUploadEngine(InstanceUploader uploader) {
+        this(uploader, DEFAULT_MAX_CONCURRENT_UPLOADS);
+    }
+
+    public InstanceUploadEngine(InstanceUploader uploader, int maxConcurrentUploads) {
+        this.uploader = uploader;
+        this.maxConcurrentUploads = maxConcurrentUploads;
+    }
+
+    /**
+     * Uploads the instances and blocks until they have all been attempted or {@code isCancelled}
+     * returns true. The listener is called from the threads doing the uploads.
+     */
+    public void upload(List<Instance> instances, String deviceId, @Nullable String overrideUrl,
+                       BooleanSupplier isCancelled, Listener listener) {
+        Map<String, List<Instance>> instancesByForm = new LinkedHashMap<>();
+        for (Instance instance : instances) {
+            instancesByForm.computeIfAbsent(instance.getFormId(), formId -> new ArrayList<>()).add(instance);
+        }
+
+        if (instancesByForm.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(maxConcurrentUploads, instancesByForm.size())));
+        try {
+            List<Future<?>> uploads = new ArrayList<>();
+            for (List<Instance> formInstances : instancesByForm.values()) {
+                uploads.add(executor.submit(() -> uploadInOrder(formInstances, deviceId, overrideUrl, isCancelled, listener)));
+            }
+
+            for (Future<?> upload : uploads) {
+                upload.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw new RuntimeException(e.getCause());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void uploadInOrder(List<Instance> instances, String deviceId, @Nullable String overrideUrl,
+                               BooleanSupplier isCancelled, Listener listener) {
+        for (Instance instance : instances) {
+            if (isCancelled.getAsBoolean()) {
+                return;
+            }
+
+            listener.onUploadStarted(instance);
+
+            try {
+                String destinationUrl = uploader.getUrlToSubmitTo(instance, deviceId, overrideUrl, null);
+                String customMessage = uploader.uploadOneSubmission(instance, destinationUrl);
+                listener.onUploadSucceeded(instance, customMessage);
+            } catch (FormUploadException e) {
+                listener.onUploadFailed(instance, e);
+            }
+        }
+    }
+
+    public interface Listener {
+
+        void onUploadStarted(Instance instance);
+
+        void onUploadSucceeded(Instance instance, @Nullable String customMessage);
+
+        void onUploadFailed(Instance instance, FormUploadException exception);
+    }
+}
@@ -18,6 +18,7 @@ import android.net.Uri;
 import android.util.Base64;
 
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import org.apache.commons.io.IOUtils;
 import org.kxml2.io.KXmlSerializer;
@@ -33,14 +34,16 @@ import org.odk.collect.forms.Form;
 import org.odk.collect.forms.instances.Instance;
 import org.odk.collect.shared.strings.Md5;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.security.DigestInputStream;
+import java.security.GeneralSecurityException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.KeyFactory;
@@ -54,10 +57,13 @@ import java.security.spec.X509EncodedKeySpec;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
-import javax.crypto.CipherOutputStream;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.spec.IvParameterSpec;
@@ -100,6 +106,8 @@ public class EncryptionUtils {
             "base64EncryptedElementSignature";
     private static final String NEW_LINE = "\n";
     private static final String ENCRYPTION_PROVIDER = "BC";
+    private static final int ENCRYPTION_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_ENCRYPTION_THREADS = 3;
 
     private EncryptionUtils() {
     }
@@ -116,8 +124,9 @@ public class EncryptionUtils {
         public final StringBuilder elementSignatureSource = new StringBuilder();
         private boolean isNotBouncyCastle;
 
-        EncryptedFormInformation(String formId, String formVersion,
-                                 InstanceMetadata instanceMetadata, PublicKey rsaPublicKey) {
+        @VisibleForTesting(otherwise = VisibleForTesting.PACKAGE_PRIVATE)
+        public EncryptedFormInformation(String formId, String formVersion,
+                                        InstanceMetadata instanceMetadata, PublicKey rsaPublicKey) {
             this.formId = formId;
             this.formVersion = formVersion;
             this.instanceMetadata = instanceMetadata;
@@ -173,8 +182,7 @@ public class EncryptionUtils {
             elementSignatureSource.append(value).append('\n');
         }
 
-        public void appendFileSignatureSource(File file) {
-            String md5Hash = Md5.getMd5Hash(file);
+        public void appendFileSignatureSource(File file, String md5Hash) {
             appendElementSignatureSource(file.getName() + "::" + md5Hash);
         }
 
@@ -345,7 +353,13 @@ public class EncryptionUtils {
         return new EncryptedFormInformation(formId, formVersion, instanceMetadata, pk);
     }
 
-    private static void encryptFile(File file, EncryptedFormInformation formInfo)
+    /**
+     * Encrypts {@code file} to a ".enc" file next to it with {@code cipher}, computing the MD5
+     * hash of the plaintext as it is read so the file only needs to be read once.
+     *
+     * @return the MD5 hash of {@code file} formatted the same way as {@link Md5#getMd5Hash(File)}
+     */
+    private static String encryptFile(File file, Cipher cipher)
             throws IOException, EncryptionException {
         File encryptedFile = new File(file.getParentFile(), file.getName()
                 + ".enc");
@@ -355,42 +369,94 @@ public class EncryptionUtils {
                     + ". Perhaps the file is locked?");
         }
 
-        // add elementSignatureSource for this file...
-        formInfo.appendFileSignatureSource(file);
-
-        RandomAccessFile randomAccessFile = null;
-        CipherOutputStream cipherOutputStream = null;
         try {
-            Cipher c = formInfo.getCipher();
-
-            randomAccessFile = new RandomAccessFile(encryptedFile, "rws");
-            ByteArrayOutputStream encryptedData = new ByteArrayOutputStream();
-            cipherOutputStream = new CipherOutputStream(encryptedData, c);
-            InputStream fin = new FileInputStream(file);
-            byte[] buffer = new byte[2048];
-            int len = fin.read(buffer);
-            while (len != -1) {
-                cipherOutputStream.write(buffer, 0, len);
-                len = fin.read(buffer);
+            MessageDigest md = MessageDigest.getInstance("MD5");
+
+            try (InputStream fin = new DigestInputStream(new FileInputStream(file), md);
+                 FileOutputStream fileOutputStream = new FileOutputStream(encryptedFile)) {
+                OutputStream out = new BufferedOutputStream(fileOutputStream, ENCRYPTION_BUFFER_SIZE);
+                byte[] buffer = new byte[ENCRYPTION_BUFFER_SIZE];
+                int len = fin.read(buffer);
+                while (len != -1) {
+                    byte[] encrypted = cipher.update(buffer, 0, len);
+                    if (encrypted != null) {
+                        out.write(encrypted);
+                    }
+                    len = fin.read(buffer);
+                }
+                out.write(cipher.doFinal());
+                out.flush();
+
+                // make sure the file is on disk before the plaintext is deleted
+                fileOutputStream.getFD().sync();
             }
-            fin.close();
-            cipherOutputStream.flush();
-            cipherOutputStream.close();
-
-            randomAccessFile.write(encryptedData.toByteArray());
 
             Timber.i("Encrpyted:%s -> %s", file.getName(), encryptedFile.getName());
+
+            return Md5.toHex(md.digest());
         } catch (Exception e) {
             String msg = "Error encrypting: " + file.getName() + " -> "
                     + encryptedFile.getName();
             Timber.e(e, "%s due to %s ", msg, e.getMessage());
             throw new EncryptionException(msg, e);
-        } finally {
-            IOUtils.closeQuietly(cipherOutputStream);
+        }
+    }
+
+    /**
+     * Encrypts {@code files} on a bounded pool and then adds them to the signature in order. The
+     * ciphers are created up front (in order) because each one's IV depends on the ones created
+     * before it.
+     */
+    private static void encryptFiles(List<File> files, EncryptedFormInformation formInfo)
+            throws IOException, EncryptionException {
+        List<Cipher> ciphers = new ArrayList<>();
+        for (File file : files) {
+            try {
+                ciphers.add(formInfo.getCipher());
+            } catch (GeneralSecurityException e) {
+                String msg = "Error encrypting: " + file.getName();
+                Timber.e(e, "%s due to %s ", msg, e.getMessage());
+                throw new EncryptionException(msg, e);
+            }
+        }
 
-            if (randomAccessFile != null) {
-                randomAccessFile.close();
+        int threads = Math.min(files.size(), Math.min(MAX_ENCRYPTION_THREADS, Runtime.getRuntime().availableProcessors()));
+        List<String> md5Hashes = new ArrayList<>();
+        if (threads <= 1) {
+            for (int i = 0; i < files.size(); i++) {
+                md5Hashes.add(encryptFile(files.get(i), ciphers.get(i)));
             }
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<String>> encryptions = new ArrayList<>();
+                for (int i = 0; i < files.size(); i++) {
+                    File file = files.get(i);
+                    Cipher cipher = ciphers.get(i);
+                    encryptions.add(executor.submit(() -> encryptFile(file, cipher)));
+                }
+
+                for (Future<String> encryption : encryptions) {
+                    md5Hashes.add(encryption.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EncryptionException("Interrupted while encrypting", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof EncryptionException) {
+                    throw (EncryptionException) e.getCause();
+                } else if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                } else {
+                    throw new EncryptionException("Error encrypting", e.getCause());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        for (int i = 0; i < files.size(); i++) {
+            formInfo.appendFileSignatureSource(files.get(i), md5Hashes.get(i));
         }
     }
 
@@ -456,13 +522,10 @@ public class EncryptionUtils {
                 filesToProcess.add(f);
             }
         }
-        // encrypt here...
-        for (File f : filesToProcess) {
-            encryptFile(f, formInfo);
-        }
-
-        // encrypt the submission.xml as the last file...
-        encryptFile(submissionXml, formInfo);
+        // encrypt here (with the submission.xml as the last file)...
+        List<File> filesToEncrypt = new ArrayList<>(filesToProcess);
+        filesToEncrypt.add(submissionXml);
+        encryptFiles(filesToEncrypt, formInfo);
 
         return filesToProcess;
     }
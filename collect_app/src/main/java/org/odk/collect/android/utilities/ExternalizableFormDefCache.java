@@ -1,24 +1,86 @@
 package org.odk.collect.android.utilities;
 
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
 import org.javarosa.core.model.FormDef;
 import org.javarosa.core.util.externalizable.ExtUtil;
+import org.odk.collect.android.BuildConfig;
 import org.odk.collect.android.formentry.FormDefCache;
 import org.odk.collect.android.storage.StoragePathProvider;
 import org.odk.collect.android.storage.StorageSubdirectory;
+import org.odk.collect.db.sqlite.Metrics;
+import org.odk.collect.forms.Form;
 import org.odk.collect.shared.strings.Md5;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
 import timber.log.Timber;
 
-/** Methods for reading from and writing to the FormDef cache */
+/**
+ * Methods for reading from and writing to the FormDef cache. Cache files are named after the MD5
+ * hash of the form XML and start with a header identifying the format and app version that wrote
+ * them, then a stamp (the size and last modified time of the XML when it was cached) and finally
+ * the serialized FormDef.
+ */
 public final class ExternalizableFormDefCache implements FormDefCache {
 
+    private static final int MAGIC = 0x4F444B46; // "ODKF"
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = 28; // magic, format version, app version and stamp
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private static final Metrics METRICS = new Metrics("Form def cache");
+
+    private static final int MEMORY_CACHE_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Recently read or written cache files (keyed by path) shared across instances so that
+     * reopening a form doesn't need to read its cache file again. This holds serialized bytes
+     * rather than FormDef objects as a FormDef is modified during form entry.
+     */
+    private static final LruCache<String, byte[]> MEMORY_CACHE = new LruCache<String, byte[]>(MEMORY_CACHE_SIZE) {
+        @Override
+        protected int sizeOf(String key, byte[] value) {
+            return value.length;
+        }
+    };
+
+    @Nullable
+    private final String cacheDir;
+    private final boolean useMemoryCache;
+
+    public ExternalizableFormDefCache() {
+        this(true);
+    }
+
+    /**
+     * @param useMemoryCache whether recently used cache files should be kept in memory
+     */
+    public ExternalizableFormDefCache(boolean useMemoryCache) {
+        this(null, useMemoryCache);
+    }
+
+    /**
+     * @param cacheDir the cache directory of the project the forms belong to or null to use the
+     *                 current project's
+     * @param useMemoryCache whether recently used cache files should be kept in memory
+     */
+    public ExternalizableFormDefCache(@Nullable String cacheDir, boolean useMemoryCache) {
+        this.cacheDir = cacheDir;
+        this.useMemoryCache = useMemoryCache;
+    }
+
     /**
      * Serializes a FormDef and saves it in the cache. To avoid problems from two callers
      * trying to cache the same file at the same time, we serialize into a temporary file,
@@ -29,18 +91,101 @@ public final class ExternalizableFormDefCache implements FormDefCache {
      */
     @Override
     public void writeCache(FormDef formDef, String formPath) throws IOException {
+        File formXml = new File(formPath);
+        writeCache(formDef, formXml, getCacheFile(formXml));
+    }
+
+    /**
+     * Serializes a FormDef and saves it in the cache using the MD5 hash stored for the form
+     * rather than hashing the form XML.
+     */
+    @Override
+    public void writeCache(FormDef formDef, Form form) throws IOException {
+        if (form.getMD5Hash() == null) {
+            writeCache(formDef, form.getFormFilePath());
+        } else {
+            writeCache(formDef, new File(form.getFormFilePath()), getCacheFile(form.getMD5Hash()));
+        }
+    }
+
+    /**
+     * If a form is present in the cache, deserializes and returns it as as FormDef.
+     * @param formXml a File containing the XML version of the form
+     * @return a FormDef, or null if the form is not present in the cache
+     */
+    @Override
+    public FormDef readCache(File formXml) {
+        return readCache(formXml, getCacheFile(formXml), false);
+    }
+
+    /**
+     * Like {@link #readCache(File)} but finds the cache file using the MD5 hash stored for the
+     * form. The form XML is only hashed if it has changed size or been modified since it was
+     * cached.
+     */
+    @Override
+    public FormDef readCache(Form form) {
+        File formXml = new File(form.getFormFilePath());
+        if (form.getMD5Hash() == null) {
+            return readCache(formXml);
+        }
+
+        File cachedForm = getCacheFile(form.getMD5Hash());
+        if (!cachedForm.exists()) {
+            return null;
+        }
+
+        FormDef formDef = readCache(formXml, cachedForm, true);
+        if (formDef != null) {
+            return formDef;
+        }
+
+        String md5Hash = Md5.getMd5Hash(formXml);
+        if (md5Hash == null) {
+            return null;
+        } else if (md5Hash.equals(form.getMD5Hash())) {
+            // The form XML was touched without changing (re-copied or restored for example) so
+            // refresh the stamp to avoid hashing it again next time
+            updateStamp(cachedForm, formXml);
+            return readCache(formXml, cachedForm, false);
+        } else {
+            return readCache(formXml, getCacheFile(md5Hash), false);
+        }
+    }
+
+    private void updateStamp(File cachedForm, File formXml) {
+        if (!cachedForm.exists()) {
+            return;
+        }
+
+        MEMORY_CACHE.remove(cachedForm.getAbsolutePath());
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(cachedForm, "rw")) {
+            randomAccessFile.seek(HEADER_SIZE - 16);
+            randomAccessFile.writeLong(formXml.length());
+            randomAccessFile.writeLong(formXml.lastModified());
+        } catch (IOException e) {
+            Timber.w(e, "Unable to update stamp for cache file %s", cachedForm.getName());
+        }
+    }
+
+    private void writeCache(FormDef formDef, File formXml, File cachedFormDefFile) throws IOException {
         final long formSaveStart = System.currentTimeMillis();
-        File cachedFormDefFile = ExternalizableFormDefCache.getCacheFile(new File(formPath));
-        final File tempCacheFile = File.createTempFile("cache", null,
-                new File(new StoragePathProvider().getOdkDirPath(StorageSubdirectory.CACHE)));
+        final File tempCacheFile = File.createTempFile("cache", null, new File(getCacheDir()));
         Timber.i("Started saving %s to the cache via temp file %s",
                 formDef.getTitle(), tempCacheFile.getName());
 
+        byte[] serialized = null;
         Exception caughtException = null;
         try {
-            DataOutputStream dos = new DataOutputStream(new FileOutputStream(tempCacheFile));
-            formDef.writeExternal(dos);
-            dos.close();
+            final long serializeStart = System.nanoTime();
+            serialized = serializeFormDef(formDef, formXml);
+
+            final long ioStart = System.nanoTime();
+            try (FileOutputStream fos = new FileOutputStream(tempCacheFile)) {
+                fos.write(serialized);
+            }
+            METRICS.record("serialize", ioStart - serializeStart);
+            METRICS.record("write", System.nanoTime() - ioStart);
         } catch (IOException exception) {
             caughtException = exception;
         }
@@ -60,6 +205,11 @@ public final class ExternalizableFormDefCache implements FormDefCache {
                         tempCacheFile.getName(), cachedFormDefFile.getName());
                 Timber.i("Caching %s took %.3f seconds.", formDef.getTitle(),
                         (System.currentTimeMillis() - formSaveStart) / 1000F);
+                METRICS.logSummary();
+
+                if (useMemoryCache) {
+                    MEMORY_CACHE.put(cachedFormDefFile.getAbsolutePath(), serialized);
+                }
             } else {
                 Timber.e(new Error("Unable to rename temporary file " + tempCacheFile + " to cache file " + cachedFormDefFile));
             }
@@ -71,46 +221,132 @@ public final class ExternalizableFormDefCache implements FormDefCache {
     }
 
     /**
-     * If a form is present in the cache, deserializes and returns it as as FormDef.
-     * @param formXml a File containing the XML version of the form
-     * @return a FormDef, or null if the form is not present in the cache
+     * @param checkStamp whether to only return the cached FormDef if the form XML hasn't changed
+     *                   size or been modified since it was cached
      */
-    @Override
-    public FormDef readCache(File formXml) {
-        final File cachedForm = getCacheFile(formXml);
+    private FormDef readCache(File formXml, File cachedForm, boolean checkStamp) {
         if (cachedForm.exists()) {
             Timber.i("Attempting to load %s from cached file: %s.", formXml.getName(), cachedForm.getName());
             final long start = System.currentTimeMillis();
 
             try {
-                final FormDef deserializedFormDef = deserializeFormDef(cachedForm);
-                if (deserializedFormDef != null) {
-                    Timber.i("Loaded in %.3f seconds.", (System.currentTimeMillis() - start) / 1000F);
-                    return deserializedFormDef;
+                final long ioStart = System.nanoTime();
+                byte[] serialized = useMemoryCache ? MEMORY_CACHE.get(cachedForm.getAbsolutePath()) : null;
+                if (serialized == null) {
+                    serialized = readFile(cachedForm);
+                }
+                final long ioNanos = System.nanoTime() - ioStart;
+
+                if (!hasCurrentHeader(serialized)) {
+                    Timber.i("Discarding cache file %s written by a different version", cachedForm.getName());
+                    METRICS.record("invalidated");
+                    MEMORY_CACHE.remove(cachedForm.getAbsolutePath());
+                    cachedForm.delete();
+                    return null;
+                }
+
+                if (checkStamp && !hasStamp(serialized, formXml)) {
+                    return null;
+                }
+
+                final long deserializeStart = System.nanoTime();
+                final FormDef deserializedFormDef = deserializeFormDef(serialized);
+                METRICS.record("read", ioNanos);
+                METRICS.record("deserialize", System.nanoTime() - deserializeStart);
+
+                if (useMemoryCache) {
+                    MEMORY_CACHE.put(cachedForm.getAbsolutePath(), serialized);
                 }
+
+                Timber.i("Loaded in %.3f seconds.", (System.currentTimeMillis() - start) / 1000F);
+                METRICS.logSummary();
+                return deserializedFormDef;
             } catch (Exception e) {
                 // New .formdef will be created from XML
                 Timber.w("Deserialization FAILED! Deleting cache file: %s", cachedForm.getAbsolutePath());
                 Timber.e(e, "Deserialization FAILED!");
+                MEMORY_CACHE.remove(cachedForm.getAbsolutePath());
                 cachedForm.delete();
             }
         }
         return null;
     }
 
+    @VisibleForTesting
+    public static Metrics getMetrics() {
+        return METRICS;
+    }
+
     /**
      * Builds and returns a File object for the cached version of a form.
      * @param formXml the File containing the XML form
      * @return a File object
      */
-    private static File getCacheFile(File formXml) {
-        return new File(new StoragePathProvider().getOdkDirPath(StorageSubdirectory.CACHE) + File.separator +
-                Md5.getMd5Hash(formXml) + ".formdef");
+    private File getCacheFile(File formXml) {
+        return getCacheFile(Md5.getMd5Hash(formXml));
+    }
+
+    private File getCacheFile(String md5Hash) {
+        return new File(getCacheDir() + File.separator + md5Hash + ".formdef");
+    }
+
+    private String getCacheDir() {
+        if (cacheDir != null) {
+            return cacheDir;
+        } else {
+            return new StoragePathProvider().getOdkDirPath(StorageSubdirectory.CACHE);
+        }
+    }
+
+    /**
+     * Reads the whole file with a single read into an array of the right size rather than
+     * letting {@link FormDef#readExternal} pull from the file a primitive at a time.
+     */
+    private static byte[] readFile(File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            byte[] bytes = new byte[(int) randomAccessFile.length()];
+            randomAccessFile.readFully(bytes);
+            return bytes;
+        }
+    }
+
+    private static byte[] serializeFormDef(FormDef formDef, File formXml) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(INITIAL_BUFFER_SIZE);
+        try (DataOutputStream dos = new DataOutputStream(bytes)) {
+            dos.writeInt(MAGIC);
+            dos.writeInt(FORMAT_VERSION);
+            dos.writeInt(BuildConfig.VERSION_CODE);
+            dos.writeLong(formXml.length());
+            dos.writeLong(formXml.lastModified());
+            formDef.writeExternal(dos);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Whether the cache file was written in this format by this version of the app. Anything
+     * else (including files from before the header was added) can't safely be deserialized.
+     */
+    private static boolean hasCurrentHeader(byte[] serializedFormDef) {
+        if (serializedFormDef.length < HEADER_SIZE) {
+            return false;
+        }
+
+        ByteBuffer header = ByteBuffer.wrap(serializedFormDef);
+        return header.getInt() == MAGIC
+                && header.getInt() == FORMAT_VERSION
+                && header.getInt() == BuildConfig.VERSION_CODE;
+    }
+
+    private static boolean hasStamp(byte[] serializedFormDef, File formXml) {
+        ByteBuffer stamp = ByteBuffer.wrap(serializedFormDef, HEADER_SIZE - 16, 16);
+        return stamp.getLong() == formXml.length() && stamp.getLong() == formXml.lastModified();
     }
 
-    private static FormDef deserializeFormDef(File serializedFormDef) throws Exception {
+    private static FormDef deserializeFormDef(byte[] serializedFormDef) throws Exception {
         FormDef fd;
-        try (DataInputStream dis = new DataInputStream(new FileInputStream(serializedFormDef))) {
+        try (DataInputStream dis = new DataInputStream(new ByteArrayInputStream(serializedFormDef, HEADER_SIZE, serializedFormDef.length - HEADER_SIZE))) {
             fd = new FormDef();
             fd.readExternal(dis, ExtUtil.defaultPrototypes());
         }
@@ -0,0 +1,73 @@
+package org.odk.collect.android.benchmark
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.odk.collect.android.benchmark.support.JvmBenchmarker
+import org.odk.collect.android.benchmark.support.JvmBenchmarker.Companion.size
+import org.odk.collect.android.javarosawrapper.InstanceMetadata
+import org.odk.collect.android.utilities.EncryptionUtils
+import org.odk.collect.android.utilities.EncryptionUtils.EncryptedFormInformation
+import org.odk.collect.shared.TempFiles
+import java.io.File
+import java.security.KeyPairGenerator
+import kotlin.random.Random
+
+/**
+ * Benchmarks encrypting a submission with `benchmark.size` answers and [MEDIA_FILES]
+ * attachments of 100 bytes for every item of `benchmark.size`.
+ */
+@RunWith(AndroidJUnit4::class)
+class EncryptionJvmBenchmarkTest {
+
+    private val publicKey = KeyPairGenerator.getInstance(EncryptionUtils.RSA_ALGORITHM)
+        .also { it.initialize(2048) }
+        .generateKeyPair()
+        .public
+
+    private lateinit var instanceDir: File
+
+    @Test
+    fun encryption() {
+        val benchmarker = JvmBenchmarker("encryption")
+
+        benchmarker.benchmark("Encrypting submission", setup = ::createInstance) {
+            val formInfo = EncryptedFormInformation(
+                "benchmark",
+                "1",
+                InstanceMetadata("uuid:benchmark", null, null),
+                publicKey
+            )
+
+            EncryptionUtils.generateEncryptedSubmission(
+                File(instanceDir, "instance.xml"),
+                File(instanceDir, "submission.xml"),
+                formInfo
+            )
+        }
+
+        val encryptedFiles = instanceDir.listFiles()!!.filter { it.name.endsWith(".enc") }
+        assertThat(encryptedFiles.size, equalTo(MEDIA_FILES + 1))
+
+        benchmarker.writeResults()
+    }
+
+    private fun createInstance() {
+        instanceDir = TempFiles.createTempDir()
+
+        val answers = 0.until(size).joinToString("") { "<q$it>Answer $it</q$it>" }
+        val instance = "<?xml version='1.0' ?><data id=\"benchmark\">$answers<meta><instanceID>uuid:benchmark</instanceID></meta></data>"
+        File(instanceDir, "instance.xml").writeText(instance)
+        File(instanceDir, "submission.xml").writeText(instance)
+
+        0.until(MEDIA_FILES).forEach {
+            File(instanceDir, "media$it.jpg").writeBytes(Random.nextBytes(size * 100))
+        }
+    }
+
+    companion object {
+        private const val MEDIA_FILES = 3
+    }
+}
@@ -0,0 +1,80 @@
+package org.odk.collect.android.benchmark
+
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.notNullValue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.odk.collect.android.benchmark.support.JvmBenchmarker
+import org.odk.collect.android.benchmark.support.JvmBenchmarker.Companion.size
+import org.odk.collect.android.database.entities.DatabaseEntitiesRepository
+import org.odk.collect.entities.javarosa.intance.LocalEntitiesInstanceAdapter
+import org.odk.collect.entities.storage.Entity
+import org.odk.collect.shared.Query
+import org.odk.collect.shared.TempFiles
+
+@RunWith(AndroidJUnit4::class)
+class EntitiesJvmBenchmarkTest {
+
+    @Test
+    fun entities() {
+        val benchmarker = JvmBenchmarker("entities")
+        var repository = buildRepository()
+
+        benchmarker.benchmark("Saving $size entities", setup = { repository = buildRepository() }) {
+            repository.save(LIST, entities())
+        }
+
+        val matching = benchmarker.benchmark("Querying by property") {
+            repository.query(LIST, Query.StringEq("category", "7"))
+        }
+        assertThat(matching.size, equalTo((0 until size).count { it % CATEGORIES == 7 }))
+
+        benchmarker.benchmark("Querying by label") {
+            repository.query(LIST, Query.StringEq("label", "Entity ${size / 2}"))
+        }
+
+        benchmarker.benchmark("Accessing every entity by index") {
+            0.until(size).forEach {
+                repository.getByIndex(LIST, it)
+            }
+        }
+
+        benchmarker.benchmark("Accessing every element by index through instance adapter") {
+            val adapter = LocalEntitiesInstanceAdapter(repository)
+            0.until(size).forEach {
+                assertThat(adapter.getByIndex(LIST, it), notNullValue())
+            }
+        }
+
+        benchmarker.writeResults()
+    }
+
+    private fun buildRepository(): DatabaseEntitiesRepository {
+        return DatabaseEntitiesRepository(
+            ApplicationProvider.getApplicationContext(),
+            TempFiles.createTempDir().absolutePath,
+            System::currentTimeMillis
+        )
+    }
+
+    private fun entities(): Sequence<Entity> {
+        return (0 until size).asSequence().map {
+            Entity.New(
+                "id-$it",
+                "Entity $it",
+                properties = listOf(
+                    Pair("category", (it % CATEGORIES).toString()),
+                    Pair("description", "Description for entity $it")
+                )
+            )
+        }
+    }
+
+    companion object {
+        private const val LIST = "things"
+        private const val CATEGORIES = 10
+    }
+}
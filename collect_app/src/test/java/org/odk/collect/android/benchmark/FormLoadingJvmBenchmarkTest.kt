@@ -0,0 +1,93 @@
+package org.odk.collect.android.benchmark
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.notNullValue
+import org.javarosa.xform.util.XFormUtils
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.odk.collect.android.benchmark.support.JvmBenchmarker
+import org.odk.collect.android.benchmark.support.JvmBenchmarker.Companion.size
+import org.odk.collect.android.storage.StoragePathProvider
+import org.odk.collect.android.storage.StorageSubdirectory
+import org.odk.collect.android.support.CollectHelpers
+import org.odk.collect.android.utilities.ExternalizableFormDefCache
+import org.odk.collect.android.utilities.FileUtils
+import java.io.File
+
+/**
+ * Benchmarks the steps of loading a form that `FormLoaderTask` goes through: parsing the XML
+ * and then writing and reading the serialized `FormDef` cache. The form has one question for
+ * every 10 items of `benchmark.size`.
+ */
+@RunWith(AndroidJUnit4::class)
+class FormLoadingJvmBenchmarkTest {
+
+    private lateinit var formXml: File
+
+    @Before
+    fun setup() {
+        CollectHelpers.setupDemoProject()
+
+        formXml = File(StoragePathProvider().getOdkDirPath(StorageSubdirectory.FORMS), "benchmark.xml")
+        formXml.writeText(buildForm(size / 10))
+    }
+
+    @Test
+    fun formLoading() {
+        val benchmarker = JvmBenchmarker("form-loading")
+        val formDefCache = ExternalizableFormDefCache()
+
+        val formDef = benchmarker.benchmark("Parsing form with ${size / 10} questions") {
+            val lastSavedSrc = FileUtils.getOrCreateLastSavedSrc(formXml)
+            XFormUtils.getFormFromFormXml(formXml.absolutePath, lastSavedSrc)
+        }
+        assertThat(formDef.mainInstance.root.numChildren, equalTo(size / 10 + 1))
+
+        benchmarker.benchmark("Writing form to cache") {
+            formDefCache.writeCache(formDef, formXml.path)
+        }
+
+        val cached = benchmarker.benchmark("Reading form from cache") {
+            formDefCache.readCache(formXml)
+        }
+        assertThat(cached, notNullValue())
+
+        benchmarker.writeResults()
+    }
+
+    private fun buildForm(questions: Int): String {
+        val instance = StringBuilder()
+        val binds = StringBuilder()
+        val body = StringBuilder()
+
+        0.until(questions).forEach {
+            instance.append("<q$it/>")
+            if (it == 0) {
+                binds.append("<bind nodeset=\"/data/q$it\" type=\"string\"/>")
+            } else {
+                binds.append("<bind nodeset=\"/data/q$it\" type=\"string\" relevant=\"/data/q${it - 1} != 'skip'\"/>")
+            }
+            body.append("<input ref=\"/data/q$it\"><label>Question $it</label></input>")
+        }
+
+        return """
+            <?xml version="1.0"?>
+            <h:html xmlns="http://www.w3.org/2002/xforms" xmlns:h="http://www.w3.org/1999/xhtml" xmlns:jr="http://openrosa.org/javarosa" xmlns:orx="http://openrosa.org/xforms">
+                <h:head>
+                    <h:title>Benchmark</h:title>
+                    <model>
+                        <instance>
+                            <data id="benchmark">$instance<meta><instanceID/></meta></data>
+                        </instance>
+                        $binds
+                        <bind nodeset="/data/meta/instanceID" type="string" readonly="true()" jr:preload="uid"/>
+                    </model>
+                </h:head>
+                <h:body>$body</h:body>
+            </h:html>
+        """.trimIndent()
+    }
+}
@@ -0,0 +1,57 @@
+package org.odk.collect.android.benchmark
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.odk.collect.android.benchmark.support.JvmBenchmarker
+import org.odk.collect.android.benchmark.support.JvmBenchmarker.Companion.size
+import org.odk.collect.shared.geometry.Point
+import org.odk.collect.shared.geometry.Trace
+import org.odk.collect.shared.geometry.intersects
+import kotlin.math.PI
+import kotlin.math.cos
+import kotlin.math.sin
+
+/**
+ * Benchmarks checking traces and shapes of `benchmark.size` points for self intersections (as
+ * `intersects()` and geotrace/geoshape recording do). None of them intersect so every segment
+ * has to be checked.
+ */
+@RunWith(AndroidJUnit4::class)
+class GeometryJvmBenchmarkTest {
+
+    @Test
+    fun intersects() {
+        val benchmarker = JvmBenchmarker("geometry")
+
+        // A spiral as if someone was walking around a site recording points as they go
+        val trace = Trace(
+            0.until(size).map {
+                val angle = it * 0.05
+                val radius = 1 + angle * 0.1
+                Point(radius * cos(angle), radius * sin(angle))
+            }
+        )
+
+        val traceIntersects = benchmarker.benchmark("Checking trace for intersections") {
+            trace.intersects()
+        }
+        assertThat(traceIntersects, equalTo(false))
+
+        val shape = Trace(
+            0.until(size).map {
+                val angle = 2 * PI * it / size
+                Point(cos(angle), sin(angle))
+            } + Point(1.0, 0.0)
+        )
+
+        val shapeIntersects = benchmarker.benchmark("Checking shape for intersections") {
+            shape.intersects()
+        }
+        assertThat(shapeIntersects, equalTo(false))
+
+        benchmarker.writeResults()
+    }
+}
@@ -0,0 +1,77 @@
+package org.odk.collect.android.benchmark
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.odk.collect.android.benchmark.support.JvmBenchmarker
+import org.odk.collect.android.benchmark.support.JvmBenchmarker.Companion.size
+import org.odk.collect.android.fastexternalitemset.ItemsetDao
+import org.odk.collect.android.fastexternalitemset.ItemsetDbAdapter
+import org.odk.collect.android.fastexternalitemset.ItemsetsImporter
+import org.odk.collect.android.storage.StoragePathProvider
+import org.odk.collect.android.storage.StorageSubdirectory
+import org.odk.collect.android.support.CollectHelpers
+import java.io.File
+
+/**
+ * Benchmarks importing and filtering an `itemsets.csv` with `benchmark.size` rows with
+ * [ItemsetsImporter] and [ItemsetDao].
+ */
+@RunWith(AndroidJUnit4::class)
+class ItemsetsJvmBenchmarkTest {
+
+    private lateinit var mediaDir: File
+    private lateinit var itemsetsCsv: File
+
+    @Before
+    fun setup() {
+        CollectHelpers.setupDemoProject()
+
+        mediaDir = File(StoragePathProvider().getOdkDirPath(StorageSubdirectory.FORMS), "benchmark-media")
+        mediaDir.mkdirs()
+        itemsetsCsv = File(mediaDir, "itemsets.csv")
+        itemsetsCsv.writeText(
+            "list_name,name,label,state\n" +
+                0.until(size).joinToString("\n") { "cities,city$it,City $it,state${it % STATES}" }
+        )
+    }
+
+    @Test
+    fun itemsets() {
+        val benchmarker = JvmBenchmarker("itemsets")
+        val pathHash = ItemsetDbAdapter.getMd5FromString(itemsetsCsv.absolutePath)
+
+        benchmarker.benchmark("Importing $size items", setup = { ItemsetDbAdapter().open().use { it.delete(itemsetsCsv.absolutePath) } }) {
+            ItemsetsImporter.importIfChanged(ItemsetDbAdapter(), mediaDir)
+        }
+
+        val count = benchmarker.benchmark("Filtering items by state") {
+            ItemsetDbAdapter().open().use { adapter ->
+                adapter.query(pathHash, "list_name=? and \"state\"=?", arrayOf("cities", "state7")).use {
+                    var count = 0
+                    while (it.moveToNext()) {
+                        it.getString(it.getColumnIndex("label"))
+                        count++
+                    }
+                    count
+                }
+            }
+        }
+        assertThat(count, equalTo(0.until(size).count { it % STATES == 7 }))
+
+        val itemsetDao = ItemsetDao(ItemsetDbAdapter())
+        val label = benchmarker.benchmark("Looking up item label") {
+            itemsetDao.getItemLabel("city${size - 1}", mediaDir.absolutePath, "")
+        }
+        assertThat(label, equalTo("City ${size - 1}"))
+
+        benchmarker.writeResults()
+    }
+
+    companion object {
+        private const val STATES = 50
+    }
+}
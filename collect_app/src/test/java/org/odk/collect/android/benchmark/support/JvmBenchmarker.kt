@@ -0,0 +1,79 @@
+package org.odk.collect.android.benchmark.support
+
+import org.json.JSONArray
+import org.json.JSONObject
+import java.io.File
+
+/**
+ * Times actions for JVM (Robolectric) benchmarks and writes the results as JSON to
+ * `benchmark.output` (`build/benchmark-results` by default) so that runs can be compared by CI.
+ *
+ * Dataset size and iteration counts come from the `benchmark.size`, `benchmark.warmup` and
+ * `benchmark.iterations` system properties (see `benchmark-jvm.sh`).
+ */
+class JvmBenchmarker(private val suite: String) {
+
+    private val results = mutableListOf<Result>()
+
+    fun <T> benchmark(name: String, setup: () -> Unit = {}, action: () -> T): T {
+        var result: T? = null
+
+        repeat(warmup) {
+            setup()
+            result = action()
+        }
+
+        val timings = (0 until iterations).map {
+            setup()
+            val startTime = System.nanoTime()
+            result = action()
+            System.nanoTime() - startTime
+        }
+
+        results.add(Result(name, timings))
+
+        // Actions are always run at least once so this is only null if the action returned null
+        @Suppress("UNCHECKED_CAST")
+        return result as T
+    }
+
+    fun writeResults() {
+        val json = JSONObject()
+            .put("suite", suite)
+            .put("size", size)
+            .put("warmup", warmup)
+            .put("iterations", iterations)
+            .put(
+                "results",
+                JSONArray().also { array ->
+                    results.forEach {
+                        array.put(
+                            JSONObject()
+                                .put("name", it.name)
+                                .put("minMs", it.min)
+                                .put("medianMs", it.median)
+                                .put("maxMs", it.max)
+                        )
+                    }
+                }
+            )
+
+        val outputDir = File(System.getProperty("benchmark.output") ?: "build/benchmark-results")
+        outputDir.mkdirs()
+        File(outputDir, "$suite.json").writeText(json.toString(2))
+    }
+
+    private data class Result(val name: String, val timings: List<Long>) {
+        val min = timings.min() / NANOS_PER_MS
+        val max = timings.max() / NANOS_PER_MS
+        val median = timings.sorted()[timings.size / 2] / NANOS_PER_MS
+    }
+
+    companion object {
+        private const val NANOS_PER_MS = 1_000_000.0
+
+        val size = System.getProperty("benchmark.size")?.toIntOrNull() ?: 10_000
+        val warmup = System.getProperty("benchmark.warmup")?.toIntOrNull() ?: 1
+        val iterations = (System.getProperty("benchmark.iterations")?.toIntOrNull() ?: 5).coerceAtLeast(1)
+    }
+}
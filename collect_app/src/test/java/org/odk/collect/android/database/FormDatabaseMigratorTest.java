@@ -12,7 +12,11 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.odk.collect.android.database.forms.FormDatabaseMigrator;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertTrue;
@@ -25,7 +29,9 @@ import static org.odk.collect.android.database.forms.DatabaseFormColumns.DELETED
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.DESCRIPTION;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.DISPLAY_NAME;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.USES_ENTITIES;
+import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_FILE_LAST_MODIFIED;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_FILE_PATH;
+import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_FILE_SIZE;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.FORM_MEDIA_PATH;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.GEOMETRY_XPATH;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.JRCACHE_FILE_PATH;
@@ -37,6 +43,8 @@ import static org.odk.collect.android.database.forms.DatabaseFormColumns.LAST_DE
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.MD5_HASH;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns.SUBMISSION_URI;
 import static org.odk.collect.android.database.forms.DatabaseFormColumns._ID;
+import static org.odk.collect.android.database.forms.FormDatabaseMigrator.FORM_FILE_PATH_INDEX;
+import static org.odk.collect.android.database.forms.FormDatabaseMigrator.FORM_ID_AND_VERSION_INDEX;
 
 @RunWith(AndroidJUnit4.class)
 public class FormDatabaseMigratorTest {
@@ -45,7 +53,7 @@ public class FormDatabaseMigratorTest {
 
     @Before
     public void setup() {
-        assertThat("Test expects different Forms DB version", DatabaseConstants.FORMS_DATABASE_VERSION, is(14));
+        assertThat("Test expects different Forms DB version", DatabaseConstants.FORMS_DATABASE_VERSION, is(16));
         database = SQLiteDatabase.create(null);
     }
 
@@ -76,6 +84,59 @@ public class FormDatabaseMigratorTest {
         }
     }
 
+    @Test
+    public void onCreate_createsIndexes() {
+        new FormDatabaseMigrator().onCreate(database);
+        assertThat(getIndexNames(), hasItems(FORM_ID_AND_VERSION_INDEX, FORM_FILE_PATH_INDEX));
+    }
+
+    @Test
+    public void onUpgrade_fromVersion15() {
+        int oldVersion = 15;
+        database.setVersion(oldVersion);
+        FormDatabaseMigrator formDatabaseMigrator = new FormDatabaseMigrator();
+
+        formDatabaseMigrator.createFormsTableV15(database);
+        ContentValues contentValues = getContentValuesForFormV14();
+        database.insert(FORMS_TABLE_NAME, null, contentValues);
+
+        formDatabaseMigrator.onUpgrade(database, oldVersion);
+
+        assertThat(getIndexNames(), hasItems(FORM_ID_AND_VERSION_INDEX, FORM_FILE_PATH_INDEX));
+        try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
+            assertThat(cursor.getColumnCount(), is(21));
+            assertThat(cursor.getCount(), is(1));
+        }
+    }
+
+    @Test
+    public void onUpgrade_fromVersion14() {
+        int oldVersion = 14;
+        database.setVersion(oldVersion);
+        FormDatabaseMigrator formDatabaseMigrator = new FormDatabaseMigrator();
+
+        formDatabaseMigrator.createFormsTableV14(database);
+        ContentValues contentValues = getContentValuesForFormV14();
+        database.insert(FORMS_TABLE_NAME, null, contentValues);
+
+        formDatabaseMigrator.onUpgrade(database, oldVersion);
+
+        try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
+            assertThat(cursor.getColumnCount(), is(21));
+            assertThat(cursor.getCount(), is(1));
+
+            cursor.moveToFirst();
+
+            assertThat(cursor.getInt(cursor.getColumnIndex(_ID)), is(1));
+            assertThat(cursor.getString(cursor.getColumnIndex(DISPLAY_NAME)), is(contentValues.getAsString(DISPLAY_NAME)));
+            assertThat(cursor.getString(cursor.getColumnIndex(MD5_HASH)), is(contentValues.getAsString(MD5_HASH)));
+            assertThat(cursor.getString(cursor.getColumnIndex(FORM_FILE_PATH)), is(contentValues.getAsString(FORM_FILE_PATH)));
+            assertThat(cursor.getString(cursor.getColumnIndex(USES_ENTITIES)), is(contentValues.getAsString(USES_ENTITIES)));
+            assertThat(cursor.isNull(cursor.getColumnIndex(FORM_FILE_SIZE)), is(true));
+            assertThat(cursor.isNull(cursor.getColumnIndex(FORM_FILE_LAST_MODIFIED)), is(true));
+        }
+    }
+
     @Test
     public void onUpgrade_fromVersion13() {
         int oldVersion = 13;
@@ -89,7 +150,7 @@ public class FormDatabaseMigratorTest {
         formDatabaseMigrator.onUpgrade(database, oldVersion);
 
         try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
-            assertThat(cursor.getColumnCount(), is(19));
+            assertThat(cursor.getColumnCount(), is(21));
             assertThat(cursor.getCount(), is(1));
 
             cursor.moveToFirst();
@@ -129,7 +190,7 @@ public class FormDatabaseMigratorTest {
         formDatabaseMigrator.onUpgrade(database, oldVersion);
 
         try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
-            assertThat(cursor.getColumnCount(), is(19));
+            assertThat(cursor.getColumnCount(), is(21));
             assertThat(cursor.getCount(), is(1));
 
             cursor.moveToFirst();
@@ -171,7 +232,7 @@ public class FormDatabaseMigratorTest {
         formDatabaseMigrator.onUpgrade(database, oldVersion);
 
         try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
-            assertThat(cursor.getColumnCount(), is(19));
+            assertThat(cursor.getColumnCount(), is(21));
             assertThat(cursor.getCount(), is(1));
 
             cursor.moveToFirst();
@@ -211,7 +272,7 @@ public class FormDatabaseMigratorTest {
         formDatabaseMigrator.onUpgrade(database, oldVersion);
 
         try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
-            assertThat(cursor.getColumnCount(), is(19));
+            assertThat(cursor.getColumnCount(), is(21));
             assertThat(cursor.getCount(), is(1));
 
             cursor.moveToFirst();
@@ -251,7 +312,7 @@ public class FormDatabaseMigratorTest {
         formDatabaseMigrator.onUpgrade(database, oldVersion);
 
         try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
-            assertThat(cursor.getColumnCount(), is(19));
+            assertThat(cursor.getColumnCount(), is(21));
             assertThat(cursor.getCount(), is(1));
 
             cursor.moveToFirst();
@@ -292,7 +353,7 @@ public class FormDatabaseMigratorTest {
         formDatabaseMigrator.onUpgrade(database, oldVersion);
 
         try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
-            assertThat(cursor.getColumnCount(), is(19));
+            assertThat(cursor.getColumnCount(), is(21));
             assertThat(cursor.getCount(), is(1));
 
             cursor.moveToFirst();
@@ -332,7 +393,7 @@ public class FormDatabaseMigratorTest {
         formDatabaseMigrator.onUpgrade(database, oldVersion);
 
         try (Cursor cursor = database.rawQuery("SELECT * FROM " + FORMS_TABLE_NAME + ";", new String[]{})) {
-            assertThat(cursor.getColumnCount(), is(19));
+            assertThat(cursor.getColumnCount(), is(21));
             assertThat(cursor.getCount(), is(1));
 
             cursor.moveToFirst();
@@ -486,4 +547,21 @@ public class FormDatabaseMigratorTest {
     private ContentValues getContentValuesForFormV13() {
         return getContentValuesForFormV12(); // there were no new columns added in v13
     }
+
+    private ContentValues getContentValuesForFormV14() {
+        ContentValues contentValues = getContentValuesForFormV13();
+        contentValues.put(USES_ENTITIES, "true");
+        return contentValues;
+    }
+
+    private List<String> getIndexNames() {
+        List<String> indexNames = new ArrayList<>();
+        try (Cursor cursor = database.rawQuery("SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = ?;", new String[]{FORMS_TABLE_NAME})) {
+            while (cursor.moveToNext()) {
+                indexNames.add(cursor.getString(0));
+            }
+        }
+
+        return indexNames;
+    }
 }
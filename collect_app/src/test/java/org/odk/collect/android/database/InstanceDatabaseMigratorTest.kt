@@ -6,6 +6,7 @@ import android.provider.BaseColumns._ID
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import org.hamcrest.MatcherAssert.assertThat
 import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.hasItems
 import org.junit.After
 import org.junit.Before
 import org.junit.Test
@@ -25,6 +26,8 @@ import org.odk.collect.android.database.instances.DatabaseInstanceColumns.LAST_S
 import org.odk.collect.android.database.instances.DatabaseInstanceColumns.STATUS
 import org.odk.collect.android.database.instances.DatabaseInstanceColumns.SUBMISSION_URI
 import org.odk.collect.android.database.instances.InstanceDatabaseMigrator
+import org.odk.collect.android.database.instances.InstanceDatabaseMigrator.FORM_ID_AND_VERSION_INDEX
+import org.odk.collect.android.database.instances.InstanceDatabaseMigrator.STATUS_INDEX
 import org.odk.collect.forms.instances.Instance
 
 @RunWith(AndroidJUnit4::class)
@@ -35,7 +38,7 @@ class InstanceDatabaseMigratorTest {
 
     @Before
     fun setup() {
-        assertThat("Test expects different Instances DB version", DatabaseConstants.INSTANCES_DATABASE_VERSION, equalTo(10))
+        assertThat("Test expects different Instances DB version", DatabaseConstants.INSTANCES_DATABASE_VERSION, equalTo(11))
     }
 
     @After
@@ -65,6 +68,30 @@ class InstanceDatabaseMigratorTest {
         }
     }
 
+    @Test
+    fun onCreate_createsIndexes() {
+        instancesDatabaseMigrator.onCreate(database)
+        assertThat(getIndexNames(), hasItems(STATUS_INDEX, FORM_ID_AND_VERSION_INDEX))
+    }
+
+    @Test
+    fun onUpgrade_fromVersion10() {
+        val oldVersion = 10
+        database.version = oldVersion
+        instancesDatabaseMigrator.createInstancesTableV10(database)
+
+        val contentValues = getContentValuesForInstanceV9()
+
+        database.insert(DatabaseConstants.INSTANCES_TABLE_NAME, null, contentValues)
+        instancesDatabaseMigrator.onUpgrade(database, oldVersion)
+
+        assertThat(getIndexNames(), hasItems(STATUS_INDEX, FORM_ID_AND_VERSION_INDEX))
+        database.rawQuery("SELECT * FROM " + DatabaseConstants.INSTANCES_TABLE_NAME + ";", arrayOf<String>()).use { cursor ->
+            assertThat(cursor.columnCount, equalTo(16))
+            assertThat(cursor.count, equalTo(1))
+        }
+    }
+
     @Test
     fun onUpgrade_fromVersion9_setsFinalizationDateToLastStatusChangedDate_forFinalizedStatuses() {
         val finalizedStatuses = listOf(
@@ -339,4 +366,13 @@ class InstanceDatabaseMigratorTest {
             putNull(EDIT_NUMBER)
         }
     }
+
+    private fun getIndexNames(): List<String> {
+        return database.rawQuery(
+            "SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = ?;",
+            arrayOf(DatabaseConstants.INSTANCES_TABLE_NAME)
+        ).use { cursor ->
+            generateSequence { if (cursor.moveToNext()) cursor.getString(0) else null }.toList()
+        }
+    }
 }
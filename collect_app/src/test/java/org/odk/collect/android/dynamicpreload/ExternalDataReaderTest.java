@@ -35,6 +35,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.odk.collect.android.dynamicpreload.ExternalDataUtil.COLUMN_DATASET_FILENAME;
 import static org.odk.collect.android.dynamicpreload.ExternalDataUtil.COLUMN_MD5_HASH;
+import static org.odk.collect.android.dynamicpreload.ExternalDataUtil.EXTERNAL_DATA_FTS_TABLE_NAME;
 import static org.odk.collect.android.dynamicpreload.ExternalDataUtil.EXTERNAL_DATA_TABLE_NAME;
 import static org.odk.collect.android.dynamicpreload.ExternalDataUtil.EXTERNAL_METADATA_TABLE_NAME;
 
@@ -87,6 +88,56 @@ public class ExternalDataReaderTest {
         assertThat(SQLiteUtils.doesTableExist(db, EXTERNAL_METADATA_TABLE_NAME), is(true));
     }
 
+    @Test
+    public void doImport_createsFullTextIndexForSearchColumns() throws IOException {
+        try (Writer out = new BufferedWriter(new FileWriter(csvFile))) {
+            out.write("name,label_search\nred_apple,Red Apple\ngreen_apple,Green Apple\nbanana,Banana");
+        }
+
+        ExternalDataReader externalDataReader = new ExternalDataReaderImpl(() -> false, mock());
+        externalDataReader.doImport(formDefToCsvMedia);
+
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(dbFile.getAbsolutePath(), null, SQLiteDatabase.OPEN_READONLY);
+        assertThat(SQLiteUtils.doesTableExist(db, EXTERNAL_DATA_FTS_TABLE_NAME), is(true));
+
+        Cursor cursor = db.rawQuery("SELECT docid FROM " + EXTERNAL_DATA_FTS_TABLE_NAME + " WHERE "
+                + EXTERNAL_DATA_FTS_TABLE_NAME + " MATCH ?", new String[]{"c_label_search:app*"});
+        assertThat(cursor.getCount(), is(2));
+        cursor.close();
+        db.close();
+    }
+
+    @Test
+    public void doImport_doesNotCreateFullTextIndexWithoutSearchColumns() {
+        ExternalDataReader externalDataReader = new ExternalDataReaderImpl(() -> false, mock());
+        externalDataReader.doImport(formDefToCsvMedia);
+
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(dbFile.getAbsolutePath(), null, SQLiteDatabase.OPEN_READONLY);
+        assertThat(SQLiteUtils.doesTableExist(db, EXTERNAL_DATA_FTS_TABLE_NAME), is(false));
+        db.close();
+    }
+
+    @Test
+    public void doImport_importsEachDataSetIntoItsOwnDatabase() throws IOException {
+        File otherCsvFile = new File(csvFile.getParentFile(), "vegetables.csv");
+        try (Writer out = new BufferedWriter(new FileWriter(otherCsvFile))) {
+            out.write("name,label\ncarrot,Carrot\npotato,Potato");
+        }
+        formDefToCsvMedia.put("vegetables", otherCsvFile);
+
+        ExternalDataReader externalDataReader = new ExternalDataReaderImpl(() -> false, mock());
+        externalDataReader.doImport(formDefToCsvMedia);
+
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(dbFile.getAbsolutePath(), null, SQLiteDatabase.OPEN_READONLY);
+        assertThat(db.rawQuery(SELECT_ALL_DATA_QUERY, null).getCount(), is(3));
+        db.close();
+
+        File otherDbFile = new File(csvFile.getParentFile(), "vegetables.db");
+        db = SQLiteDatabase.openDatabase(otherDbFile.getAbsolutePath(), null, SQLiteDatabase.OPEN_READONLY);
+        assertThat(db.rawQuery(SELECT_ALL_DATA_QUERY, null).getCount(), is(2));
+        db.close();
+    }
+
     /**
      * There are multiple features that ingest CSV files so the original file should not be modified.
      * https://github.com/getodk/collect/issues/3335
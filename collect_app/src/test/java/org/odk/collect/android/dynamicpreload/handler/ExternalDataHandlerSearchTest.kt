@@ -0,0 +1,127 @@
+package org.odk.collect.android.dynamicpreload.handler
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.containsInAnyOrder
+import org.javarosa.core.model.SelectChoice
+import org.javarosa.core.model.condition.EvaluationContext
+import org.javarosa.core.model.instance.FormInstance
+import org.javarosa.core.model.instance.TreeElement
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.mock
+import org.odk.collect.android.dynamicpreload.ExternalDataManagerImpl
+import org.odk.collect.android.dynamicpreload.ExternalDataReaderImpl
+import org.odk.collect.android.storage.StoragePathProvider
+import org.odk.collect.android.storage.StorageSubdirectory
+import org.odk.collect.android.support.CollectHelpers
+import java.io.File
+
+@RunWith(AndroidJUnit4::class)
+class ExternalDataHandlerSearchTest {
+
+    private lateinit var mediaDir: File
+    private lateinit var externalDataManager: ExternalDataManagerImpl
+
+    @Before
+    fun setup() {
+        CollectHelpers.setupDemoProject()
+
+        mediaDir = File(StoragePathProvider().getOdkDirPath(StorageSubdirectory.FORMS), "search-media")
+        mediaDir.mkdirs()
+        externalDataManager = ExternalDataManagerImpl(mediaDir)
+    }
+
+    @After
+    fun teardown() {
+        externalDataManager.close()
+    }
+
+    @Test
+    fun `contains matches values containing the queried value anywhere`() {
+        importFruits("name,label\nred_apple,Red Apple\npineapple,Pineapple\nbanana,Banana\n")
+
+        assertThat(search("contains", "label", "apple"), containsInAnyOrder("red_apple", "pineapple"))
+    }
+
+    @Test
+    fun `contains matches values containing the queried value in the middle of a word when there is a full-text index`() {
+        importFruits("name,label_search\nred_apple,Red Apple\npineapple,Pineapple\nbanana,Banana\n")
+
+        assertThat(search("contains", "label_search", "apple"), containsInAnyOrder("red_apple", "pineapple"))
+        assertThat(search("contains", "label_search", "nan"), containsInAnyOrder("banana"))
+    }
+
+    @Test
+    fun `startsWith matches values starting with the queried value`() {
+        importFruits("name,label\nred_apple,Red Apple\nred_grape,Red Grape\napple_red,Apple Red\n")
+
+        assertThat(search("startsWith", "label", "red"), containsInAnyOrder("red_apple", "red_grape"))
+    }
+
+    @Test
+    fun `startsWith matches values starting with the queried value when there is a full-text index`() {
+        importFruits("name,label_search\nred_apple,Red Apple\nred_grape,Red Grape\napple_red,Apple Red\n")
+
+        assertThat(search("startsWith", "label_search", "red"), containsInAnyOrder("red_apple", "red_grape"))
+        assertThat(search("startsWith", "label_search", "red ap"), containsInAnyOrder("red_apple"))
+    }
+
+    @Test
+    fun `searches match any of multiple queried columns`() {
+        importFruits(
+            "name,label_search,colour_search\n" +
+                "red_apple,Apple,Red\n" +
+                "banana,Banana,Yellow\n" +
+                "red_grape,Grape,Red\n"
+        )
+
+        assertThat(
+            search("startsWith", "label_search,colour_search", "gr"),
+            containsInAnyOrder("red_grape")
+        )
+        assertThat(
+            search("startsWith", "label_search,colour_search", "re"),
+            containsInAnyOrder("red_apple", "red_grape")
+        )
+        assertThat(
+            search("contains", "label_search,colour_search", "ell"),
+            containsInAnyOrder("banana")
+        )
+    }
+
+    @Test
+    fun `searches match queried values with punctuation`() {
+        importFruits(
+            "name,label_search\n" +
+                "granny_smith,Granny Smith's Apple\n" +
+                "red_delicious,Red-Delicious\n" +
+                "crab_apple,(Crab) Apple\n"
+        )
+
+        assertThat(search("contains", "label_search", "h's ap"), containsInAnyOrder("granny_smith"))
+        assertThat(search("startsWith", "label_search", "red-del"), containsInAnyOrder("red_delicious"))
+        assertThat(search("startsWith", "label_search", "("), containsInAnyOrder("crab_apple"))
+    }
+
+    private fun importFruits(csv: String) {
+        val csvFile = File(mediaDir, "fruits.csv")
+        csvFile.writeText(csv)
+        ExternalDataReaderImpl({ false }, mock()).doImport(mapOf("fruits" to csvFile))
+    }
+
+    private fun search(searchType: String, queriedColumns: String, queriedValue: String): List<String> {
+        val handler = ExternalDataHandlerSearch(externalDataManager, null, "name", null)
+        val evaluationContext = EvaluationContext(FormInstance(TreeElement("data")))
+
+        @Suppress("UNCHECKED_CAST")
+        val choices = handler.eval(
+            arrayOf("fruits", searchType, queriedColumns, queriedValue),
+            evaluationContext
+        ) as List<SelectChoice>
+
+        return choices.map { it.value }
+    }
+}
@@ -0,0 +1,55 @@
+package org.odk.collect.android.dynamicpreload.handler
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.nullValue
+import org.hamcrest.Matchers.sameInstance
+import org.junit.Test
+import org.odk.collect.shared.TempFiles
+
+class PullDataCacheTest {
+
+    private val databaseFile = TempFiles.createTempFile()
+    private val cache = PullDataCache()
+
+    @Test
+    fun `#getLookups returns the same lookups for the same columns`() {
+        val lookups = cache.getLookups(databaseFile, "c_queried", "c_reference")
+        lookups.put("value", "result")
+
+        val sameLookups = cache.getLookups(databaseFile, "c_queried", "c_reference")
+        assertThat(sameLookups, sameInstance(lookups))
+        assertThat(sameLookups.get("value"), equalTo("result"))
+        assertThat(cache.getLookups(databaseFile, "c_other", "c_reference").get("value"), nullValue())
+    }
+
+    @Test
+    fun `#getLookups drops lookups when the database file changes`() {
+        cache.getLookups(databaseFile, "c_queried", "c_reference").put("value", "result")
+
+        databaseFile.setLastModified(databaseFile.lastModified() - 10_000)
+        assertThat(cache.getLookups(databaseFile, "c_queried", "c_reference").get("value"), nullValue())
+    }
+
+    @Test
+    fun `Lookups#get after #putAll matches case insensitively and returns empty string for missing values`() {
+        val lookups = PullDataCache.Lookups()
+        lookups.putAll(mapOf("apple" to "red"))
+
+        assertThat(lookups.get("APPLE"), equalTo("red"))
+        assertThat(lookups.get("banana"), equalTo(""))
+    }
+
+    @Test
+    fun `Lookups#shouldLoadAll is true once enough values have been looked up`() {
+        val lookups = PullDataCache.Lookups()
+        0.until(15).forEach { lookups.put("value$it", "result") }
+        assertThat(lookups.shouldLoadAll(), equalTo(false))
+
+        lookups.put("value15", "result")
+        assertThat(lookups.shouldLoadAll(), equalTo(true))
+
+        lookups.loadAllFailed()
+        assertThat(lookups.shouldLoadAll(), equalTo(false))
+    }
+}
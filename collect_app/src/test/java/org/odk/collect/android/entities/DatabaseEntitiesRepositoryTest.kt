@@ -1,15 +1,25 @@
 package org.odk.collect.android.entities
 
+import android.database.sqlite.SQLiteDatabase
 import androidx.test.core.app.ApplicationProvider
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.containsString
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.hasItem
+import org.hamcrest.Matchers.not
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.odk.collect.android.database.entities.DatabaseEntitiesRepository
 import org.odk.collect.android.entities.support.EntitySameAsMatcher.Companion.sameEntityAs
+import org.odk.collect.db.sqlite.CursorExt.foldAndClose
+import org.odk.collect.entities.LocalEntityUseCases
 import org.odk.collect.entities.storage.EntitiesRepository
 import org.odk.collect.entities.storage.Entity
+import org.odk.collect.formstest.FormFixtures
+import org.odk.collect.shared.Query
 import org.odk.collect.shared.TempFiles
+import java.io.File
 
 @RunWith(AndroidJUnit4::class)
 class DatabaseEntitiesRepositoryTest : EntitiesRepositoryTest() {
@@ -37,4 +47,96 @@ class DatabaseEntitiesRepositoryTest : EntitiesRepositoryTest() {
         repository.save("things", savedEntity)
         assertThat(repository.query("things")[0], sameEntityAs(savedEntity))
     }
+
+    @Test
+    fun `#query creates an index for properties compared with string equality`() {
+        val dbDir = TempFiles.createTempDir().absolutePath
+        val repository = DatabaseEntitiesRepository(ApplicationProvider.getApplicationContext(), dbDir) { 0 }
+        repository.save(
+            "things",
+            Entity.New("1", "One", properties = listOf(Pair("colour", "red"))),
+            Entity.New("2", "Two", properties = listOf(Pair("colour", "blue")))
+        )
+        assertThat(getIndexSql(dbDir, "things"), not(hasItem(containsString("colour"))))
+
+        val query = Query.StringEq("colour", "red")
+        assertThat(repository.query("things", query).map { it.id }, equalTo(listOf("1")))
+        assertThat(getIndexSql(dbDir, "things"), hasItem(containsString("colour")))
+
+        val queryPlan = repository.explainQuery("things", query)
+        assertThat(queryPlan, hasItem(containsString("USING INDEX")))
+    }
+
+    @Test
+    fun `#query uses indexes created by another repository for the same database`() {
+        val dbDir = TempFiles.createTempDir().absolutePath
+        val repository = DatabaseEntitiesRepository(ApplicationProvider.getApplicationContext(), dbDir) { 0 }
+        repository.save(
+            "things",
+            Entity.New("1", "One", properties = listOf(Pair("colour", "red"))),
+            Entity.New("2", "Two", properties = listOf(Pair("colour", "blue")))
+        )
+
+        val query = Query.StringEq("colour", "red")
+        repository.query("things", query)
+
+        val otherRepository = DatabaseEntitiesRepository(ApplicationProvider.getApplicationContext(), dbDir) { 0 }
+        assertThat(otherRepository.query("things", query).map { it.id }, equalTo(listOf("1")))
+        assertThat(otherRepository.explainQuery("things", query), hasItem(containsString("USING INDEX")))
+    }
+
+    @Test
+    fun `#explainQuery shows a scan for numeric comparisons`() {
+        val repository = buildSubject() as DatabaseEntitiesRepository
+        repository.save(
+            "things",
+            Entity.New("1", "One", properties = listOf(Pair("size", "1")))
+        )
+
+        val queryPlan = repository.explainQuery("things", Query.NumericEq("size", 1.0))
+        assertThat(queryPlan, hasItem(containsString("SCAN")))
+    }
+
+    @Test
+    fun `LocalEntityUseCases#updateLocalEntitiesFromServer does not save any entities when a row after the first save chunk is invalid`() {
+        val repository = buildSubject()
+        repository.save("songs", Entity.New("existing", "Existing", state = Entity.State.ONLINE))
+        repository.updateList("songs", "oldHash", false)
+
+        val csv = TempFiles.createTempFile()
+        csv.writeText(
+            "name,label,__version\n" +
+                (1..DatabaseEntitiesRepository.SAVE_CHUNK_SIZE * 2).joinToString("") { "$it,Song $it,1\n" } +
+                "invalid,Invalid\n"
+        )
+
+        LocalEntityUseCases.updateLocalEntitiesFromServer(
+            "songs",
+            csv,
+            repository,
+            FormFixtures.mediaFile(hash = "newHash")
+        )
+
+        assertThat(repository.getCount("songs"), equalTo(1))
+        assertThat(repository.query("songs")[0].id, equalTo("existing"))
+        assertThat(repository.getList("songs")!!.hash, equalTo("oldHash"))
+    }
+
+    /**
+     * Reads the indexes straight from the database file rather than through the repository (which
+     * would create any missing ones).
+     */
+    private fun getIndexSql(dbDir: String, table: String): List<String> {
+        val database = SQLiteDatabase.openDatabase(
+            File(dbDir, "entities.db").absolutePath,
+            null,
+            SQLiteDatabase.OPEN_READONLY
+        )
+
+        return database.use {
+            it.rawQuery("SELECT sql FROM sqlite_master WHERE type = 'index' AND tbl_name = ?", arrayOf(table))
+                .foldAndClose { cursor -> cursor.getString(0) }
+                .filterNotNull()
+        }
+    }
 }
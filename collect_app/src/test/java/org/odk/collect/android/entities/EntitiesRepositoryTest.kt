@@ -10,6 +10,7 @@ import org.odk.collect.android.entities.support.EntitySameAsMatcher.Companion.sa
 import org.odk.collect.entities.storage.EntitiesRepository
 import org.odk.collect.entities.storage.Entity
 import org.odk.collect.entities.storage.EntityList
+import org.odk.collect.entities.storage.EntityVersion
 import org.odk.collect.entities.storage.QueryException
 import org.odk.collect.entities.storage.getListNames
 import org.odk.collect.shared.Query
@@ -302,6 +303,31 @@ abstract class EntitiesRepositoryTest {
         assertThat(repository.query("wines").size, equalTo(2))
     }
 
+    @Test
+    fun `#save with a sequence saves new entities and updates existing ones`() {
+        val repository = buildSubject()
+
+        val wine1 = Entity.New("1", "Léoville Barton 2008")
+        repository.save("wines", wine1)
+
+        val updatedWine1 = wine1.copy(label = "Léoville Barton 2009", version = 2)
+        val wine2 = Entity.New("2", "Chateau Pontet Canet")
+        repository.save("wines", sequenceOf(updatedWine1, wine2))
+
+        val entities = repository.query("wines")
+        assertThat(entities.size, equalTo(2))
+        assertThat(entities[0], sameEntityAs(updatedWine1))
+        assertThat(entities[1], sameEntityAs(wine2))
+    }
+
+    @Test
+    fun `#save with an empty sequence does not create a list`() {
+        val repository = buildSubject()
+
+        repository.save("wines", emptySequence())
+        assertThat(repository.getLists().size, equalTo(0))
+    }
+
     @Test
     fun `#save assigns an index to each entity in insert order when saving multiple entities`() {
         /**
@@ -428,6 +454,25 @@ abstract class EntitiesRepositoryTest {
         assertThat(wines[2].index, equalTo(2))
     }
 
+    @Test
+    fun `#delete with multiple ids removes all the entities and keeps index values in sequence`() {
+        val repository = buildSubject()
+
+        val leoville = Entity.New("1", "Léoville Barton 2008")
+        val canet = Entity.New("2", "Pontet-Canet 2014")
+        val gloria = Entity.New("3", "Chateau Gloria 2016")
+        val margaux = Entity.New("4", "Chateau Margaux 2010")
+        val palmer = Entity.New("5", "Chateau Palmer 2012")
+        repository.save("wines", leoville, canet, gloria, margaux, palmer)
+
+        repository.delete("wines", listOf("4", "2", "missing"))
+
+        val wines = repository.query("wines")
+        assertThat(wines.map { it.id }, contains("1", "3", "5"))
+        assertThat(wines.map { it.index }, contains(0, 1, 2))
+        assertThat(repository.getByIndex("wines", 2)!!.id, equalTo("5"))
+    }
+
     @Test
     fun `#getCount returns 0 when a list is empty`() {
         val repository = buildSubject()
@@ -516,6 +561,66 @@ abstract class EntitiesRepositoryTest {
         assertThat(repository.getByIndex("other.favourite.wines", canetIndex), sameEntityAs(canet))
     }
 
+    @Test
+    fun `#getVersions returns version information for each entity in list`() {
+        val repository = buildSubject()
+
+        val springbank = Entity.New("1", "Springbank 10", version = 2, trunkVersion = 1, branchId = "branch")
+        val aultmore = Entity.New("2", "Aultmore 12", state = Entity.State.ONLINE)
+        repository.save("whiskys", springbank, aultmore)
+
+        assertThat(
+            repository.getVersions("whiskys"),
+            containsInAnyOrder(
+                EntityVersion("1", 2, 1, "branch", Entity.State.OFFLINE),
+                EntityVersion("2", 1, null, "", Entity.State.ONLINE)
+            )
+        )
+    }
+
+    @Test
+    fun `#getVersions returns empty list when the list does not exist`() {
+        val repository = buildSubject()
+        assertThat(repository.getVersions("whiskys"), equalTo(emptyList()))
+    }
+
+    @Test
+    fun `#getPage returns entities in index order starting at offset`() {
+        val repository = buildSubject()
+
+        val springbank = Entity.New("1", "Springbank 10")
+        val aultmore = Entity.New("2", "Aultmore 12")
+        val lagavulin = Entity.New("3", "Lagavulin 16")
+        val talisker = Entity.New("4", "Talisker 10")
+        repository.save("whiskys", springbank, aultmore, lagavulin, talisker)
+
+        val page = repository.getPage("whiskys", 1, 2)
+        assertThat(page.size, equalTo(2))
+        assertThat(page[0], sameEntityAs(aultmore))
+        assertThat(page[0].index, equalTo(1))
+        assertThat(page[1], sameEntityAs(lagavulin))
+        assertThat(page[1].index, equalTo(2))
+    }
+
+    @Test
+    fun `#getPage returns remaining entities when limit goes past the end of the list`() {
+        val repository = buildSubject()
+
+        val springbank = Entity.New("1", "Springbank 10")
+        val aultmore = Entity.New("2", "Aultmore 12")
+        repository.save("whiskys", springbank, aultmore)
+
+        val page = repository.getPage("whiskys", 1, 10)
+        assertThat(page.size, equalTo(1))
+        assertThat(page[0], sameEntityAs(aultmore))
+    }
+
+    @Test
+    fun `#getPage returns empty list when the list does not exist`() {
+        val repository = buildSubject()
+        assertThat(repository.getPage("whiskys", 0, 10), equalTo(emptyList()))
+    }
+
     @Test
     fun `#getList returns list`() {
         val repository = buildSubject()
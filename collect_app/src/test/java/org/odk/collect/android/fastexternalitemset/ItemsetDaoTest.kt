@@ -0,0 +1,83 @@
+package org.odk.collect.android.fastexternalitemset
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.odk.collect.android.storage.StoragePathProvider
+import org.odk.collect.android.storage.StorageSubdirectory
+import org.odk.collect.android.support.CollectHelpers
+import java.io.File
+
+@RunWith(AndroidJUnit4::class)
+class ItemsetDaoTest {
+
+    private lateinit var mediaDir: File
+    private lateinit var itemsetsCsv: File
+
+    @Before
+    fun setup() {
+        CollectHelpers.setupDemoProject()
+
+        mediaDir = File(StoragePathProvider().getOdkDirPath(StorageSubdirectory.FORMS), "form-media")
+        mediaDir.mkdirs()
+        itemsetsCsv = File(mediaDir, "itemsets.csv")
+    }
+
+    @Test
+    fun `#getItemsFromDatabase returns cached items when itemsets file has not changed`() {
+        itemsetsCsv.writeText("list_name,name,label,state\ncities,city1,City 1,state1\n")
+        ItemsetsImporter.importIfChanged(ItemsetDbAdapter(), mediaDir)
+
+        val itemsetDao = ItemsetDao(ItemsetDbAdapter())
+        assertThat(getLabels(itemsetDao), equalTo(listOf("City 1")))
+
+        ItemsetDbAdapter().open().use {
+            it.dropTable(ItemsetDbAdapter.getMd5FromString(itemsetsCsv.absolutePath), itemsetsCsv.absolutePath)
+        }
+        assertThat(getLabels(itemsetDao), equalTo(listOf("City 1")))
+    }
+
+    @Test
+    fun `#getItemsFromDatabase does not return cached items when itemsets file length changes`() {
+        itemsetsCsv.writeText("list_name,name,label,state\ncities,city1,City 1,state1\n")
+        ItemsetsImporter.importIfChanged(ItemsetDbAdapter(), mediaDir)
+
+        val itemsetDao = ItemsetDao(ItemsetDbAdapter())
+        assertThat(getLabels(itemsetDao), equalTo(listOf("City 1")))
+
+        val lastModified = itemsetsCsv.lastModified()
+        itemsetsCsv.writeText("list_name,name,label,state\ncities,city1,City 1,state1\ncities,city2,City 2,state1\n")
+        itemsetsCsv.setLastModified(lastModified)
+        ItemsetsImporter.importIfChanged(ItemsetDbAdapter(), mediaDir)
+
+        assertThat(getLabels(itemsetDao), equalTo(listOf("City 1", "City 2")))
+    }
+
+    @Test
+    fun `#getItemsFromDatabase does not return cached items when itemsets file last modified time changes`() {
+        itemsetsCsv.writeText("list_name,name,label,state\ncities,city1,City 1,state1\n")
+        ItemsetsImporter.importIfChanged(ItemsetDbAdapter(), mediaDir)
+
+        val itemsetDao = ItemsetDao(ItemsetDbAdapter())
+        assertThat(getLabels(itemsetDao), equalTo(listOf("City 1")))
+
+        val lastModified = itemsetsCsv.lastModified()
+        itemsetsCsv.writeText("list_name,name,label,state\ncities,city1,City X,state1\n")
+        itemsetsCsv.setLastModified(lastModified + 10000)
+        ItemsetsImporter.importIfChanged(ItemsetDbAdapter(), mediaDir)
+
+        assertThat(getLabels(itemsetDao), equalTo(listOf("City X")))
+    }
+
+    private fun getLabels(itemsetDao: ItemsetDao): List<String> {
+        return itemsetDao.getItemsFromDatabase(
+            itemsetsCsv,
+            "",
+            "list_name=? and (\"state\"=?)",
+            arrayOf("cities", "state1")
+        ).map { it.labelInnerText }
+    }
+}
@@ -0,0 +1,89 @@
+package org.odk.collect.android.fastexternalitemset
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.javarosa.core.model.condition.EvaluationContext
+import org.javarosa.core.model.data.StringData
+import org.javarosa.core.model.instance.FormInstance
+import org.javarosa.core.model.instance.TreeElement
+import org.javarosa.xpath.parser.XPathSyntaxException
+import org.junit.Test
+
+class ItemsetQueryTest {
+
+    @Test
+    fun `#compile uses list name from instance`() {
+        val query = ItemsetQuery.compile("instance('cities')/root/item", XPathParseTool())
+        assertThat(query.listName, equalTo("cities"))
+        assertThat(query.selection, equalTo("list_name=?"))
+    }
+
+    @Test
+    fun `#compile converts predicates to a selection`() {
+        val query = ItemsetQuery.compile(
+            "instance('cities')/root/item[state=/data/state and county != /data/county]",
+            XPathParseTool()
+        )
+
+        assertThat(query.selection, equalTo("list_name=? and ((\"state\"=?) and (\"county\"!=?))"))
+    }
+
+    @Test
+    fun `#compile keeps list name filter when predicates use or`() {
+        val query = ItemsetQuery.compile(
+            "instance('cities')/root/item[state=/data/state and county=/data/county or city=/data/city]",
+            XPathParseTool()
+        )
+
+        assertThat(
+            query.selection,
+            equalTo("list_name=? and (((\"state\"=?) and (\"county\"=?)) or (\"city\"=?))")
+        )
+    }
+
+    @Test(expected = XPathSyntaxException::class)
+    fun `#compile throws exception for unsupported predicates`() {
+        ItemsetQuery.compile("instance('cities')/root/item[starts-with(name, /data/state)]", XPathParseTool())
+    }
+
+    @Test
+    fun `#evaluateSelectionArgs returns list name followed by argument values`() {
+        val mainInstance = buildMainInstance("state" to "Washington", "county" to "King")
+        val query = ItemsetQuery.compile(
+            "instance('cities')/root/item[state=/data/state and county != /data/county]",
+            XPathParseTool()
+        )
+
+        val selectionArgs = query.evaluateSelectionArgs(mainInstance, EvaluationContext(mainInstance))
+        assertThat(selectionArgs!!.toList(), equalTo(listOf("cities", "Washington", "King")))
+    }
+
+    @Test
+    fun `#evaluateSelectionArgs evaluates literal arguments`() {
+        val mainInstance = buildMainInstance()
+        val query = ItemsetQuery.compile("instance('cities')/root/item[state='Washington']", XPathParseTool())
+
+        val selectionArgs = query.evaluateSelectionArgs(mainInstance, EvaluationContext(mainInstance))
+        assertThat(selectionArgs!!.toList(), equalTo(listOf("cities", "Washington")))
+    }
+
+    @Test
+    fun `#evaluateSelectionArgs uses the current values of the main instance each time`() {
+        val mainInstance = buildMainInstance("state" to "Washington")
+        val query = ItemsetQuery.compile("instance('cities')/root/item[state=/data/state]", XPathParseTool())
+        query.evaluateSelectionArgs(mainInstance, EvaluationContext(mainInstance))
+
+        mainInstance.root.getChildAt(0).setValue(StringData("Oregon"))
+        val selectionArgs = query.evaluateSelectionArgs(mainInstance, EvaluationContext(mainInstance))
+        assertThat(selectionArgs!!.toList(), equalTo(listOf("cities", "Oregon")))
+    }
+
+    private fun buildMainInstance(vararg values: Pair<String, String>): FormInstance {
+        val root = TreeElement("data")
+        values.forEach { (name, value) ->
+            root.addChild(TreeElement(name).also { it.setValue(StringData(value)) })
+        }
+
+        return FormInstance(root)
+    }
+}
@@ -0,0 +1,103 @@
+package org.odk.collect.android.fastexternalitemset
+
+import android.database.sqlite.SQLiteDatabase
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.containsInAnyOrder
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.notNullValue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.odk.collect.android.storage.StoragePathProvider
+import org.odk.collect.android.storage.StorageSubdirectory
+import org.odk.collect.android.support.CollectHelpers
+import java.io.File
+
+@RunWith(AndroidJUnit4::class)
+class ItemsetsImporterTest {
+
+    private lateinit var mediaDir: File
+    private lateinit var itemsetsCsv: File
+
+    @Before
+    fun setup() {
+        CollectHelpers.setupDemoProject()
+
+        mediaDir = File(StoragePathProvider().getOdkDirPath(StorageSubdirectory.FORMS), "form-media")
+        mediaDir.mkdirs()
+        itemsetsCsv = File(mediaDir, "itemsets.csv")
+    }
+
+    @Test
+    fun `#importIfChanged imports rows that are shorter than the header`() {
+        itemsetsCsv.writeText("list_name,name,label,state\ncities,city1,City 1,state1\nstates,state1\n")
+
+        ItemsetsImporter.importIfChanged(ItemsetDbAdapter(), mediaDir)
+
+        val itemsetDao = ItemsetDao(ItemsetDbAdapter())
+        assertThat(itemsetDao.getItemLabel("city1", mediaDir.absolutePath, ""), equalTo("City 1"))
+        ItemsetDbAdapter().open().use { adapter ->
+            adapter.query(pathHash(), "list_name=?", arrayOf("states")).use {
+                assertThat(it.count, equalTo(1))
+            }
+        }
+    }
+
+    @Test
+    fun `#importIfChanged indexes filter columns`() {
+        itemsetsCsv.writeText("list_name,name,label,label::English,state\ncities,city1,City 1,City 1,state1\n")
+
+        ItemsetsImporter.importIfChanged(ItemsetDbAdapter(), mediaDir)
+
+        assertThat(indexedColumns(), containsInAnyOrder("list_name", "state"))
+    }
+
+    @Test
+    fun `#importIfChanged reports progress while finalizing`() {
+        itemsetsCsv.writeText("list_name,name,label\ncities,city1,City 1\n")
+
+        val progress = mutableListOf<Any>()
+        ItemsetsImporter.importIfChanged(ItemsetDbAdapter(), mediaDir) { progress.add(it) }
+
+        assertThat(progress.size, equalTo(1))
+    }
+
+    @Test
+    fun `#importIfChanged does not leave a partial import when the CSV cannot be imported`() {
+        itemsetsCsv.writeText("list_name,name,label,label\ncities,city1,City 1,City 1\n")
+
+        val warning = ItemsetsImporter.importIfChanged(ItemsetDbAdapter(), mediaDir)
+        assertThat(warning, notNullValue())
+
+        ItemsetDbAdapter().open().use { adapter ->
+            adapter.getItemsets(itemsetsCsv.absolutePath).use {
+                assertThat(it.count, equalTo(0))
+            }
+        }
+    }
+
+    private fun pathHash() = ItemsetDbAdapter.getMd5FromString(itemsetsCsv.absolutePath)
+
+    private fun indexedColumns(): List<String> {
+        val dbPath = File(StoragePathProvider().getOdkDirPath(StorageSubdirectory.METADATA), ItemsetDbAdapter.DATABASE_NAME)
+        val db = SQLiteDatabase.openDatabase(dbPath.absolutePath, null, SQLiteDatabase.OPEN_READONLY)
+        try {
+            val indexes = db.rawQuery(
+                "SELECT name FROM sqlite_master WHERE type = 'index' AND tbl_name = ?",
+                arrayOf("itemset_${pathHash()}")
+            ).use { cursor ->
+                generateSequence { if (cursor.moveToNext()) cursor.getString(0) else null }.toList()
+            }
+
+            return indexes.flatMap { index ->
+                db.rawQuery("PRAGMA index_info(\"$index\")", null).use { cursor ->
+                    val nameColumn = cursor.getColumnIndex("name")
+                    generateSequence { if (cursor.moveToNext()) cursor.getString(nameColumn) else null }.toList()
+                }
+            }
+        } finally {
+            db.close()
+        }
+    }
+}
@@ -246,8 +246,8 @@ public class AuditEventLoggerTest {
         }
 
         @Override
-        public boolean isWriting() {
-            return false;
+        public void sync() {
+
         }
     }
 }
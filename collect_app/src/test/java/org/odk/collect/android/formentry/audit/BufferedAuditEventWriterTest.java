@@ -24,7 +24,6 @@ import org.javarosa.core.model.instance.TreeReference;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.robolectric.annotation.LooperMode;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -33,6 +32,8 @@ import java.util.List;
 
 import static java.util.Arrays.asList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.odk.collect.android.formentry.audit.AuditEvent.AuditEventType.CHANGE_REASON;
 import static org.odk.collect.android.formentry.audit.AuditEvent.AuditEventType.END_OF_FORM;
 import static org.odk.collect.android.formentry.audit.AuditEvent.AuditEventType.FORM_EXIT;
@@ -48,8 +49,7 @@ import static org.odk.collect.android.formentry.audit.AuditEvent.AuditEventType.
 import static org.odk.collect.android.formentry.audit.AuditEvent.AuditEventType.QUESTION;
 
 @RunWith(AndroidJUnit4.class)
-@LooperMode(LooperMode.Mode.LEGACY)
-public class AsyncTaskAuditEventWriterTest {
+public class BufferedAuditEventWriterTest {
 
     private File auditFile;
 
@@ -60,8 +60,9 @@ public class AsyncTaskAuditEventWriterTest {
 
     @Test
     public void saveAuditWithLocation() throws Exception {
-        AsyncTaskAuditEventWriter writer = new AsyncTaskAuditEventWriter(auditFile, true, false, false, false);
+        BufferedAuditEventWriter writer = new BufferedAuditEventWriter(auditFile, true, false, false, false);
         writer.writeEvents(getSampleAuditEventsWithLocations());
+        writer.sync();
 
         String expectedAuditContent = FileUtils.readFileToString(auditFile);
         String expectedData = "event,node,start,end,latitude,longitude,accuracy\n" +
@@ -84,8 +85,9 @@ public class AsyncTaskAuditEventWriterTest {
 
     @Test
     public void saveAuditWithLocationAndTrackingChanges() throws Exception {
-        AsyncTaskAuditEventWriter writer = new AsyncTaskAuditEventWriter(auditFile, true, true, false, false);
+        BufferedAuditEventWriter writer = new BufferedAuditEventWriter(auditFile, true, true, false, false);
         writer.writeEvents(getSampleAuditEventsWithLocationsAndTrackingChanges());
+        writer.sync();
 
         String expectedAuditContent = FileUtils.readFileToString(auditFile);
         String expectedData = "event,node,start,end,latitude,longitude,accuracy,old-value,new-value\n" +
@@ -104,8 +106,9 @@ public class AsyncTaskAuditEventWriterTest {
 
     @Test
     public void saveAuditWithUser() throws Exception {
-        AsyncTaskAuditEventWriter writer = new AsyncTaskAuditEventWriter(auditFile, false, false, true, false);
+        BufferedAuditEventWriter writer = new BufferedAuditEventWriter(auditFile, false, false, true, false);
         writer.writeEvents(getSampleAuditEventsWithUser());
+        writer.sync();
 
         String expectedAuditContent = FileUtils.readFileToString(auditFile);
         String expectedData = "event,node,start,end,user\n" +
@@ -126,11 +129,12 @@ public class AsyncTaskAuditEventWriterTest {
 
     @Test
     public void saveAuditWithChangeReason() throws Exception {
-        AsyncTaskAuditEventWriter writer = new AsyncTaskAuditEventWriter(auditFile, false, false, false, true);
+        BufferedAuditEventWriter writer = new BufferedAuditEventWriter(auditFile, false, false, false, true);
         writer.writeEvents(asList(
                 new AuditEvent(1548108900606L, FORM_RESUME, null, null, null, null),
                 new AuditEvent(1548108900606L, CHANGE_REASON, null, null, null, "A good reason")
         ));
+        writer.sync();
 
         String auditContent = FileUtils.readFileToString(auditFile);
         String expectedData = "event,node,start,end,change-reason\n" +
@@ -141,11 +145,12 @@ public class AsyncTaskAuditEventWriterTest {
 
     @Test
     public void whenChangeReasonHasCommaOrQuotes_escapesThem() throws Exception {
-        AsyncTaskAuditEventWriter writer = new AsyncTaskAuditEventWriter(auditFile, false, false, false, true);
+        BufferedAuditEventWriter writer = new BufferedAuditEventWriter(auditFile, false, false, false, true);
         writer.writeEvents(asList(
                 new AuditEvent(1548108900606L, FORM_RESUME, null, null, null, null),
                 new AuditEvent(1548108900606L, CHANGE_REASON, null, null, null, "A \"good\", reason")
         ));
+        writer.sync();
 
         String auditContent = FileUtils.readFileToString(auditFile);
         String expectedData = "event,node,start,end,change-reason\n" +
@@ -156,11 +161,12 @@ public class AsyncTaskAuditEventWriterTest {
 
     @Test
     public void whenUserHasCommaOrQuotes_escapesThem() throws Exception {
-        AsyncTaskAuditEventWriter writer = new AsyncTaskAuditEventWriter(auditFile, false, false, true, false);
+        BufferedAuditEventWriter writer = new BufferedAuditEventWriter(auditFile, false, false, true, false);
 
         List<AuditEvent> auditEvents = getSampleAuditEventsWithUser().subList(0, 1);
         auditEvents.get(0).setUser("User,\"1\"");
         writer.writeEvents(auditEvents);
+        writer.sync();
 
         String expectedAuditContent = FileUtils.readFileToString(auditFile);
         String expectedData = "event,node,start,end,user\n" +
@@ -176,8 +182,9 @@ public class AsyncTaskAuditEventWriterTest {
     @Test
     public void whenAppUpdatedBetweenInstances_updatesHeader() throws Exception {
         // Use a form with enabled audit but without location
-        AsyncTaskAuditEventWriter writer = new AsyncTaskAuditEventWriter(auditFile, false, false, false, false);
+        BufferedAuditEventWriter writer = new BufferedAuditEventWriter(auditFile, false, false, false, false);
         writer.writeEvents(getSampleAuditEventsWithoutLocations());
+        writer.sync();
 
         String expectedAuditContent = FileUtils.readFileToString(auditFile);
         String expectedData = "event,node,start,end\n" +
@@ -195,8 +202,9 @@ public class AsyncTaskAuditEventWriterTest {
         assertEquals(expectedData, expectedAuditContent);
 
         // Upgrade a form to use location
-        writer = new AsyncTaskAuditEventWriter(auditFile, true, false, false, false);
+        writer = new BufferedAuditEventWriter(auditFile, true, false, false, false);
         writer.writeEvents(getMoreSampleAuditEventsWithLocations());
+        writer.sync();
 
         expectedAuditContent = FileUtils.readFileToString(auditFile);
         String expectedData2 = "event,node,start,end,latitude,longitude,accuracy\n" +
@@ -223,8 +231,9 @@ public class AsyncTaskAuditEventWriterTest {
         assertEquals(expectedData2, expectedAuditContent);
 
         // Upgrade a form to use location and tracking changes
-        writer = new AsyncTaskAuditEventWriter(auditFile, true, true, false, false);
+        writer = new BufferedAuditEventWriter(auditFile, true, true, false, false);
         writer.writeEvents(getMoreSampleAuditEventsWithLocationsAndTrackingChanges());
+        writer.sync();
 
         expectedAuditContent = FileUtils.readFileToString(auditFile);
         String expectedData3 = "event,node,start,end,latitude,longitude,accuracy,old-value,new-value\n" +
@@ -259,8 +268,9 @@ public class AsyncTaskAuditEventWriterTest {
         assertEquals(expectedData3, expectedAuditContent);
 
         // Upgrade a form to use location and tracking changes and user
-        writer = new AsyncTaskAuditEventWriter(auditFile, true, true, true, false);
+        writer = new BufferedAuditEventWriter(auditFile, true, true, true, false);
         writer.writeEvents(getMoreSampleAuditEventsWithLocationsAndTrackingChangesAndUser());
+        writer.sync();
 
         expectedAuditContent = FileUtils.readFileToString(auditFile);
         String expectedData4 = "event,node,start,end,latitude,longitude,accuracy,old-value,new-value,user\n" +
@@ -303,6 +313,56 @@ public class AsyncTaskAuditEventWriterTest {
         assertEquals(expectedData4, expectedAuditContent);
     }
 
+    @Test
+    public void whenEventsAreWrittenMoreThanOnce_appendsThemInOrderWithOneHeader() throws Exception {
+        auditFile.delete();
+
+        BufferedAuditEventWriter writer = new BufferedAuditEventWriter(auditFile, false, false, false, true);
+        writer.writeEvents(asList(new AuditEvent(1548108900606L, FORM_RESUME, null, null, null, null)));
+        writer.writeEvents(asList(new AuditEvent(1548108900607L, CHANGE_REASON, null, null, null, "First")));
+        writer.sync();
+        writer.writeEvents(asList(new AuditEvent(1548108900608L, CHANGE_REASON, null, null, null, "Second")));
+        writer.sync();
+
+        String auditContent = FileUtils.readFileToString(auditFile);
+        String expectedData = "event,node,start,end,change-reason\n" +
+                "form resume,,1548108900606,,\n" +
+                "change reason,,1548108900607,,First\n" +
+                "change reason,,1548108900608,,Second\n";
+        assertEquals(expectedData, auditContent);
+    }
+
+    @Test
+    public void whenNoEventsHaveBeenWritten_syncDoesNotCreateFile() {
+        auditFile.delete();
+
+        BufferedAuditEventWriter writer = new BufferedAuditEventWriter(auditFile, false, false, false, false);
+        writer.sync();
+
+        assertFalse(auditFile.exists());
+    }
+
+    @Test
+    public void whenWriterIsClosedAfterBeingIdle_syncStillSyncsEvents() throws Exception {
+        auditFile.delete();
+
+        BufferedAuditEventWriter writer = new BufferedAuditEventWriter(auditFile, false, false, false, false, 0, 0);
+        writer.writeEvents(asList(new AuditEvent(1548108900606L, FORM_RESUME, null, null, null, null)));
+
+        long timeout = System.currentTimeMillis() + 5000;
+        while (writer.isOpen() || !auditFile.exists()) {
+            assertTrue(System.currentTimeMillis() < timeout);
+            Thread.sleep(10);
+        }
+
+        assertTrue(writer.hasUnsyncedEvents());
+        writer.sync();
+        assertFalse(writer.hasUnsyncedEvents());
+
+        String auditContent = FileUtils.readFileToString(auditFile);
+        assertEquals("event,node,start,end\nform resume,,1548108900606,\n", auditContent);
+    }
+
     private List<AuditEvent> getSampleAuditEventsWithUser() {
         List<AuditEvent> auditEvents = getSampleAuditEventsWithoutLocations();
         for (AuditEvent event : auditEvents) {
@@ -0,0 +1,92 @@
+package org.odk.collect.android.formmanagement
+
+import android.app.Application
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.mock
+import org.odk.collect.android.injection.DaggerUtils
+import org.odk.collect.android.projects.ProjectDependencyModule
+import org.odk.collect.android.storage.StorageSubdirectory
+import org.odk.collect.android.utilities.ChangeLockProvider
+import org.odk.collect.forms.Form
+import org.odk.collect.formstest.FormUtils
+import org.odk.collect.projects.Project
+import org.odk.collect.shared.locks.BooleanChangeLock
+import org.odk.collect.testshared.FakeScheduler
+import java.io.File
+
+@RunWith(AndroidJUnit4::class)
+class FormCacheWarmerTest {
+
+    private val application = ApplicationProvider.getApplicationContext<Application>()
+    private val component = DaggerUtils.getComponent(application)
+
+    private val formsRepositoryProvider = component.formsRepositoryProvider()
+    private val storagePathProvider = component.storagePathProvider()
+    private val scheduler = FakeScheduler()
+
+    private val project = component.projectsRepository().save(Project.New("blah", "B", "#ffffff"))
+    private val projectDependencyModule = ProjectDependencyModule(
+        project.uuid,
+        mock(),
+        formsRepositoryProvider,
+        mock(),
+        storagePathProvider,
+        ChangeLockProvider { BooleanChangeLock() },
+        mock(),
+        mock(),
+        mock(),
+        mock()
+    )
+
+    @Test
+    fun `#warm caches forms that have not been cached in the background`() {
+        val form = addForm(FormUtils.createXFormBody("formId", "1"))
+        val formCacheWarmer = FormCacheWarmer(scheduler)
+
+        formCacheWarmer.warm(projectDependencyModule)
+        assertThat(File(form.jrCacheFilePath).exists(), equalTo(false))
+
+        scheduler.runBackground()
+        assertThat(File(form.jrCacheFilePath).exists(), equalTo(true))
+    }
+
+    @Test
+    fun `#warm does not cache forms with external secondary instances`() {
+        val xform = FormUtils.createXFormBody("formId", "1")
+            .replace("</instance>", """</instance><instance id="things" src="jr://file-csv/things.csv"/>""")
+        val form = addForm(xform)
+        val formCacheWarmer = FormCacheWarmer(scheduler)
+
+        formCacheWarmer.warm(projectDependencyModule)
+        scheduler.runBackground()
+        assertThat(File(form.jrCacheFilePath).exists(), equalTo(false))
+    }
+
+    @Test
+    fun `#warm does not parse forms that failed to parse again`() {
+        val form = addForm("<h:html>")
+        val formCacheWarmer = FormCacheWarmer(scheduler)
+
+        formCacheWarmer.warm(projectDependencyModule)
+        scheduler.runBackground()
+        assertThat(File(form.jrCacheFilePath).exists(), equalTo(false))
+
+        // Fix the form without changing its hash so that it would be cached if parsed again
+        File(form.formFilePath).writeText(FormUtils.createXFormBody("formId", "1"))
+        formCacheWarmer.warm(projectDependencyModule)
+        scheduler.runBackground()
+        assertThat(File(form.jrCacheFilePath).exists(), equalTo(false))
+    }
+
+    private fun addForm(xform: String): Form {
+        val formsDir = storagePathProvider.getOdkDirPath(StorageSubdirectory.FORMS, project.uuid)
+        return formsRepositoryProvider.create(project.uuid).save(
+            FormUtils.buildForm("formId", "1", formsDir, xform).build()
+        )
+    }
+}
@@ -86,8 +86,9 @@ class FormsDataServiceTest {
         formsDataService = FormsDataService(
             appState = AppState(),
             notifier = notifier,
-            projectDependencyModuleFactory = projectDependencyModuleFactory
-        ) { 0 }
+            projectDependencyModuleFactory = projectDependencyModuleFactory,
+            clock = { 0 }
+        )
     }
 
     @Test
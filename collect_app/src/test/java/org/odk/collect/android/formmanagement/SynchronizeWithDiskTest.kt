@@ -0,0 +1,77 @@
+package org.odk.collect.android.formmanagement
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.odk.collect.formstest.FormUtils
+import org.odk.collect.formstest.InMemFormsRepository
+import org.odk.collect.shared.TempFiles
+import java.io.File
+
+@RunWith(AndroidJUnit4::class)
+class SynchronizeWithDiskTest {
+
+    private val formsRepository = InMemFormsRepository()
+    private val formsDir = TempFiles.createTempDir()
+
+    @Test
+    fun `adds forms that are in the forms dir`() {
+        File(formsDir, "form.xml").writeText(FormUtils.createXFormBody("formId", "1", "Form"))
+
+        LocalFormUseCases.synchronizeWithDisk(formsRepository, formsDir.absolutePath)
+
+        val forms = formsRepository.all
+        assertThat(forms.size, equalTo(1))
+        assertThat(forms[0].formId, equalTo("formId"))
+        assertThat(forms[0].displayName, equalTo("Form"))
+    }
+
+    @Test
+    fun `does not hash forms again if their size and last modified time have not changed`() {
+        File(formsDir, "form.xml").writeText(FormUtils.createXFormBody("formId", "1", "Form"))
+        LocalFormUseCases.synchronizeWithDisk(formsRepository, formsDir.absolutePath)
+
+        val metrics = LocalFormUseCases.syncMetrics
+        val filesChecked = metrics.count("files checked")
+        val filesHashed = metrics.count("files hashed")
+        val formsParsed = metrics.count("forms parsed")
+        LocalFormUseCases.synchronizeWithDisk(formsRepository, formsDir.absolutePath)
+
+        assertThat(metrics.count("files checked") - filesChecked, equalTo(1L))
+        assertThat(metrics.count("files hashed") - filesHashed, equalTo(0L))
+        assertThat(metrics.count("forms parsed") - formsParsed, equalTo(0L))
+    }
+
+    @Test
+    fun `updates forms that have changed`() {
+        val formFile = File(formsDir, "form.xml")
+        formFile.writeText(FormUtils.createXFormBody("formId", "1", "Form"))
+        LocalFormUseCases.synchronizeWithDisk(formsRepository, formsDir.absolutePath)
+
+        formFile.writeText(FormUtils.createXFormBody("formId", "1", "A different form"))
+        LocalFormUseCases.synchronizeWithDisk(formsRepository, formsDir.absolutePath)
+
+        val forms = formsRepository.all
+        assertThat(forms.size, equalTo(1))
+        assertThat(forms[0].displayName, equalTo("A different form"))
+    }
+
+    @Test
+    fun `only updates the stamp for forms that have been touched but not changed`() {
+        val formFile = File(formsDir, "form.xml")
+        formFile.writeText(FormUtils.createXFormBody("formId", "1", "Form"))
+        LocalFormUseCases.synchronizeWithDisk(formsRepository, formsDir.absolutePath)
+
+        formFile.setLastModified(formFile.lastModified() - 10000)
+        val metrics = LocalFormUseCases.syncMetrics
+        val filesHashed = metrics.count("files hashed")
+        val formsParsed = metrics.count("forms parsed")
+        LocalFormUseCases.synchronizeWithDisk(formsRepository, formsDir.absolutePath)
+
+        assertThat(metrics.count("files hashed") - filesHashed, equalTo(1L))
+        assertThat(metrics.count("forms parsed") - formsParsed, equalTo(0L))
+        assertThat(formsRepository.all[0].formFileLastModified, equalTo(formFile.lastModified()))
+    }
+}
@@ -0,0 +1,119 @@
+package org.odk.collect.android.tasks
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.not
+import org.javarosa.form.api.FormEntryController
+import org.javarosa.form.api.FormEntryModel
+import org.javarosa.xform.util.XFormUtils
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.odk.collect.android.javarosawrapper.FormController
+import org.odk.collect.android.javarosawrapper.JavaRosaFormController
+import org.odk.collect.shared.TempFiles
+import java.io.File
+
+@RunWith(AndroidJUnit4::class)
+class SaveFormToDiskTest {
+
+    @Test
+    fun `#writeSubmissionFile writes the same submission as the serializer when everything is relevant`() {
+        val formController = createFormController(REPEAT_FORM)
+        val instanceXml = formController.getInstanceFile()!!
+        SaveFormToDisk.writeFile(formController.getFilledInFormXml(), instanceXml)
+
+        val submissionXml = File(instanceXml.parentFile, "submission.xml")
+        SaveFormToDisk.writeSubmissionFile(formController, instanceXml, submissionXml)
+
+        val serialized = formController.getSubmissionXml()!!.payloadStream.readBytes()
+        assertThat(submissionXml.readBytes(), equalTo(serialized))
+        assertThat(String(serialized).contains("<age>20</age>"), equalTo(true))
+    }
+
+    @Test
+    fun `#writeSubmissionFile leaves out non-relevant nodes`() {
+        val formController = createFormController(NON_RELEVANT_FORM)
+        val instanceXml = formController.getInstanceFile()!!
+        SaveFormToDisk.writeFile(formController.getFilledInFormXml(), instanceXml)
+
+        val submissionXml = File(instanceXml.parentFile, "submission.xml")
+        SaveFormToDisk.writeSubmissionFile(formController, instanceXml, submissionXml)
+
+        val serialized = formController.getSubmissionXml()!!.payloadStream.readBytes()
+        assertThat(submissionXml.readBytes(), equalTo(serialized))
+        assertThat(submissionXml.readBytes(), not(equalTo(instanceXml.readBytes())))
+        assertThat(submissionXml.readText().contains("hidden"), equalTo(false))
+    }
+
+    private fun createFormController(xform: String): FormController {
+        val formDef = XFormUtils.getFormFromInputStream(xform.trimIndent().byteInputStream())
+        val formEntryController = FormEntryController(FormEntryModel(formDef))
+        formDef.initialize(true, null)
+
+        val instanceDir = TempFiles.createTempDir()
+        return JavaRosaFormController(TempFiles.createTempDir(), formEntryController, File(instanceDir, "instance.xml"))
+    }
+
+    companion object {
+        private const val REPEAT_FORM = """
+            <h:html xmlns="http://www.w3.org/2002/xforms" xmlns:h="http://www.w3.org/1999/xhtml" xmlns:jr="http://openrosa.org/javarosa">
+                <h:head>
+                    <h:title>Repeat</h:title>
+                    <model>
+                        <instance>
+                            <data id="repeat">
+                                <name>Bob</name>
+                                <person jr:template="">
+                                    <age/>
+                                </person>
+                                <person>
+                                    <age>10</age>
+                                </person>
+                                <person>
+                                    <age>20</age>
+                                </person>
+                                <meta>
+                                    <instanceID/>
+                                </meta>
+                            </data>
+                        </instance>
+                        <bind nodeset="/data/name" type="string"/>
+                        <bind nodeset="/data/person/age" type="int"/>
+                    </model>
+                </h:head>
+                <h:body>
+                    <input ref="/data/name"/>
+                    <repeat nodeset="/data/person">
+                        <input ref="/data/person/age"/>
+                    </repeat>
+                </h:body>
+            </h:html>
+        """
+
+        private const val NON_RELEVANT_FORM = """
+            <h:html xmlns="http://www.w3.org/2002/xforms" xmlns:h="http://www.w3.org/1999/xhtml" xmlns:jr="http://openrosa.org/javarosa">
+                <h:head>
+                    <h:title>Non-relevant</h:title>
+                    <model>
+                        <instance>
+                            <data id="non-relevant">
+                                <name>Bob</name>
+                                <hidden>secret</hidden>
+                                <meta>
+                                    <instanceID/>
+                                </meta>
+                            </data>
+                        </instance>
+                        <bind nodeset="/data/name" type="string"/>
+                        <bind nodeset="/data/hidden" type="string" relevant="false()"/>
+                    </model>
+                </h:head>
+                <h:body>
+                    <input ref="/data/name"/>
+                    <input ref="/data/hidden"/>
+                </h:body>
+            </h:html>
+        """
+    }
+}
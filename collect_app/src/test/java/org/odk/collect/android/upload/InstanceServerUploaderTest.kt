@@ -0,0 +1,164 @@
+package org.odk.collect.android.upload
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import org.odk.collect.android.utilities.WebCredentialsUtils
+import org.odk.collect.formstest.InstanceFixtures
+import org.odk.collect.openrosa.http.CaseInsensitiveHeaders
+import org.odk.collect.openrosa.http.HttpCredentialsInterface
+import org.odk.collect.openrosa.http.HttpGetResult
+import org.odk.collect.openrosa.http.HttpHeadResult
+import org.odk.collect.openrosa.http.HttpPostResult
+import org.odk.collect.openrosa.http.OpenRosaConstants
+import org.odk.collect.openrosa.http.OpenRosaHttpInterface
+import java.io.File
+import java.net.URI
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+@RunWith(AndroidJUnit4::class)
+class InstanceServerUploaderTest {
+
+    private val httpInterface = FakeOpenRosaHttpInterface()
+    private val webCredentialsUtils = mock<WebCredentialsUtils> {
+        on { getCredentials(any()) } doReturn mock()
+    }
+    private val uploader = InstanceServerUploader(httpInterface, webCredentialsUtils, mock(), mock())
+
+    @Test
+    fun `#uploadOneSubmission only issues one HEAD request for concurrent uploads to the same server`() {
+        val secondUploadStarted = CountDownLatch(1)
+        httpInterface.headResponse = {
+            secondUploadStarted.await(1, TimeUnit.SECONDS)
+            HttpHeadResult(204, Headers(emptyMap()))
+        }
+
+        val firstUpload = Thread { uploader.uploadOneSubmission(InstanceFixtures.instance(), SUBMISSION_URL) }
+        firstUpload.start()
+
+        val secondUpload = Thread {
+            secondUploadStarted.countDown()
+            uploader.uploadOneSubmission(InstanceFixtures.instance(), SUBMISSION_URL)
+        }
+        secondUpload.start()
+
+        firstUpload.join()
+        secondUpload.join()
+
+        assertThat(httpInterface.headRequests.size, equalTo(1))
+        assertThat(httpInterface.submissions.size, equalTo(2))
+    }
+
+    @Test
+    fun `#uploadOneSubmission uses the accepted content length from the first HEAD request for later submissions`() {
+        httpInterface.headResponse = {
+            HttpHeadResult(204, Headers(mapOf(OpenRosaConstants.ACCEPT_CONTENT_LENGTH_HEADER to "5000")))
+        }
+
+        uploader.uploadOneSubmission(InstanceFixtures.instance(), SUBMISSION_URL)
+        uploader.uploadOneSubmission(InstanceFixtures.instance(), SUBMISSION_URL)
+
+        assertThat(httpInterface.headRequests.size, equalTo(1))
+        assertThat(httpInterface.submissions.map { it.second }, equalTo(listOf(5000L, 5000L)))
+    }
+
+    @Test
+    fun `#uploadOneSubmission reuses a redirect from the first HEAD request for later submissions`() {
+        httpInterface.headResponse = {
+            HttpHeadResult(204, Headers(mapOf("Location" to "https://server.example.com/redirected")))
+        }
+
+        uploader.uploadOneSubmission(InstanceFixtures.instance(), SUBMISSION_URL)
+        uploader.uploadOneSubmission(InstanceFixtures.instance(), SUBMISSION_URL)
+
+        val redirectedUri = URI.create("https://server.example.com/redirected?deviceID=device")
+        assertThat(httpInterface.headRequests.size, equalTo(1))
+        assertThat(httpInterface.submissions.map { it.first }, equalTo(listOf(redirectedUri, redirectedUri)))
+    }
+
+    @Test
+    fun `#uploadOneSubmission does not remember a HEAD request that asked for credentials`() {
+        httpInterface.headResponse = { HttpHeadResult(401, Headers(emptyMap())) }
+        try {
+            uploader.uploadOneSubmission(InstanceFixtures.instance(), SUBMISSION_URL)
+        } catch (e: FormUploadAuthRequestedException) {
+            // expected
+        }
+
+        httpInterface.headResponse = { HttpHeadResult(204, Headers(emptyMap())) }
+        uploader.uploadOneSubmission(InstanceFixtures.instance(), SUBMISSION_URL)
+
+        assertThat(httpInterface.headRequests.size, equalTo(2))
+        assertThat(httpInterface.submissions.size, equalTo(1))
+    }
+
+    @Test
+    fun `#uploadOneSubmission does not remember a HEAD request that failed`() {
+        httpInterface.headResponse = { throw Exception("Network down") }
+        try {
+            uploader.uploadOneSubmission(InstanceFixtures.instance(), SUBMISSION_URL)
+        } catch (e: FormUploadException) {
+            // expected
+        }
+
+        httpInterface.headResponse = { HttpHeadResult(204, Headers(emptyMap())) }
+        uploader.uploadOneSubmission(InstanceFixtures.instance(), SUBMISSION_URL)
+
+        assertThat(httpInterface.headRequests.size, equalTo(2))
+        assertThat(httpInterface.submissions.size, equalTo(1))
+    }
+
+    private class FakeOpenRosaHttpInterface : OpenRosaHttpInterface {
+
+        var headResponse: (URI) -> HttpHeadResult = { HttpHeadResult(204, Headers(emptyMap())) }
+        val headRequests = CopyOnWriteArrayList<URI>()
+        val submissions = CopyOnWriteArrayList<Pair<URI, Long>>()
+
+        override fun executeGetRequest(
+            uri: URI,
+            contentType: String?,
+            credentials: HttpCredentialsInterface
+        ): HttpGetResult {
+            throw UnsupportedOperationException()
+        }
+
+        override fun executeHeadRequest(uri: URI, credentials: HttpCredentialsInterface): HttpHeadResult {
+            headRequests.add(uri)
+            return headResponse(uri)
+        }
+
+        override fun uploadSubmissionAndFiles(
+            submissionFile: File,
+            fileList: List<File>,
+            uri: URI,
+            credentials: HttpCredentialsInterface,
+            contentLength: Long
+        ): HttpPostResult {
+            submissions.add(Pair(uri, contentLength))
+            return HttpPostResult("", 201, "Created")
+        }
+    }
+
+    private class Headers(private val headers: Map<String, String>) : CaseInsensitiveHeaders {
+        override fun getHeaders(): Set<String> = headers.keys
+
+        override fun containsHeader(header: String): Boolean = getAnyValue(header) != null
+
+        override fun getAnyValue(header: String): String? {
+            return headers.entries.firstOrNull { it.key.equals(header, ignoreCase = true) }?.value
+        }
+
+        override fun getValues(header: String): List<String>? = getAnyValue(header)?.let { listOf(it) }
+    }
+
+    companion object {
+        private const val SUBMISSION_URL = "https://server.example.com/submission?deviceID=device"
+    }
+}
@@ -0,0 +1,120 @@
+package org.odk.collect.android.upload
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.contains
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+import org.mockito.kotlin.mock
+import org.odk.collect.forms.instances.Instance
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class InstanceUploadEngineTest {
+
+    @Test
+    fun `#upload reports the result of each upload`() {
+        val succeeds = instance(1, "form1")
+        val fails = instance(2, "form2")
+        val uploader = FakeUploader {
+            if (it == fails) throw FormUploadException("Nope") else "Thanks"
+        }
+
+        val listener = RecordingListener()
+        InstanceUploadEngine(uploader).upload(listOf(succeeds, fails), "device", null, { false }, listener)
+
+        assertThat(listener.succeeded, equalTo(mapOf(succeeds to "Thanks")))
+        assertThat(listener.failed.keys, equalTo(setOf(fails)))
+        assertThat(listener.failed[fails]!!.message, equalTo("Nope"))
+    }
+
+    @Test
+    fun `#upload uploads instances of the same form in order`() {
+        val instances = (1L..10L).map { instance(it, if (it % 2 == 0L) "form1" else "form2") }
+        val uploaded = Collections.synchronizedList(mutableListOf<Instance>())
+        val uploader = FakeUploader {
+            uploaded.add(it)
+            null
+        }
+
+        InstanceUploadEngine(uploader).upload(instances, "device", null, { false }, RecordingListener())
+
+        assertThat(uploaded.filter { it.formId == "form1" }, contains(*instances.filter { it.formId == "form1" }.toTypedArray()))
+        assertThat(uploaded.filter { it.formId == "form2" }, contains(*instances.filter { it.formId == "form2" }.toTypedArray()))
+    }
+
+    @Test
+    fun `#upload uploads instances of different forms at the same time`() {
+        val instance1 = instance(1, "form1")
+        val instance2 = instance(2, "form2")
+
+        val bothStarted = CountDownLatch(2)
+        var concurrent = true
+        val uploader = FakeUploader {
+            bothStarted.countDown()
+            if (!bothStarted.await(5, TimeUnit.SECONDS)) {
+                concurrent = false
+            }
+
+            null
+        }
+
+        InstanceUploadEngine(uploader, 2).upload(listOf(instance1, instance2), "device", null, { false }, RecordingListener())
+        assertThat(concurrent, equalTo(true))
+    }
+
+    @Test
+    fun `#upload does not start more uploads once cancelled`() {
+        val instances = (1L..5L).map { instance(it, "form1") }
+        var cancelled = false
+        val uploader = FakeUploader {
+            cancelled = true
+            null
+        }
+
+        val listener = RecordingListener()
+        InstanceUploadEngine(uploader).upload(instances, "device", null, { cancelled }, listener)
+
+        assertThat(listener.succeeded.keys, equalTo(setOf(instances[0])))
+    }
+
+    private fun instance(dbId: Long, formId: String): Instance {
+        return Instance.Builder()
+            .dbId(dbId)
+            .formId(formId)
+            .finalizationDate(dbId)
+            .build()
+    }
+
+    private class FakeUploader(private val upload: (Instance) -> String?) : InstanceUploader(mock()) {
+
+        override fun uploadOneSubmission(instance: Instance, destinationUrl: String): String? {
+            return upload(instance)
+        }
+
+        override fun getUrlToSubmitTo(
+            currentInstance: Instance,
+            deviceId: String?,
+            overrideURL: String?,
+            urlFromSettings: String?
+        ): String {
+            return "https://example.com/submission"
+        }
+    }
+
+    private class RecordingListener : InstanceUploadEngine.Listener {
+
+        val succeeded: MutableMap<Instance, String?> = Collections.synchronizedMap(mutableMapOf())
+        val failed: MutableMap<Instance, FormUploadException> = Collections.synchronizedMap(mutableMapOf())
+
+        override fun onUploadStarted(instance: Instance) = Unit
+
+        override fun onUploadSucceeded(instance: Instance, customMessage: String?) {
+            succeeded[instance] = customMessage
+        }
+
+        override fun onUploadFailed(instance: Instance, exception: FormUploadException) {
+            failed[instance] = exception
+        }
+    }
+}
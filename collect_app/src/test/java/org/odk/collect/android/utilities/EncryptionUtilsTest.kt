@@ -0,0 +1,76 @@
+package org.odk.collect.android.utilities
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.odk.collect.android.javarosawrapper.InstanceMetadata
+import org.odk.collect.android.utilities.EncryptionUtils.EncryptedFormInformation
+import org.odk.collect.shared.TempFiles
+import org.odk.collect.shared.strings.Md5
+import java.io.File
+import java.security.KeyPairGenerator
+import java.security.MessageDigest
+import javax.crypto.Cipher
+import javax.crypto.spec.IvParameterSpec
+import kotlin.random.Random
+
+@RunWith(AndroidJUnit4::class)
+class EncryptionUtilsTest {
+
+    private val publicKey = KeyPairGenerator.getInstance(EncryptionUtils.RSA_ALGORITHM)
+        .also { it.initialize(2048) }
+        .generateKeyPair()
+        .public
+
+    @Test
+    fun `#generateEncryptedSubmission encrypts each file and signs its MD5 in order`() {
+        val instanceDir = TempFiles.createTempDir()
+        val instance = "<?xml version='1.0' ?><data id=\"form\"><meta><instanceID>uuid:blah</instanceID></meta></data>"
+        File(instanceDir, "instance.xml").writeText(instance)
+        File(instanceDir, "submission.xml").writeText(instance)
+        0.until(5).forEach {
+            File(instanceDir, "media$it.jpg").writeBytes(Random.nextBytes(100_000 + it))
+        }
+
+        val formInfo = EncryptedFormInformation(
+            "form",
+            "1",
+            InstanceMetadata("uuid:blah", null, null),
+            publicKey
+        )
+        val key = formInfo.symmetricKey.encoded
+        val iv = MessageDigest.getInstance("MD5").run {
+            update("uuid:blah".toByteArray())
+            update(key)
+            digest().copyOf(EncryptionUtils.IV_BYTE_LENGTH)
+        }
+
+        val plaintext = instanceDir.listFiles()!!
+            .filter { it.name != "instance.xml" }
+            .associate { it.name to it.readBytes() }
+        EncryptionUtils.generateEncryptedSubmission(
+            File(instanceDir, "instance.xml"),
+            File(instanceDir, "submission.xml"),
+            formInfo
+        )
+
+        val signedFiles = formInfo.elementSignatureSource.lines()
+            .filter { it.contains("::") }
+            .map { it.split("::") }
+        assertThat(signedFiles.size, equalTo(6))
+        assertThat(signedFiles.last()[0], equalTo("submission.xml"))
+
+        signedFiles.forEachIndexed { index, (name, md5) ->
+            val original = plaintext[name]!!
+            assertThat(md5, equalTo(Md5.getMd5Hash(original.inputStream())))
+
+            ++iv[index % iv.size]
+            val cipher = Cipher.getInstance(EncryptionUtils.SYMMETRIC_ALGORITHM)
+            cipher.init(Cipher.DECRYPT_MODE, formInfo.symmetricKey, IvParameterSpec(iv))
+            val decrypted = cipher.doFinal(File(instanceDir, "$name.enc").readBytes())
+            assertThat(decrypted.contentEquals(original), equalTo(true))
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.odk.collect.android.utilities
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.nullValue
+import org.javarosa.core.model.FormDef
+import org.javarosa.xform.util.XFormUtils
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.odk.collect.android.storage.StoragePathProvider
+import org.odk.collect.android.storage.StorageSubdirectory
+import org.odk.collect.android.support.CollectHelpers
+import org.odk.collect.forms.Form
+import org.odk.collect.formstest.FormFixtures
+import org.odk.collect.shared.strings.Md5
+import java.io.File
+
+@RunWith(AndroidJUnit4::class)
+class ExternalizableFormDefCacheTest {
+
+    private val formDefCache = ExternalizableFormDefCache(false)
+
+    @Before
+    fun setup() {
+        CollectHelpers.setupDemoProject()
+    }
+
+    @Test
+    fun `#readCache with form returns FormDef cached with #writeCache with form`() {
+        val form = buildForm()
+        formDefCache.writeCache(parse(form), form)
+
+        val cached = formDefCache.readCache(form)
+        assertThat(cached!!.title, equalTo("Test Form"))
+    }
+
+    @Test
+    fun `#readCache with form XML returns FormDef cached with #writeCache with form`() {
+        val form = buildForm()
+        formDefCache.writeCache(parse(form), form)
+
+        val cached = formDefCache.readCache(File(form.formFilePath))
+        assertThat(cached!!.title, equalTo("Test Form"))
+    }
+
+    @Test
+    fun `#readCache with form returns null when form XML has changed since it was cached`() {
+        val form = buildForm()
+        formDefCache.writeCache(parse(form), form)
+
+        File(form.formFilePath).appendText("\n")
+        assertThat(formDefCache.readCache(form), nullValue())
+    }
+
+    @Test
+    fun `#readCache with form returns FormDef when form XML has been modified without changing`() {
+        val form = buildForm()
+        formDefCache.writeCache(parse(form), form)
+
+        File(form.formFilePath).setLastModified(0)
+        val cached = formDefCache.readCache(form)
+        assertThat(cached!!.title, equalTo("Test Form"))
+    }
+
+    @Test
+    fun `#readCache with form updates the stamp when form XML has been modified without changing`() {
+        val form = buildForm()
+        formDefCache.writeCache(parse(form), form)
+
+        val formXml = File(form.formFilePath)
+        formXml.setLastModified(0)
+        formDefCache.readCache(form)
+
+        // Change the XML without changing the stamp to check that it isn't hashed again
+        formXml.writeText(formXml.readText().replaceFirst("Test Form", "Best Form"))
+        formXml.setLastModified(0)
+        val cached = formDefCache.readCache(form)
+        assertThat(cached!!.title, equalTo("Test Form"))
+    }
+
+    @Test
+    fun `#readCache returns FormDef from memory cache when enabled`() {
+        val formDefCache = ExternalizableFormDefCache(true)
+        val form = buildForm()
+        formDefCache.writeCache(parse(form), form)
+
+        val md5Hash = Md5.getMd5Hash(File(form.formFilePath))
+        File(StoragePathProvider().getOdkDirPath(StorageSubdirectory.CACHE), "$md5Hash.formdef").writeText("corrupt")
+
+        val cached = formDefCache.readCache(form)
+        assertThat(cached!!.title, equalTo("Test Form"))
+    }
+
+    @Test
+    fun `#readCache deletes cache files written in a different format`() {
+        val form = buildForm()
+        formDefCache.writeCache(parse(form), form)
+
+        val md5Hash = Md5.getMd5Hash(File(form.formFilePath))
+        val cacheFile = File(StoragePathProvider().getOdkDirPath(StorageSubdirectory.CACHE), "$md5Hash.formdef")
+        cacheFile.writeBytes(ByteArray(100))
+
+        val invalidated = ExternalizableFormDefCache.getMetrics().count("invalidated")
+        assertThat(formDefCache.readCache(form), nullValue())
+        assertThat(cacheFile.exists(), equalTo(false))
+        assertThat(ExternalizableFormDefCache.getMetrics().count("invalidated"), equalTo(invalidated + 1))
+    }
+
+    @Test
+    fun `#writeCache and #readCache record metrics`() {
+        val form = buildForm()
+        val metrics = ExternalizableFormDefCache.getMetrics()
+        val writes = metrics.count("write")
+        val reads = metrics.count("read")
+
+        formDefCache.writeCache(parse(form), form)
+        formDefCache.readCache(form)
+
+        assertThat(metrics.count("write"), equalTo(writes + 1))
+        assertThat(metrics.count("read"), equalTo(reads + 1))
+    }
+
+    private fun buildForm(): Form {
+        val form = FormFixtures.form()
+        return Form.Builder(form)
+            .md5Hash(Md5.getMd5Hash(File(form.formFilePath)))
+            .build()
+    }
+
+    private fun parse(form: Form): FormDef {
+        return File(form.formFilePath).inputStream().use {
+            XFormUtils.getFormFromInputStream(it)
+        }
+    }
+}
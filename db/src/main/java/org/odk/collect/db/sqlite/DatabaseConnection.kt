@@ -15,6 +15,9 @@ import java.io.File
  * [DatabaseConnection] that refer to the same file.
  *
  * @param migrator used to migrate or create the database automatically before access
+ * @param writeAheadLogging enables SQLite's WAL journal mode which allows reads to run
+ * concurrently with each other and with a write. This only takes effect when the underlying
+ * connection is created.
  */
 open class DatabaseConnection @JvmOverloads constructor(
     private val context: Context,
@@ -22,7 +25,8 @@ open class DatabaseConnection @JvmOverloads constructor(
     private val name: String,
     private val migrator: DatabaseMigrator,
     private val databaseVersion: Int,
-    private val strict: Boolean = false
+    private val strict: Boolean = false,
+    private val writeAheadLogging: Boolean = false
 ) {
 
     private val databasePath = path + File.separator + name
@@ -63,7 +67,9 @@ open class DatabaseConnection @JvmOverloads constructor(
                         null,
                         databaseVersion,
                         migrator
-                    )
+                    ).also {
+                        it.setWriteAheadLoggingEnabled(writeAheadLogging)
+                    }
                 }
             }
         }
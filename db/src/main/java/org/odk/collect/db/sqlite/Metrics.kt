@@ -0,0 +1,77 @@
+package org.odk.collect.db.sqlite
+
+import timber.log.Timber
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Named counters for measuring how much work something does (and how long it takes) on real
+ * devices. Each counter tracks how many times it has been recorded and the total nanoseconds
+ * recorded against it.
+ *
+ * If [summaryIntervalMillis] is set, a summary is logged (see [logSummary]) the first time
+ * something is recorded after each interval has passed.
+ */
+class Metrics @JvmOverloads constructor(
+    private val name: String,
+    private val summaryIntervalMillis: Long = 0,
+    private val clock: () -> Long = { System.currentTimeMillis() }
+) {
+
+    private val counters = ConcurrentHashMap<String, Counter>()
+    private val lastSummary = AtomicLong(clock())
+
+    fun <T> time(counter: String, block: () -> T): T {
+        val start = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            record(counter, System.nanoTime() - start)
+        }
+    }
+
+    @JvmOverloads
+    fun record(counter: String, nanos: Long = 0, count: Long = 1) {
+        counters.computeIfAbsent(counter) { Counter() }.record(count, nanos)
+
+        if (summaryIntervalMillis > 0) {
+            val now = clock()
+            val last = lastSummary.get()
+            if (now - last >= summaryIntervalMillis && lastSummary.compareAndSet(last, now)) {
+                logSummary()
+            }
+        }
+    }
+
+    fun count(counter: String): Long {
+        return counters[counter]?.count?.get() ?: 0
+    }
+
+    fun nanos(counter: String): Long {
+        return counters[counter]?.nanos?.get() ?: 0
+    }
+
+    fun logSummary() {
+        Timber.i("%s", this)
+    }
+
+    override fun toString(): String {
+        val summary = counters.toSortedMap().entries.joinToString { (counter, value) ->
+            "$counter: ${value.count.get()} (${TimeUnit.NANOSECONDS.toMillis(value.nanos.get())}ms)"
+        }
+
+        return "$name metrics [$summary]"
+    }
+
+    private class Counter {
+
+        val count = AtomicLong()
+        val nanos = AtomicLong()
+
+        fun record(count: Long, nanos: Long) {
+            this.count.addAndGet(count)
+            this.nanos.addAndGet(nanos)
+        }
+    }
+}
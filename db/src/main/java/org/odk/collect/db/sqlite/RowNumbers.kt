@@ -1,43 +1,52 @@
 package org.odk.collect.db.sqlite
 
 import android.database.Cursor
+import android.database.sqlite.SQLiteDatabase
+import org.odk.collect.db.sqlite.CursorExt.foldAndClose
+import org.odk.collect.db.sqlite.CursorExt.getString
 import org.odk.collect.db.sqlite.SQLiteColumns.ROW_ID
 import org.odk.collect.db.sqlite.SQLiteColumns.ROW_NUMBER
+import org.odk.collect.db.sqlite.SQLiteDatabaseExt.doesTableExist
 
 object RowNumbers {
     fun <T> SynchronizedDatabaseConnection.rawQueryWithRowNumber(table: String, selection: String? = null, selectionArgs: Array<String>? = null, cursorMapper: (Cursor) -> T): T {
         this.ensureRowIdTable(table)
 
+        return this.withReadConnection {
+            val cursor = readableDatabase.rawQuery(getQueryWithRowNumber(table, selection), selectionArgs)
+            cursorMapper(cursor)
+        }
+    }
+
+    /**
+     * Returns the details of SQLite's query plan (`EXPLAIN QUERY PLAN`) for the query that
+     * [rawQueryWithRowNumber] would run with the same arguments.
+     */
+    fun SynchronizedDatabaseConnection.explainQueryWithRowNumber(table: String, selection: String? = null, selectionArgs: Array<String>? = null): List<String> {
+        this.ensureRowIdTable(table)
+
+        return this.withReadConnection {
+            readableDatabase
+                .rawQuery("EXPLAIN QUERY PLAN " + getQueryWithRowNumber(table, selection), selectionArgs)
+                .foldAndClose { it.getString("detail") }
+        }
+    }
+
+    private fun getQueryWithRowNumber(table: String, selection: String?): String {
         return if (selection != null) {
-            this.withConnection {
-                val cursor = readableDatabase
-                    .rawQuery(
-                        """
-                        SELECT *, i.$ROW_ID as $ROW_NUMBER
-                        FROM "$table" e, "${getRowIdTableName(table)}" i
-                        WHERE e._id = i._id AND $selection
-                        ORDER BY i.$ROW_ID
-                        """.trimIndent(),
-                        selectionArgs
-                    )
-
-                cursorMapper(cursor)
-            }
+            """
+            SELECT *, i.$ROW_ID as $ROW_NUMBER
+            FROM "$table" e, "${getRowIdTableName(table)}" i
+            WHERE e._id = i._id AND $selection
+            ORDER BY i.$ROW_ID
+            """.trimIndent()
         } else {
-            this.withConnection {
-                val cursor = readableDatabase
-                    .rawQuery(
-                        """
-                        SELECT *, i.$ROW_ID as $ROW_NUMBER
-                        FROM "$table" e, "${getRowIdTableName(table)}" i
-                        WHERE e._id = i._id
-                        ORDER BY i.$ROW_ID
-                        """.trimIndent(),
-                        null
-                    )
-
-                cursorMapper(cursor)
-            }
+            """
+            SELECT *, i.$ROW_ID as $ROW_NUMBER
+            FROM "$table" e, "${getRowIdTableName(table)}" i
+            WHERE e._id = i._id
+            ORDER BY i.$ROW_ID
+            """.trimIndent()
         }
     }
 
@@ -51,15 +60,127 @@ object RowNumbers {
         }
     }
 
-    private fun SynchronizedDatabaseConnection.ensureRowIdTable(table: String) {
-        resetTransaction {
+    /**
+     * Adds row numbers for rows inserted into [table] since row numbers were last calculated. This
+     * relies on new rows always being given a larger `_id` than existing ones (which is the case
+     * for an `integer PRIMARY KEY` column without `AUTOINCREMENT`).
+     *
+     * Should be called in the same transaction as the inserts so that queries never see a row
+     * without a row number.
+     */
+    fun SQLiteDatabase.appendRowNumbers(table: String) {
+        val rowIdTable = getRowIdTableName(table)
+        if (!doesTableExist(rowIdTable)) {
+            return
+        }
+
+        execSQL(
+            """
+            INSERT INTO "$rowIdTable" (_id)
+            SELECT _id FROM "$table"
+            WHERE _id > IFNULL((SELECT _id FROM "$rowIdTable" ORDER BY $ROW_ID DESC LIMIT 1), -1)
+            ORDER BY _id;
+            """.trimIndent()
+        )
+    }
+
+    /**
+     * Deletes the rows from [table] whose [column] is one of [values] and removes their row
+     * numbers. The row numbers of the rows that follow are shifted down (in one pass however many
+     * rows are deleted) so that they stay contiguous.
+     */
+    fun SQLiteDatabase.deleteWithRowNumbers(
+        table: String,
+        column: String,
+        values: List<String>
+    ) {
+        val rowIdTable = getRowIdTableName(table)
+        val hasRowNumbers = doesTableExist(rowIdTable)
+        if (hasRowNumbers) {
+            // Row number tables created before they were indexed won't have the index yet
+            createRowIdIndex(rowIdTable)
+        }
+
+        val rowNumbers = mutableListOf<Long>()
+        values.chunked(MAX_SELECTION_ARGS).forEach { chunk ->
+            val selection = "\"$column\" IN (${chunk.joinToString { "?" }})"
+            val selectionArgs = chunk.toTypedArray()
+
+            if (hasRowNumbers) {
+                rowNumbers += rawQuery(
+                    "SELECT $ROW_ID FROM \"$rowIdTable\" WHERE _id IN (SELECT _id FROM \"$table\" WHERE $selection)",
+                    selectionArgs
+                ).foldAndClose { it.getLong(0) }
+            }
+
+            delete("\"$table\"", selection, selectionArgs)
+        }
+
+        if (rowNumbers.isNotEmpty()) {
+            removeRowNumbers(rowIdTable, rowNumbers.sorted())
+        }
+    }
+
+    private fun SQLiteDatabase.removeRowNumbers(rowIdTable: String, rowNumbers: List<Long>) {
+        rowNumbers.chunked(MAX_SELECTION_ARGS).forEach { chunk ->
             execSQL(
-                """
-                CREATE TABLE IF NOT EXISTS "${getRowIdTableName(table)}" AS SELECT _id FROM "$table" ORDER BY _id;
-                """.trimIndent()
+                "DELETE FROM \"$rowIdTable\" WHERE $ROW_ID IN (${chunk.joinToString { "?" }})",
+                arrayOf<Any>(*chunk.toTypedArray())
             )
         }
+
+        /**
+         * Each run of rows between two removed rows moves down by the number of rows removed
+         * before it. Shift in two steps (via negative row IDs) so that no intermediate update
+         * collides with an existing row ID regardless of the order SQLite visits rows in.
+         */
+        rowNumbers.forEachIndexed { index, rowNumber ->
+            val next = rowNumbers.getOrNull(index + 1)
+            val shift = index + 1
+
+            if (next != null) {
+                execSQL(
+                    "UPDATE \"$rowIdTable\" SET $ROW_ID = -($ROW_ID - $shift) WHERE $ROW_ID > ? AND $ROW_ID < ?",
+                    arrayOf(rowNumber, next)
+                )
+            } else {
+                execSQL(
+                    "UPDATE \"$rowIdTable\" SET $ROW_ID = -($ROW_ID - $shift) WHERE $ROW_ID > ?",
+                    arrayOf(rowNumber)
+                )
+            }
+        }
+
+        execSQL("UPDATE \"$rowIdTable\" SET $ROW_ID = -$ROW_ID WHERE $ROW_ID < 0")
+    }
+
+    private fun SQLiteDatabase.createRowIdIndex(rowIdTable: String) {
+        execSQL("CREATE INDEX IF NOT EXISTS \"${rowIdTable}_id\" ON \"$rowIdTable\" (_id);")
+    }
+
+    private fun SynchronizedDatabaseConnection.ensureRowIdTable(table: String) {
+        val exists = withReadConnection {
+            readableDatabase.doesTableExist(getRowIdTableName(table))
+        }
+
+        if (!exists) {
+            resetTransaction {
+                execSQL(
+                    """
+                    CREATE TABLE IF NOT EXISTS "${getRowIdTableName(table)}" AS SELECT _id FROM "$table" ORDER BY _id;
+                    """.trimIndent()
+                )
+
+                createRowIdIndex(getRowIdTableName(table))
+            }
+        }
     }
 
     private fun getRowIdTableName(it: String) = "${it}_row_numbers"
+
+    /**
+     * Stay under SQLite's default limit on the number of arguments in a statement (999 on older
+     * versions).
+     */
+    private const val MAX_SELECTION_ARGS = 500
 }
@@ -26,6 +26,14 @@ object SQLiteDatabaseExt {
         return this.getColumnNames(table).contains(column)
     }
 
+    @JvmStatic
+    fun SQLiteDatabase.doesTableExist(table: String): Boolean {
+        return this.rawQuery(
+            "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?",
+            arrayOf(table)
+        ).use { it.count > 0 }
+    }
+
     @JvmStatic
     fun SQLiteDatabase.getColumnNames(table: String): List<String> {
         var columnNames: Array<String>
@@ -1,15 +1,30 @@
 package org.odk.collect.db.sqlite
 
 import android.content.Context
+import android.database.Cursor
 import android.database.sqlite.SQLiteDatabase
 import androidx.core.database.sqlite.transaction
+import java.io.File
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.locks.ReentrantLock
+import java.util.concurrent.locks.ReentrantReadWriteLock
 
+/**
+ * Serializes access to a database. By default, all access (reads included) is exclusive. If
+ * [concurrentReads] is enabled, the database uses WAL mode and accesses made with
+ * [withReadConnection] can run in parallel with each other and with a single access made via
+ * [withConnection] (which remain exclusive with each other).
+ *
+ * [resetTransaction] closes the underlying connection and so is exclusive with everything. It
+ * can't be called from inside [withConnection] or [withReadConnection].
+ */
 class SynchronizedDatabaseConnection(
     context: Context,
     path: String,
     name: String,
     migrator: DatabaseMigrator,
-    databaseVersion: Int
+    databaseVersion: Int,
+    private val concurrentReads: Boolean = false
 ) {
     private val databaseConnection = DatabaseConnection(
         context,
@@ -17,11 +32,62 @@ class SynchronizedDatabaseConnection(
         name,
         migrator,
         databaseVersion,
-        true
+        true,
+        concurrentReads
     )
 
+    private val locks = getLocks(path + File.separator + name)
+
+    /**
+     * How long accesses spend waiting for a lock compared to how long they spend running. A
+     * summary is logged periodically.
+     */
+    val metrics = Metrics(name, METRICS_SUMMARY_INTERVAL)
+
     fun <T> withConnection(block: DatabaseConnection.() -> T): T {
-        return databaseConnection.withSynchronizedConnection(block)
+        val start = System.nanoTime()
+        locks.connection.readLock().lock()
+        locks.write.lock()
+
+        val acquired = System.nanoTime()
+        try {
+            return databaseConnection.withSynchronizedConnection(block)
+        } finally {
+            metrics.record("write lock wait", acquired - start)
+            metrics.record("write", System.nanoTime() - acquired)
+
+            locks.write.unlock()
+            locks.connection.readLock().unlock()
+        }
+    }
+
+    /**
+     * Access the database for reads only. This is the same as [withConnection] unless
+     * [concurrentReads] is enabled.
+     */
+    fun <T> withReadConnection(block: DatabaseConnection.() -> T): T {
+        if (!concurrentReads) {
+            return withConnection(block)
+        }
+
+        val start = System.nanoTime()
+        locks.connection.readLock().lock()
+
+        val acquired = System.nanoTime()
+        try {
+            val result = block(databaseConnection)
+
+            if (result !is Cursor) {
+                return result
+            } else {
+                throw IllegalStateException("Returning a Cursor removes synchronized guarantees!")
+            }
+        } finally {
+            metrics.record("read lock wait", acquired - start)
+            metrics.record("read", System.nanoTime() - acquired)
+
+            locks.connection.readLock().unlock()
+        }
     }
 
     fun transaction(
@@ -41,7 +107,45 @@ class SynchronizedDatabaseConnection(
     fun resetTransaction(
         body: SQLiteDatabase.() -> Unit
     ) {
-        transaction(body)
-        databaseConnection.reset()
+        check(locks.connection.readHoldCount == 0) {
+            "Can't reset the connection from inside withConnection or withReadConnection!"
+        }
+
+        locks.connection.writeLock().lock()
+
+        try {
+            withConnection {
+                transaction(body)
+                databaseConnection.reset()
+            }
+        } finally {
+            locks.connection.writeLock().unlock()
+        }
+    }
+
+    companion object {
+
+        private val METRICS_SUMMARY_INTERVAL = TimeUnit.MINUTES.toMillis(5)
+
+        /**
+         * Locks are shared between connections to the same file so that different instances
+         * don't break each other's guarantees.
+         */
+        private val locks = mutableMapOf<String, Locks>()
+
+        private fun getLocks(databasePath: String): Locks {
+            return synchronized(locks) {
+                locks.getOrPut(databasePath) { Locks() }
+            }
+        }
+    }
+
+    /**
+     * [write] serializes writers. Readers and writers share [connection], which is only held
+     * exclusively while the underlying connection is being reset, so reads never wait for a write.
+     */
+    private class Locks {
+        val write = ReentrantLock()
+        val connection = ReentrantReadWriteLock()
     }
 }
@@ -0,0 +1,81 @@
+package org.odk.collect.db.sqlite
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.greaterThanOrEqualTo
+import org.junit.After
+import org.junit.Test
+import timber.log.Timber
+import java.util.concurrent.TimeUnit
+
+class MetricsTest {
+
+    private val metrics = Metrics("Test")
+
+    @Test
+    fun `#count returns 0 for counters that have not been recorded`() {
+        assertThat(metrics.count("blah"), equalTo(0L))
+        assertThat(metrics.nanos("blah"), equalTo(0L))
+    }
+
+    @Test
+    fun `#record adds to the count and nanos for a counter`() {
+        metrics.record("read", 5)
+        metrics.record("read", 10)
+        metrics.record("files", count = 3)
+
+        assertThat(metrics.count("read"), equalTo(2L))
+        assertThat(metrics.nanos("read"), equalTo(15L))
+        assertThat(metrics.count("files"), equalTo(3L))
+        assertThat(metrics.nanos("files"), equalTo(0L))
+    }
+
+    @Test
+    fun `#time records how long the block takes and returns its result`() {
+        val result = metrics.time("query") {
+            Thread.sleep(1)
+            "result"
+        }
+
+        assertThat(result, equalTo("result"))
+        assertThat(metrics.count("query"), equalTo(1L))
+        assertThat(metrics.nanos("query"), greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(1)))
+    }
+
+    @Test
+    fun `#toString summarizes each counter in name order`() {
+        metrics.record("write", TimeUnit.MILLISECONDS.toNanos(3))
+        metrics.record("read", TimeUnit.MILLISECONDS.toNanos(2), 4)
+
+        assertThat(metrics.toString(), equalTo("Test metrics [read: 4 (2ms), write: 1 (3ms)]"))
+    }
+
+    @Test
+    fun `#record logs a summary once each summary interval has passed`() {
+        val logs = mutableListOf<String>()
+        Timber.plant(object : Timber.Tree() {
+            override fun log(priority: Int, tag: String?, message: String, t: Throwable?) {
+                logs.add(message)
+            }
+        })
+
+        var time = 0L
+        val metrics = Metrics("Test", 1000) { time }
+
+        metrics.record("read", 1)
+        assertThat(logs.size, equalTo(0))
+
+        time = 1000
+        metrics.record("read", 1)
+        assertThat(logs, equalTo(listOf("Test metrics [read: 2 (0ms)]")))
+
+        time = 1500
+        metrics.record("read", 1)
+        assertThat(logs.size, equalTo(1))
+    }
+
+    @After
+    fun teardown() {
+        Timber.uprootAll()
+    }
+}
@@ -11,6 +11,8 @@ import org.junit.Test
 import org.junit.runner.RunWith
 import org.odk.collect.db.sqlite.CursorExt.foldAndClose
 import org.odk.collect.db.sqlite.CursorExt.rowToMap
+import org.odk.collect.db.sqlite.RowNumbers.appendRowNumbers
+import org.odk.collect.db.sqlite.RowNumbers.deleteWithRowNumbers
 import org.odk.collect.db.sqlite.RowNumbers.invalidateRowNumbers
 import org.odk.collect.db.sqlite.RowNumbers.rawQueryWithRowNumber
 import org.odk.collect.db.sqlite.SQLiteColumns.ROW_NUMBER
@@ -95,4 +97,127 @@ class RowNumbersTest {
         assertThat(afterRows[1]["position"], equalTo("third"))
         assertThat(afterRows[1][ROW_NUMBER], equalTo("2"))
     }
+
+    @Test
+    fun `#appendRowNumbers adds row numbers for rows inserted after they were calculated`() {
+        val dbConnection = SynchronizedDatabaseConnection(
+            context,
+            TempFiles.createTempDir().absolutePath,
+            "temp.db",
+            NoopMigrator(),
+            1
+        )
+
+        dbConnection.resetTransaction {
+            execSQL("CREATE TABLE test_table ($_ID integer PRIMARY KEY, position text)")
+        }
+
+        dbConnection.transaction {
+            insertOrThrow("test_table", null, ContentValues().also { it.put("position", "first") })
+        }
+
+        val beforeRows = dbConnection.rawQueryWithRowNumber("test_table") { cursor ->
+            cursor.foldAndClose { it.rowToMap() }
+        }
+        assertThat(beforeRows.size, equalTo(1))
+
+        dbConnection.transaction {
+            insertOrThrow("test_table", null, ContentValues().also { it.put("position", "second") })
+            insertOrThrow("test_table", null, ContentValues().also { it.put("position", "third") })
+            appendRowNumbers("test_table")
+        }
+
+        val afterRows = dbConnection.rawQueryWithRowNumber("test_table") { cursor ->
+            cursor.foldAndClose { it.rowToMap() }
+        }
+        assertThat(afterRows.size, equalTo(3))
+
+        assertThat(afterRows[0]["position"], equalTo("first"))
+        assertThat(afterRows[0][ROW_NUMBER], equalTo("1"))
+
+        assertThat(afterRows[1]["position"], equalTo("second"))
+        assertThat(afterRows[1][ROW_NUMBER], equalTo("2"))
+
+        assertThat(afterRows[2]["position"], equalTo("third"))
+        assertThat(afterRows[2][ROW_NUMBER], equalTo("3"))
+    }
+
+    @Test
+    fun `#deleteWithRowNumbers shifts row numbers of following rows`() {
+        val dbConnection = SynchronizedDatabaseConnection(
+            context,
+            TempFiles.createTempDir().absolutePath,
+            "temp.db",
+            NoopMigrator(),
+            1
+        )
+
+        dbConnection.resetTransaction {
+            execSQL("CREATE TABLE test_table ($_ID integer PRIMARY KEY, position text)")
+        }
+
+        dbConnection.transaction {
+            insertOrThrow("test_table", null, ContentValues().also { it.put("position", "first") })
+            insertOrThrow("test_table", null, ContentValues().also { it.put("position", "second") })
+            insertOrThrow("test_table", null, ContentValues().also { it.put("position", "third") })
+            insertOrThrow("test_table", null, ContentValues().also { it.put("position", "fourth") })
+        }
+
+        val beforeRows = dbConnection.rawQueryWithRowNumber("test_table") { cursor ->
+            cursor.foldAndClose { it.rowToMap() }
+        }
+        assertThat(beforeRows.size, equalTo(4))
+
+        dbConnection.transaction {
+            deleteWithRowNumbers("test_table", "position", listOf("second"))
+        }
+
+        val afterRows = dbConnection.rawQueryWithRowNumber("test_table") { cursor ->
+            cursor.foldAndClose { it.rowToMap() }
+        }
+        assertThat(afterRows.size, equalTo(3))
+
+        assertThat(afterRows[0]["position"], equalTo("first"))
+        assertThat(afterRows[0][ROW_NUMBER], equalTo("1"))
+
+        assertThat(afterRows[1]["position"], equalTo("third"))
+        assertThat(afterRows[1][ROW_NUMBER], equalTo("2"))
+
+        assertThat(afterRows[2]["position"], equalTo("fourth"))
+        assertThat(afterRows[2][ROW_NUMBER], equalTo("3"))
+    }
+
+    @Test
+    fun `#deleteWithRowNumbers shifts row numbers when multiple rows are deleted`() {
+        val dbConnection = SynchronizedDatabaseConnection(
+            context,
+            TempFiles.createTempDir().absolutePath,
+            "temp.db",
+            NoopMigrator(),
+            1
+        )
+
+        dbConnection.resetTransaction {
+            execSQL("CREATE TABLE test_table ($_ID integer PRIMARY KEY, position text)")
+        }
+
+        val positions = (1..10).map { it.toString() }
+        dbConnection.transaction {
+            positions.forEach { position ->
+                insertOrThrow("test_table", null, ContentValues().also { it.put("position", position) })
+            }
+        }
+
+        dbConnection.rawQueryWithRowNumber("test_table") { it.close() }
+
+        dbConnection.transaction {
+            deleteWithRowNumbers("test_table", "position", listOf("9", "2", "3", "6"))
+        }
+
+        val afterRows = dbConnection.rawQueryWithRowNumber("test_table") { cursor ->
+            cursor.foldAndClose { it.rowToMap() }
+        }
+        assertThat(afterRows.map { it["position"] }, equalTo(listOf("1", "4", "5", "7", "8", "10")))
+        assertThat(afterRows.map { it[ROW_NUMBER] }, equalTo(listOf("1", "2", "3", "4", "5", "6")))
+    }
 }
@@ -0,0 +1,178 @@
+package org.odk.collect.db.sqlite
+
+import android.content.ContentValues
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Assert.fail
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.odk.collect.db.sqlite.support.NoopMigrator
+import org.odk.collect.shared.TempFiles
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import kotlin.concurrent.thread
+
+@RunWith(AndroidJUnit4::class)
+class SynchronizedDatabaseConnectionTest {
+
+    private val context = ApplicationProvider.getApplicationContext<Context>()
+
+    @Test
+    fun `#withReadConnection can read what was written with concurrent reads enabled`() {
+        val dbConnection = SynchronizedDatabaseConnection(
+            context,
+            TempFiles.createTempDir().absolutePath,
+            "temp.db",
+            NoopMigrator(),
+            1,
+            concurrentReads = true
+        )
+
+        dbConnection.resetTransaction {
+            execSQL("CREATE TABLE test_table (position text)")
+        }
+
+        dbConnection.transaction {
+            insertOrThrow("test_table", null, ContentValues().also { it.put("position", "first") })
+        }
+
+        val count = dbConnection.withReadConnection {
+            readableDatabase.rawQuery("SELECT * FROM test_table", null).use { it.count }
+        }
+        assertThat(count, equalTo(1))
+    }
+
+    @Test
+    fun `#withReadConnection can read while a write is running with concurrent reads enabled`() {
+        val dbConnection = SynchronizedDatabaseConnection(
+            context,
+            TempFiles.createTempDir().absolutePath,
+            "temp.db",
+            NoopMigrator(),
+            1,
+            concurrentReads = true
+        )
+
+        dbConnection.resetTransaction {
+            execSQL("CREATE TABLE test_table (position text)")
+        }
+
+        val writeStarted = CountDownLatch(1)
+        val readFinished = CountDownLatch(1)
+        var readFinishedDuringWrite = false
+        val writer = thread {
+            dbConnection.transaction {
+                insertOrThrow("test_table", null, ContentValues().also { it.put("position", "first") })
+                writeStarted.countDown()
+                readFinishedDuringWrite = readFinished.await(5, TimeUnit.SECONDS)
+            }
+        }
+
+        writeStarted.await()
+        val count = dbConnection.withReadConnection {
+            readableDatabase.rawQuery("SELECT * FROM test_table", null).use { it.count }
+        }
+        readFinished.countDown()
+        writer.join()
+
+        assertThat(readFinishedDuringWrite, equalTo(true))
+        assertThat(count, equalTo(0))
+    }
+
+    @Test
+    fun `#resetTransaction cannot be called from inside #withConnection`() {
+        val dbConnection = SynchronizedDatabaseConnection(
+            context,
+            TempFiles.createTempDir().absolutePath,
+            "temp.db",
+            NoopMigrator(),
+            1,
+            concurrentReads = true
+        )
+
+        try {
+            dbConnection.withConnection {
+                dbConnection.resetTransaction {
+                    execSQL("CREATE TABLE test_table (position text)")
+                }
+            }
+
+            fail()
+        } catch (_: IllegalStateException) {
+            // Expected
+        }
+    }
+
+    @Test
+    fun `#withReadConnection cannot return a Cursor`() {
+        val dbConnection = SynchronizedDatabaseConnection(
+            context,
+            TempFiles.createTempDir().absolutePath,
+            "temp.db",
+            NoopMigrator(),
+            1,
+            concurrentReads = true
+        )
+
+        try {
+            dbConnection.withReadConnection {
+                readableDatabase.rawQuery("SELECT 1", null)
+            }
+
+            fail()
+        } catch (_: IllegalStateException) {
+            // Expected
+        }
+    }
+
+    @Test
+    fun `records reads and writes separately in metrics`() {
+        val dbConnection = SynchronizedDatabaseConnection(
+            context,
+            TempFiles.createTempDir().absolutePath,
+            "temp.db",
+            NoopMigrator(),
+            1,
+            concurrentReads = true
+        )
+
+        dbConnection.withConnection { writableDatabase.execSQL("CREATE TABLE test_table (position text)") }
+        dbConnection.withReadConnection { readableDatabase.rawQuery("SELECT * FROM test_table", null).close() }
+        dbConnection.withReadConnection { readableDatabase.rawQuery("SELECT * FROM test_table", null).close() }
+
+        assertThat(dbConnection.metrics.count("write"), equalTo(1L))
+        assertThat(dbConnection.metrics.count("read"), equalTo(2L))
+    }
+
+    @Test
+    fun `records reads and writes in metrics when they throw`() {
+        val dbConnection = SynchronizedDatabaseConnection(
+            context,
+            TempFiles.createTempDir().absolutePath,
+            "temp.db",
+            NoopMigrator(),
+            1,
+            concurrentReads = true
+        )
+
+        try {
+            dbConnection.withConnection<Unit> { throw IllegalStateException() }
+            fail()
+        } catch (_: IllegalStateException) {
+            // Expected
+        }
+
+        try {
+            dbConnection.withReadConnection<Unit> { throw IllegalStateException() }
+            fail()
+        } catch (_: IllegalStateException) {
+            // Expected
+        }
+
+        assertThat(dbConnection.metrics.count("write"), equalTo(1L))
+        assertThat(dbConnection.metrics.count("read"), equalTo(1L))
+    }
+}
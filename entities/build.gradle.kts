@@ -67,9 +67,12 @@ dependencies {
     kapt(libs.daggerCompiler)
 
     testImplementation(project(":forms-test"))
+    testImplementation(project(":androidtest"))
+    testImplementation(project(":test-shared"))
     testImplementation(libs.junit)
     testImplementation(libs.robolectric)
     testImplementation(libs.hamcrest)
     testImplementation(libs.mockitoKotlin)
+    testImplementation(libs.androidxArchCoreTesting)
     testImplementation(libs.javarosa) // Include with all dependencies
 }
@@ -1,5 +1,6 @@
 package org.odk.collect.entities
 
+import org.apache.commons.csv.CSVParser
 import org.apache.commons.csv.CSVRecord
 import org.javarosa.core.model.instance.SecondaryInstanceCSVParserBuilder
 import org.odk.collect.entities.javarosa.finalization.EntitiesExtra
@@ -8,6 +9,7 @@ import org.odk.collect.entities.javarosa.spec.EntityAction
 import org.odk.collect.entities.server.EntitySource
 import org.odk.collect.entities.storage.EntitiesRepository
 import org.odk.collect.entities.storage.Entity
+import org.odk.collect.entities.storage.EntityVersion
 import org.odk.collect.forms.MediaFile
 import org.odk.collect.shared.Query
 import java.io.File
@@ -74,55 +76,75 @@ object LocalEntityUseCases {
             return
         }
 
-        val csvParser = try {
-            SecondaryInstanceCSVParserBuilder()
-                .path(serverList.absolutePath)
-                .build()
-        } catch (_: Exception) {
+        /**
+         * Entities are saved in batches as they are read, so check every row is valid before
+         * saving anything. Otherwise an invalid row would leave the list partially updated.
+         */
+        val isValid = createCsvParser(serverList)?.use { parser ->
+            parser.all { parseEntityFromRecord(it) != null }
+        } ?: return
+
+        if (!isValid) {
             return
         }
 
-        val localEntities = entitiesRepository.query(list)
+        val csvParser = createCsvParser(serverList) ?: return
+
+        /**
+         * Only versions (rather than whole entities) are held in memory for comparison. Entities
+         * are then streamed from the CSV and saved in batches, only writing those that changed.
+         */
+        val missingFromServer = entitiesRepository.getVersions(list).associateBy { it.id }.toMutableMap()
 
-        val missingFromServer = localEntities.associateBy { it.id }.toMutableMap()
-        val newAndUpdated = ArrayList<Entity>()
         csvParser.use {
-            it.forEach { record ->
-                val serverEntity = parseEntityFromRecord(record) ?: return
+            val newAndUpdated: Sequence<Entity> = it.asSequence().mapNotNull { record ->
+                val serverEntity = checkNotNull(parseEntityFromRecord(record))
                 val existing = missingFromServer.remove(serverEntity.id)
 
                 if (existing == null) {
-                    newAndUpdated.add(
-                        Entity.New(
-                            serverEntity.id,
-                            serverEntity.label,
-                            serverEntity.version,
-                            serverEntity.properties.toList(),
-                            state = Entity.State.ONLINE,
-                            trunkVersion = serverEntity.version,
-                            branchId = UUID.randomUUID().toString()
-                        )
+                    Entity.New(
+                        serverEntity.id,
+                        serverEntity.label,
+                        serverEntity.version,
+                        serverEntity.properties.toList(),
+                        state = Entity.State.ONLINE,
+                        trunkVersion = serverEntity.version,
+                        branchId = UUID.randomUUID().toString()
                     )
                 } else if (existing.version < serverEntity.version) {
-                    newAndUpdated.add(serverEntity.updateLocal(existing))
+                    serverEntity.updateLocal(existing)
                 } else if (existing.version == serverEntity.version) {
                     if (existing.isDirty()) {
-                        newAndUpdated.add(serverEntity.updateLocal(existing))
+                        serverEntity.updateLocal(existing)
+                    } else {
+                        null
                     }
                 } else if (existing.state == Entity.State.OFFLINE) {
-                    val update = existing.copy(state = Entity.State.ONLINE)
-                    newAndUpdated.add(update)
+                    /**
+                     * A null label and no properties leave the existing label and
+                     * properties untouched when saved.
+                     */
+                    Entity.New(
+                        existing.id,
+                        null,
+                        existing.version,
+                        state = Entity.State.ONLINE,
+                        trunkVersion = existing.trunkVersion,
+                        branchId = existing.branchId
+                    )
+                } else {
+                    null
                 }
             }
+
+            entitiesRepository.save(list, newAndUpdated)
         }
 
-        missingFromServer.values
+        val deletedOnServer = missingFromServer.values
             .filter { it.state == Entity.State.ONLINE }
-            .forEach {
-                entitiesRepository.delete(list, it.id)
-            }
+            .map { it.id }
+        entitiesRepository.delete(list, deletedOnServer)
 
-        entitiesRepository.save(list, *newAndUpdated.toTypedArray())
         entitiesRepository.updateList(
             list,
             mediaFile.hash,
@@ -137,16 +159,26 @@ object LocalEntityUseCases {
         mediaFile: MediaFile
     ) {
         val offlineLocalEntities = entitiesRepository
-            .query(list)
+            .getVersions(list)
             .filter { it.state == Entity.State.OFFLINE }
 
         val integrityUrl = mediaFile.integrityUrl
         if (integrityUrl != null && offlineLocalEntities.isNotEmpty()) {
-            entitySource.fetchDeletedStates(integrityUrl, offlineLocalEntities.map { it.id }).forEach {
-                if (it.second) {
-                    entitiesRepository.delete(list, it.first)
-                }
-            }
+            val deleted = entitySource
+                .fetchDeletedStates(integrityUrl, offlineLocalEntities.map { it.id })
+                .filter { it.second }
+                .map { it.first }
+            entitiesRepository.delete(list, deleted)
+        }
+    }
+
+    private fun createCsvParser(serverList: File): CSVParser? {
+        return try {
+            SecondaryInstanceCSVParserBuilder()
+                .path(serverList.absolutePath)
+                .build()
+        } catch (_: Exception) {
+            null
         }
     }
 
@@ -176,14 +208,15 @@ private data class ServerEntity(
     val properties: Map<String, String>
 ) {
 
-    fun updateLocal(local: Entity.Saved): Entity.Saved {
-        return local.copy(
-            label = this.label,
-            version = this.version,
-            properties = this.properties.toList(),
+    fun updateLocal(local: EntityVersion): Entity {
+        return Entity.New(
+            local.id,
+            this.label,
+            this.version,
+            this.properties.toList(),
             state = Entity.State.ONLINE,
-            branchId = UUID.randomUUID().toString(),
-            trunkVersion = this.version
+            trunkVersion = this.version,
+            branchId = UUID.randomUUID().toString()
         )
     }
 }
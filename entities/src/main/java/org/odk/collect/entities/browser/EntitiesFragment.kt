@@ -34,26 +34,44 @@ class EntitiesFragment(private val viewModelFactory: ViewModelProvider.Factory)
         binding.list.addItemDecoration(RecyclerViewUtils.verticalLineDivider(requireContext()))
 
         val list = EntitiesFragmentArgs.fromBundle(requireArguments()).list
-        entitiesViewModel.getEntities(list).observe(viewLifecycleOwner) {
-            binding.list.adapter = EntitiesAdapter(it)
+        entitiesViewModel.getCount(list).observe(viewLifecycleOwner) { count ->
+            if (count != null) {
+                binding.list.adapter = EntitiesAdapter(count) {
+                    entitiesViewModel.getEntity(list, it)
+                }
+            }
+        }
+
+        entitiesViewModel.loadedPages.observe(viewLifecycleOwner) {
+            binding.list.adapter?.notifyItemRangeChanged(it.first, it.last - it.first + 1)
         }
     }
 }
 
-private class EntitiesAdapter(private val data: List<Entity.Saved>) :
-    RecyclerView.Adapter<EntityViewHolder>() {
+/**
+ * Displays [count] entities, requesting each one as it is bound. Entities that haven't been
+ * loaded yet are shown as placeholders until their page is loaded.
+ */
+private class EntitiesAdapter(
+    private val count: Int,
+    private val getEntity: (Int) -> Entity.Saved?
+) : RecyclerView.Adapter<EntityViewHolder>() {
 
     override fun onCreateViewHolder(parent: ViewGroup, position: Int): EntityViewHolder {
         return EntityViewHolder(parent.context)
     }
 
     override fun getItemCount(): Int {
-        return data.size
+        return count
     }
 
     override fun onBindViewHolder(viewHolder: EntityViewHolder, position: Int) {
-        val entity = data[position]
-        viewHolder.setEntity(entity)
+        val entity = getEntity(position)
+        if (entity != null) {
+            viewHolder.setEntity(entity)
+        } else {
+            viewHolder.clear()
+        }
     }
 }
 
@@ -66,4 +84,8 @@ private class EntityViewHolder(context: Context) : ViewHolder(EntityItemView(con
     fun setEntity(entity: Entity.Saved) {
         (itemView as EntityItemView).setEntity(entity)
     }
+
+    fun clear() {
+        (itemView as EntityItemView).clear()
+    }
 }
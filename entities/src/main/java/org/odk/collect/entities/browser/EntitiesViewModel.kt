@@ -16,18 +16,71 @@ class EntitiesViewModel(
     private val _lists = MutableLiveData<List<String>>(emptyList())
     val lists: LiveData<List<String>> = _lists
 
+    private val _loadedPages = MutableLiveData<IntRange>()
+
+    /**
+     * Emits the range of positions covered by a page each time one is loaded in response to
+     * [getEntity].
+     */
+    val loadedPages: LiveData<IntRange> = _loadedPages
+
+    /**
+     * Recently loaded pages (keyed by page number). Only accessed from the main thread.
+     */
+    private val pages = object : LinkedHashMap<Int, List<Entity.Saved>>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Int, List<Entity.Saved>>?): Boolean {
+            return size > MAX_PAGES
+        }
+    }
+
+    private val loadingPages = mutableSetOf<Int>()
+
     init {
         scheduler.immediate {
             _lists.postValue(entitiesRepository.getListNames().toList())
         }
     }
 
-    fun getEntities(list: String): LiveData<List<Entity.Saved>> {
-        val result = MutableLiveData<List<Entity.Saved>>(emptyList())
+    fun getCount(list: String): LiveData<Int?> {
+        val result = MutableLiveData<Int?>(null)
         scheduler.immediate {
-            result.postValue(entitiesRepository.query(list))
+            result.postValue(entitiesRepository.getCount(list))
         }
 
         return result
     }
+
+    /**
+     * Returns the entity at [position] if the page of [PAGE_SIZE] entities containing it has
+     * been loaded. If it hasn't, the page is loaded in the background and `null` is returned
+     * (with [loadedPages] emitting once the page is available).
+     */
+    fun getEntity(list: String, position: Int): Entity.Saved? {
+        val pageNumber = position / PAGE_SIZE
+        val page = pages[pageNumber]
+        if (page != null) {
+            return page.getOrNull(position % PAGE_SIZE)
+        }
+
+        if (loadingPages.add(pageNumber)) {
+            val offset = pageNumber * PAGE_SIZE
+            scheduler.immediate(
+                background = {
+                    entitiesRepository.getPage(list, offset, PAGE_SIZE)
+                },
+                foreground = { loaded ->
+                    loadingPages.remove(pageNumber)
+                    pages[pageNumber] = loaded
+                    _loadedPages.value = offset until offset + loaded.size
+                }
+            )
+        }
+
+        return null
+    }
+
+    companion object {
+        internal const val PAGE_SIZE = 50
+        internal const val MAX_PAGES = 10
+    }
 }
@@ -21,4 +21,11 @@ class EntityItemView(context: Context) : FrameLayout(context) {
             .joinToString(separator = "\n") { "${it.first}: ${it.second}" }
         binding.offlinePill.isVisible = entity.state == Entity.State.OFFLINE
     }
+
+    fun clear() {
+        binding.label.text = null
+        binding.id.text = null
+        binding.properties.text = null
+        binding.offlinePill.isVisible = false
+    }
 }
@@ -5,6 +5,7 @@ import org.javarosa.core.model.condition.FilterStrategy
 import org.javarosa.core.model.instance.DataInstance
 import org.javarosa.core.model.instance.TreeReference
 import org.javarosa.xpath.expr.XPathExpression
+import org.javarosa.xpath.expr.XPathNumericLiteral
 import org.odk.collect.entities.javarosa.intance.LocalEntitiesInstanceAdapter
 import org.odk.collect.entities.javarosa.intance.LocalEntitiesInstanceProvider
 import org.odk.collect.entities.javarosa.parse.XPathExpressionExt.toQuery
@@ -37,6 +38,10 @@ class LocalEntitiesFilterStrategy(entitiesRepository: EntitiesRepository) :
             return next.get()
         }
 
+        if (predicate is XPathNumericLiteral) {
+            return positionToTreeReferences(predicate.d, sourceInstance, nodeSet, children, next)
+        }
+
         val query = predicate.toQuery(sourceInstance, evaluationContext)
         return if (query != null) {
             try {
@@ -49,6 +54,36 @@ class LocalEntitiesFilterStrategy(entitiesRepository: EntitiesRepository) :
         }
     }
 
+    /**
+     * Handles positional predicates (like `item[3]`) by only fetching the requested item rather
+     * than falling back to JavaRosa which would require the whole instance to be loaded.
+     */
+    private fun positionToTreeReferences(
+        position: Double,
+        sourceInstance: DataInstance<*>,
+        nodeSet: TreeReference,
+        children: List<TreeReference>,
+        next: Supplier<MutableList<TreeReference>>
+    ): List<TreeReference> {
+        /**
+         * Only positions within the whole list of items can be looked up directly (rather than
+         * positions within the results of a previous predicate for example).
+         */
+        val isAllItems = nodeSet.nameLast == "item" && children.size == sourceInstance.root.numChildren
+        if (!isAllItems || position < 1 || position != Math.floor(position)) {
+            return next.get()
+        }
+
+        val element = instanceAdapter.getByIndex(sourceInstance.instanceId, position.toInt() - 1)
+        return if (element != null) {
+            sourceInstance.replacePartialElements(listOf(element))
+            element.parent = sourceInstance.root
+            listOf(element.ref)
+        } else {
+            emptyList()
+        }
+    }
+
     private fun queryToTreeReferences(
         query: Query,
         sourceInstance: DataInstance<*>
@@ -12,6 +12,16 @@ class LocalEntitiesInstanceAdapter(private val entitiesRepository: EntitiesRepos
 
     private val lists = entitiesRepository.getListNames()
 
+    /**
+     * Recently materialized elements (keyed by list and index) so that repeatedly accessing
+     * nearby items doesn't hit the repository each time.
+     */
+    private val elementCache = object : LinkedHashMap<Pair<String, Int>, TreeElement>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<Pair<String, Int>, TreeElement>?): Boolean {
+            return size > CACHE_SIZE
+        }
+    }
+
     fun supportsInstance(instanceId: String): Boolean {
         return lists.contains(instanceId)
     }
@@ -40,6 +50,24 @@ class LocalEntitiesInstanceAdapter(private val entitiesRepository: EntitiesRepos
         }
     }
 
+    /**
+     * Returns the element for the entity at [index], fetching the page of [PAGE_SIZE] entities
+     * that contains it from the repository if it hasn't been materialized recently.
+     */
+    fun getByIndex(list: String, index: Int): TreeElement? {
+        val cached = elementCache[Pair(list, index)]
+        if (cached != null) {
+            return cached
+        }
+
+        val pageStart = index - (index % PAGE_SIZE)
+        entitiesRepository.getPage(list, pageStart, PAGE_SIZE).forEach {
+            elementCache[Pair(list, it.index)] = convertToElement(it)
+        }
+
+        return elementCache[Pair(list, index)]
+    }
+
     fun query(list: String, query: Query): List<TreeElement> {
         return entitiesRepository
             .query(list, query)
@@ -80,4 +108,9 @@ class LocalEntitiesInstanceAdapter(private val entitiesRepository: EntitiesRepos
 
         return item
     }
+
+    companion object {
+        private const val PAGE_SIZE = 100
+        private const val CACHE_SIZE = 1000
+    }
 }
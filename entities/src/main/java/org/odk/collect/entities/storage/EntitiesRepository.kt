@@ -4,12 +4,31 @@ import org.odk.collect.shared.Query
 
 interface EntitiesRepository {
     fun save(list: String, vararg entities: Entity)
+
+    /**
+     * Saves entities as they are produced by [entities]. Implementations may save in several
+     * transactions so the whole sequence never needs to be held in memory. This means an
+     * exception thrown by [entities] can leave earlier entities saved.
+     */
+    fun save(list: String, entities: Sequence<Entity>)
     fun getLists(): List<EntityList>
     fun getCount(list: String): Int
     fun addList(list: String)
     fun delete(list: String, id: String)
+
+    /**
+     * Deletes all the entities in [ids] at once. This is cheaper than deleting them one by one
+     * as the indexes of the entities that follow only need to be updated once.
+     */
+    fun delete(list: String, ids: List<String>)
     fun query(list: String, query: Query? = null): List<Entity.Saved>
     fun getByIndex(list: String, index: Int): Entity.Saved?
+    fun getVersions(list: String): List<EntityVersion>
+
+    /**
+     * Returns up to [limit] entities starting from the one with index [offset] (in index order).
+     */
+    fun getPage(list: String, offset: Int, limit: Int): List<Entity.Saved>
     fun updateList(list: String, hash: String, needsApproval: Boolean)
     fun getList(list: String): EntityList?
 }
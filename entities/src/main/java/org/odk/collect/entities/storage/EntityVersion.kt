@@ -0,0 +1,17 @@
+package org.odk.collect.entities.storage
+
+/**
+ * The version information for an [Entity] without its label or properties. Useful for comparing
+ * local entities with another source (like a server entity list) without loading everything.
+ */
+data class EntityVersion(
+    val id: String,
+    val version: Int,
+    val trunkVersion: Int?,
+    val branchId: String,
+    val state: Entity.State
+) {
+    fun isDirty(): Boolean {
+        return version != trunkVersion
+    }
+}
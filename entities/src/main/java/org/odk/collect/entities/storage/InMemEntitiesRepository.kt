@@ -27,6 +27,11 @@ class InMemEntitiesRepository(private val clock: () -> Long = { 0 }) : EntitiesR
         entities[list]?.removeIf { it.id == id }
     }
 
+    override fun delete(list: String, ids: List<String>) {
+        val idSet = ids.toSet()
+        entities[list]?.removeIf { it.id in idSet }
+    }
+
     override fun query(list: String, query: Query?): List<Entity.Saved> {
         val entities = (entities[list] ?: emptyList()).mapIndexed { index, entity ->
             Entity.Saved(
@@ -64,6 +69,16 @@ class InMemEntitiesRepository(private val clock: () -> Long = { 0 }) : EntitiesR
         return query(list).firstOrNull { it.index == index }
     }
 
+    override fun getVersions(list: String): List<EntityVersion> {
+        return query(list).map {
+            EntityVersion(it.id, it.version, it.trunkVersion, it.branchId, it.state)
+        }
+    }
+
+    override fun getPage(list: String, offset: Int, limit: Int): List<Entity.Saved> {
+        return query(list).drop(offset).take(limit)
+    }
+
     override fun updateList(list: String, hash: String, needsApproval: Boolean) {
         val existing = lists.firstOrNull { it.name == list }
         if (existing != null) {
@@ -121,6 +136,10 @@ class InMemEntitiesRepository(private val clock: () -> Long = { 0 }) : EntitiesR
         }
     }
 
+    override fun save(list: String, entities: Sequence<Entity>) {
+        save(list, *entities.toList().toTypedArray())
+    }
+
     private fun updateLists(list: String, entity: Entity) {
         addList(list)
 
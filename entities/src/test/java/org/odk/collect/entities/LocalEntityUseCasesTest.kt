@@ -16,6 +16,7 @@ import org.odk.collect.entities.server.EntitySource
 import org.odk.collect.entities.storage.EntitiesRepository
 import org.odk.collect.entities.storage.Entity
 import org.odk.collect.entities.storage.EntityList
+import org.odk.collect.entities.storage.EntityVersion
 import org.odk.collect.entities.storage.InMemEntitiesRepository
 import org.odk.collect.formstest.FormFixtures
 import org.odk.collect.shared.Query
@@ -682,6 +683,11 @@ private class MeasurableEntitiesRepository(private val wrapped: EntitiesReposito
         wrapped.save(list, *entities)
     }
 
+    override fun save(list: String, entities: Sequence<Entity>) {
+        accesses += 1
+        wrapped.save(list, entities.onEach { savedEntities += 1 })
+    }
+
     override fun getLists(): List<EntityList> {
         accesses += 1
         return wrapped.getLists()
@@ -701,6 +707,11 @@ private class MeasurableEntitiesRepository(private val wrapped: EntitiesReposito
         wrapped.delete(list, id)
     }
 
+    override fun delete(list: String, ids: List<String>) {
+        accesses += 1
+        wrapped.delete(list, ids)
+    }
+
     override fun query(list: String, query: Query?): List<Entity.Saved> {
         accesses += 1
         return wrapped.query(list, query)
@@ -711,6 +722,16 @@ private class MeasurableEntitiesRepository(private val wrapped: EntitiesReposito
         return wrapped.getByIndex(list, index)
     }
 
+    override fun getVersions(list: String): List<EntityVersion> {
+        accesses += 1
+        return wrapped.getVersions(list)
+    }
+
+    override fun getPage(list: String, offset: Int, limit: Int): List<Entity.Saved> {
+        accesses += 1
+        return wrapped.getPage(list, offset, limit)
+    }
+
     override fun updateList(list: String, hash: String, needsApproval: Boolean) {
         accesses += 1
         wrapped.updateList(list, hash, false)
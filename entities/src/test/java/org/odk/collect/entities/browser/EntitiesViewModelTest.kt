@@ -0,0 +1,104 @@
+package org.odk.collect.entities.browser
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.hamcrest.Matchers.nullValue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.odk.collect.androidtest.recordValues
+import org.odk.collect.entities.browser.EntitiesViewModel.Companion.MAX_PAGES
+import org.odk.collect.entities.browser.EntitiesViewModel.Companion.PAGE_SIZE
+import org.odk.collect.entities.storage.Entity
+import org.odk.collect.entities.storage.InMemEntitiesRepository
+import org.odk.collect.testshared.FakeScheduler
+import org.robolectric.RobolectricTestRunner
+
+@RunWith(RobolectricTestRunner::class)
+class EntitiesViewModelTest {
+
+    @get:Rule
+    val instantTaskExecutorRule = InstantTaskExecutorRule()
+
+    private val scheduler = FakeScheduler()
+    private val entitiesRepository = InMemEntitiesRepository()
+
+    @Test
+    fun `#getEntity returns null and loads the page when it has not been loaded`() {
+        saveEntities(PAGE_SIZE)
+        val viewModel = EntitiesViewModel(scheduler, entitiesRepository)
+        scheduler.flush()
+
+        assertThat(viewModel.getEntity("things", 0), nullValue())
+
+        scheduler.flush()
+        assertThat(viewModel.getEntity("things", 0)!!.id, equalTo("0"))
+    }
+
+    @Test
+    fun `#loadedPages emits the page's positions once it is loaded`() {
+        saveEntities(PAGE_SIZE + 1)
+        val viewModel = EntitiesViewModel(scheduler, entitiesRepository)
+        scheduler.flush()
+
+        viewModel.loadedPages.recordValues { values ->
+            viewModel.getEntity("things", PAGE_SIZE)
+            assertThat(values, equalTo(emptyList()))
+
+            scheduler.flush()
+            assertThat(values, equalTo(listOf(PAGE_SIZE until PAGE_SIZE + 1)))
+        }
+    }
+
+    @Test
+    fun `#getEntity returns the correct entity either side of a page boundary`() {
+        saveEntities(PAGE_SIZE * 2)
+        val viewModel = EntitiesViewModel(scheduler, entitiesRepository)
+        scheduler.flush()
+
+        viewModel.getEntity("things", PAGE_SIZE - 1)
+        viewModel.getEntity("things", PAGE_SIZE)
+        scheduler.flush()
+
+        assertThat(viewModel.getEntity("things", PAGE_SIZE - 1)!!.id, equalTo("${PAGE_SIZE - 1}"))
+        assertThat(viewModel.getEntity("things", PAGE_SIZE)!!.id, equalTo("$PAGE_SIZE"))
+    }
+
+    @Test
+    fun `#getEntity only loads a page once while it is loading`() {
+        saveEntities(PAGE_SIZE)
+        val viewModel = EntitiesViewModel(scheduler, entitiesRepository)
+        scheduler.flush()
+
+        viewModel.loadedPages.recordValues { values ->
+            viewModel.getEntity("things", 0)
+            viewModel.getEntity("things", 1)
+            scheduler.flush()
+
+            assertThat(values.size, equalTo(1))
+        }
+    }
+
+    @Test
+    fun `#getEntity evicts the least recently used page when more than the max pages are loaded`() {
+        saveEntities(PAGE_SIZE * (MAX_PAGES + 1))
+        val viewModel = EntitiesViewModel(scheduler, entitiesRepository)
+        scheduler.flush()
+
+        0.until(MAX_PAGES + 1).forEach {
+            viewModel.getEntity("things", it * PAGE_SIZE)
+            scheduler.flush()
+        }
+
+        assertThat(viewModel.getEntity("things", 0), nullValue())
+        assertThat(viewModel.getEntity("things", MAX_PAGES * PAGE_SIZE)!!.id, equalTo("${MAX_PAGES * PAGE_SIZE}"))
+    }
+
+    private fun saveEntities(count: Int) {
+        entitiesRepository.save(
+            "things",
+            *0.until(count).map { Entity.New("$it", "Thing $it") }.toTypedArray()
+        )
+    }
+}
@@ -52,4 +52,17 @@ class EntityItemViewTest {
         view.setEntity(entity.copy(state = Entity.State.OFFLINE))
         assertThat(view.binding.id.text, equalTo("${entity.id} (${entity.version})"))
     }
+
+    @Test
+    fun `#clear removes previously shown entity`() {
+        val view = EntityItemView(context)
+        val entity = Entity.Saved("1", "S.D.O.S", properties = listOf(Pair("name", "S.D.O.S")), state = Entity.State.OFFLINE, index = 0)
+
+        view.setEntity(entity)
+        view.clear()
+        assertThat(view.binding.label.text.toString(), equalTo(""))
+        assertThat(view.binding.id.text.toString(), equalTo(""))
+        assertThat(view.binding.properties.text.toString(), equalTo(""))
+        assertThat(view.binding.offlinePill.isVisible, equalTo(false))
+    }
 }
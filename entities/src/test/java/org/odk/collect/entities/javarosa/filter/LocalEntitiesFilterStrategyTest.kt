@@ -173,6 +173,46 @@ class LocalEntitiesFilterStrategyTest {
         assertThat(instanceProvider.fullParsePerformed, equalTo(false))
     }
 
+    @Test
+    fun `returns item at position in the optimized way`() {
+        entitiesRepository.save(
+            "things",
+            Entity.New("thing1", "Thing 1"),
+            Entity.New("thing2", "Thing 2"),
+            Entity.New("thing3", "Thing 3")
+        )
+
+        val scenario = Scenario.init(
+            "Secondary instance form",
+            html(
+                head(
+                    title("Secondary instance form"),
+                    model(
+                        mainInstance(
+                            t(
+                                "data id=\"create-entity-form\"",
+                                t("question"),
+                                t("calculate")
+                            )
+                        ),
+                        t("instance id=\"things\" src=\"jr://file-csv/things.csv\""),
+                        bind("/data/question").type("string"),
+                        bind("/data/calculate").type("string")
+                            .calculate("instance('things')/root/item[2]/label")
+                    )
+                ),
+                body(
+                    input("/data/calculate")
+                )
+            ),
+            controllerSupplier
+        )
+
+        assertThat(scenario.answerOf<StringData>("/data/calculate").value, equalTo("Thing 2"))
+        assertThat(fallthroughFilterStrategy.fellThrough, equalTo(false))
+        assertThat(instanceProvider.fullParsePerformed, equalTo(false))
+    }
+
     @Test
     fun `returns empty nodeset in the optimized way when no entity matches name`() {
         entitiesRepository.addList("things")
@@ -207,6 +207,33 @@ public abstract class FormsRepositoryTest {
         assertThat(formsRepository.get(1L).getMD5Hash(), equalTo(expectedHash));
     }
 
+    @Test
+    public void save_addsSizeAndLastModifiedOfFormFile() {
+        FormsRepository formsRepository = buildSubject();
+        Form form = FormUtils.buildForm("id", "version", getFormFilesPath()).build();
+        File formFile = new File(form.getFormFilePath());
+
+        formsRepository.save(form);
+        assertThat(formsRepository.get(1L).getFormFileSize(), equalTo(formFile.length()));
+        assertThat(formsRepository.get(1L).getFormFileLastModified(), equalTo(formFile.lastModified()));
+
+        formFile.setLastModified(formFile.lastModified() - 10000);
+        formsRepository.save(formsRepository.get(1L));
+        assertThat(formsRepository.get(1L).getFormFileLastModified(), equalTo(formFile.lastModified()));
+    }
+
+    @Test
+    public void updateFileStamp_updatesSizeAndLastModifiedWithoutChangingHash() {
+        FormsRepository formsRepository = buildSubject();
+        Form form = FormUtils.buildForm("id", "version", getFormFilesPath()).build();
+        String hash = formsRepository.save(form).getMD5Hash();
+
+        formsRepository.updateFileStamp(1L, 5L, 10L);
+        assertThat(formsRepository.get(1L).getFormFileSize(), equalTo(5L));
+        assertThat(formsRepository.get(1L).getFormFileLastModified(), equalTo(10L));
+        assertThat(formsRepository.get(1L).getMD5Hash(), equalTo(hash));
+    }
+
     @Test(expected = Exception.class)
     public void save_whenNoFormFilePath_explodes() {
         FormsRepository formsRepository = buildSubject();
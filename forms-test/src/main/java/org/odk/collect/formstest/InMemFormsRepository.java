@@ -113,6 +113,7 @@ public class InMemFormsRepository implements FormsRepository {
 
         if (form.getDbId() != null) {
             String formFilePath = form.getFormFilePath();
+            stampFormFile(builder, new File(formFilePath));
             String hash = Md5.getMd5Hash(new File(formFilePath));
             builder.md5Hash(hash);
 
@@ -127,6 +128,7 @@ public class InMemFormsRepository implements FormsRepository {
             String hash;
             if (form.getMD5Hash() == null) {
                 String formFilePath = form.getFormFilePath();
+                stampFormFile(builder, new File(formFilePath));
                 hash = Md5.getMd5Hash(new File(formFilePath));
                 builder.md5Hash(hash);
             } else {
@@ -154,6 +156,11 @@ public class InMemFormsRepository implements FormsRepository {
         }
     }
 
+    private static void stampFormFile(Form.Builder builder, File formFile) {
+        builder.formFileSize(formFile.length())
+                .formFileLastModified(formFile.lastModified());
+    }
+
     @Override
     public void delete(Long id) {
         Optional<Form> formToRemove = forms.stream().filter(f -> f.getDbId().equals(id)).findFirst();
@@ -207,6 +214,19 @@ public class InMemFormsRepository implements FormsRepository {
         }
     }
 
+    @Override
+    public void updateFileStamp(Long id, long fileSize, long fileLastModified) {
+        Form form = forms.stream().filter(f -> f.getDbId().equals(id)).findFirst().orElse(null);
+
+        if (form != null) {
+            forms.remove(form);
+            forms.add(new Form.Builder(form)
+                    .formFileSize(fileSize)
+                    .formFileLastModified(fileLastModified)
+                    .build());
+        }
+    }
+
     private void deleteFilesForForm(Form form) {
         // Delete form file
         if (form.getFormFilePath() != null) {
@@ -47,6 +47,8 @@ public final class Form {
     private final boolean deleted;
     private final Long lastDetectedAttachmentsUpdateDate;
     private final boolean usesEntities;
+    private final Long formFileSize;
+    private final Long formFileLastModified;
 
     private Form(Form.Builder builder) {
         dbId = builder.dbId;
@@ -68,6 +70,8 @@ public final class Form {
         deleted = builder.deleted;
         lastDetectedAttachmentsUpdateDate = builder.lastDetectedAttachmentsUpdateDate;
         usesEntities = builder.usesEntities;
+        formFileSize = builder.formFileSize;
+        formFileLastModified = builder.formFileLastModified;
     }
 
     public static class Builder {
@@ -90,6 +94,8 @@ public final class Form {
         private boolean deleted;
         private Long lastDetectedAttachmentsUpdateDate;
         private boolean usesEntities;
+        private Long formFileSize;
+        private Long formFileLastModified;
 
         public Builder() {
         }
@@ -114,6 +120,8 @@ public final class Form {
             deleted = form.deleted;
             lastDetectedAttachmentsUpdateDate = form.lastDetectedAttachmentsUpdateDate;
             usesEntities = form.usesEntities;
+            formFileSize = form.formFileSize;
+            formFileLastModified = form.formFileLastModified;
         }
 
         public Builder dbId(Long id) {
@@ -211,6 +219,16 @@ public final class Form {
             return this;
         }
 
+        public Builder formFileSize(Long formFileSize) {
+            this.formFileSize = formFileSize;
+            return this;
+        }
+
+        public Builder formFileLastModified(Long formFileLastModified) {
+            this.formFileLastModified = formFileLastModified;
+            return this;
+        }
+
         public Form build() {
             return new Form(this);
         }
@@ -296,6 +314,24 @@ public final class Form {
         return usesEntities;
     }
 
+    /**
+     * The size of the form file when it was last hashed. Along with
+     * {@link #getFormFileLastModified()} this can be used to tell if the file might have changed
+     * without having to hash it again.
+     */
+    @Nullable
+    public Long getFormFileSize() {
+        return formFileSize;
+    }
+
+    /**
+     * The last modified time of the form file when it was last hashed.
+     */
+    @Nullable
+    public Long getFormFileLastModified() {
+        return formFileLastModified;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -325,7 +361,9 @@ public final class Form {
                 Objects.equals(autoDelete, form.autoDelete) &&
                 Objects.equals(geometryXPath, form.geometryXPath) &&
                 Objects.equals(lastDetectedAttachmentsUpdateDate, form.lastDetectedAttachmentsUpdateDate) &&
-                Objects.equals(usesEntities, form.usesEntities);
+                Objects.equals(usesEntities, form.usesEntities) &&
+                Objects.equals(formFileSize, form.formFileSize) &&
+                Objects.equals(formFileLastModified, form.formFileLastModified);
     }
 
     @Override
@@ -333,7 +371,7 @@ public final class Form {
         return Objects.hash(dbId, displayName, description, formId, version, formFilePath,
                 submissionUri, base64RSAPublicKey, md5Hash, date, jrCacheFilePath, formMediaPath,
                 language, autoSend, autoDelete, geometryXPath, deleted, lastDetectedAttachmentsUpdateDate,
-                usesEntities);
+                usesEntities, formFileSize, formFileLastModified);
     }
 
     @Override
@@ -40,4 +40,10 @@ public interface FormsRepository {
     void deleteAll();
 
     void restore(Long id);
+
+    /**
+     * Records the size and last modified time of a form's file without hashing it again (for
+     * when the file has been touched but its contents haven't changed).
+     */
+    void updateFileStamp(Long id, long fileSize, long fileLastModified);
 }
@@ -24,6 +24,10 @@ fun Trace.segments(): List<LineSegment> {
 
 /**
  * Returns `true` if any segment of the trace intersects with any other and `false` otherwise.
+ *
+ * Rather than comparing every pair of segments, this sweeps across the trace from left to right
+ * and only compares segments whose bounding boxes overlap (see [anyOverlapping]), stopping at the
+ * first intersection it finds.
  */
 fun Trace.intersects(epsilon: Double = 0.0): Boolean {
     val points = this.points
@@ -32,25 +36,66 @@ fun Trace.intersects(epsilon: Double = 0.0): Boolean {
         if (segments.size == 2) {
             segments[0].intersects(segments[1], allowConnection = true, epsilon = epsilon)
         } else {
-            segments.filterIndexed { line1Index, line1 ->
-                segments.filterIndexed { line2Index, line2 ->
-                    if (isClosed() && line1Index == 0 && line2Index == segments.size - 1) {
-                        false
-                    } else if (line2Index == line1Index + 1) {
-                        line1.intersects(line2, allowConnection = true, epsilon = epsilon)
-                    } else if (line2Index >= line1Index + 2) {
-                        line1.intersects(line2, epsilon = epsilon)
-                    } else {
-                        false
-                    }
-                }.isNotEmpty()
-            }.isNotEmpty()
+            val isClosed = isClosed()
+            segments.anyOverlapping { line1Index, line2Index ->
+                val line1 = segments[line1Index]
+                val line2 = segments[line2Index]
+
+                if (isClosed && line1Index == 0 && line2Index == segments.size - 1) {
+                    false
+                } else if (line2Index == line1Index + 1) {
+                    line1.intersects(line2, allowConnection = true, epsilon = epsilon)
+                } else {
+                    line1.intersects(line2, epsilon = epsilon)
+                }
+            }
         }
     } else {
         false
     }
 }
 
+/**
+ * Calls [predicate] with the indexes (lowest first) of each pair of segments whose bounding boxes
+ * overlap until it returns `true`. [LineSegment.intersects] can only be `true` for segments whose
+ * bounding boxes overlap, so this finds the same intersections as comparing every pair.
+ *
+ * Segments are visited in order of their left edge while keeping a list of the "active" segments
+ * that haven't ended (on the x axis) before the current one starts. For traces that don't double
+ * back on themselves much (like a walked boundary) that list stays short.
+ */
+private fun List<LineSegment>.anyOverlapping(predicate: (Int, Int) -> Boolean): Boolean {
+    val minX = DoubleArray(size) { min(this[it].start.x, this[it].end.x) }
+    val maxX = DoubleArray(size) { max(this[it].start.x, this[it].end.x) }
+    val minY = DoubleArray(size) { min(this[it].start.y, this[it].end.y) }
+    val maxY = DoubleArray(size) { max(this[it].start.y, this[it].end.y) }
+
+    val active = ArrayList<Int>()
+    for (index in indices.sortedBy { minX[it] }) {
+        var activeIndex = 0
+        while (activeIndex < active.size) {
+            val other = active[activeIndex]
+            if (maxX[other] < minX[index]) {
+                // Segments are visited by their left edge so this can't overlap anything else
+                active[activeIndex] = active.last()
+                active.removeAt(active.size - 1)
+            } else {
+                if (minY[other] <= maxY[index] && minY[index] <= maxY[other]) {
+                    if (predicate(min(index, other), max(index, other))) {
+                        return true
+                    }
+                }
+
+                activeIndex++
+            }
+        }
+
+        active.add(index)
+    }
+
+    return false
+}
+
 /**
  * Check if a point is within the bounding box defined by a line between two non-consecutive corners
  */
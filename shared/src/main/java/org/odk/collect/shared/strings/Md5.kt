@@ -42,16 +42,24 @@ object Md5 {
                 }
                 md.update(buffer, 0, result)
             }
-            val md5 = StringBuilder(BigInteger(1, md.digest()).toString(16))
-            while (md5.length < 32) {
-                md5.insert(0, "0")
-            }
             inputStream.close()
-            md5.toString()
+            toHex(md.digest())
         } catch (e: NoSuchAlgorithmException) {
             null
         } catch (e: IOException) {
             null
         }
     }
+
+    /**
+     * Formats an MD5 digest as 32 lowercase hex characters (the format [getMd5Hash] returns).
+     */
+    @JvmStatic
+    fun toHex(digest: ByteArray): String {
+        val md5 = StringBuilder(BigInteger(1, digest).toString(16))
+        while (md5.length < 32) {
+            md5.insert(0, "0")
+        }
+        return md5.toString()
+    }
 }
@@ -4,7 +4,9 @@ import org.hamcrest.MatcherAssert.assertThat
 import org.hamcrest.Matchers.equalTo
 import org.junit.Test
 import org.odk.collect.shared.geometry.support.GeometryTestUtils.addRandomIntersectingSegment
+import org.odk.collect.shared.geometry.support.GeometryTestUtils.getSpiral
 import org.odk.collect.shared.geometry.support.GeometryTestUtils.getTraceGenerator
+import org.odk.collect.shared.geometry.support.GeometryTestUtils.intersectsPairwise
 import org.odk.collect.shared.geometry.support.GeometryTestUtils.reverse
 import org.odk.collect.shared.geometry.support.GeometryTestUtils.scale
 import org.odk.collect.shared.quickCheck
@@ -245,6 +247,34 @@ class GeometryTest {
         }
     }
 
+    @Test
+    fun `Trace#intersects finds the same intersections as comparing every pair of segments`() {
+        { trace: Trace -> trace.intersects() }.quickCheck(
+            iterations = 1000,
+            generator = getTraceGenerator(maxLength = 50)
+        ) { trace, intersects ->
+            assertThat("Expected intersects=$intersects:\n$trace", trace.intersectsPairwise(), equalTo(intersects))
+            assertThat(
+                "Expected intersects(1.0) to match:\n$trace",
+                trace.intersects(1.0),
+                equalTo(trace.intersectsPairwise(1.0))
+            )
+        }
+    }
+
+    @Test
+    fun `Trace#intersects returns false for a long trace that does not intersect`() {
+        val spiral = getSpiral(1000)
+        assertThat(spiral.intersects(), equalTo(false))
+    }
+
+    @Test
+    fun `Trace#intersects returns true when a long trace's last segment intersects its first`() {
+        val spiral = getSpiral(1000)
+        val closedSpiral = Trace(spiral.points + spiral.points.first())
+        assertThat(closedSpiral.intersects(), equalTo(true))
+    }
+
     @Test
     fun `LineSegment#intersects detects any endpoint touching the other line`() {
         val line = LineSegment(Point(0.0, 0.0), Point(0.0, 2.0))
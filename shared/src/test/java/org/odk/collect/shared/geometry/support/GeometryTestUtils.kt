@@ -3,8 +3,11 @@ package org.odk.collect.shared.geometry.support
 import org.odk.collect.shared.geometry.LineSegment
 import org.odk.collect.shared.geometry.Point
 import org.odk.collect.shared.geometry.Trace
+import org.odk.collect.shared.geometry.intersects
 import org.odk.collect.shared.geometry.segments
 import org.odk.collect.shared.geometry.support.GeometryTestUtils.interpolate
+import kotlin.math.cos
+import kotlin.math.sin
 import kotlin.random.Random
 
 object GeometryTestUtils {
@@ -32,6 +35,45 @@ object GeometryTestUtils {
         }
     }
 
+    /**
+     * Straightforward (but slow) version of [Trace.intersects] that compares every segment with
+     * every other to check the real implementation against.
+     */
+    fun Trace.intersectsPairwise(epsilon: Double = 0.0): Boolean {
+        if (points.size < 3) {
+            return false
+        }
+
+        val segments = segments()
+        if (segments.size == 2) {
+            return segments[0].intersects(segments[1], allowConnection = true, epsilon = epsilon)
+        }
+
+        return segments.indices.any { line1Index ->
+            (line1Index + 1 until segments.size).any { line2Index ->
+                if (isClosed() && line1Index == 0 && line2Index == segments.size - 1) {
+                    false
+                } else if (line2Index == line1Index + 1) {
+                    segments[line1Index].intersects(segments[line2Index], allowConnection = true, epsilon = epsilon)
+                } else {
+                    segments[line1Index].intersects(segments[line2Index], epsilon = epsilon)
+                }
+            }
+        }
+    }
+
+    /**
+     * An [Archimedean spiral](https://en.wikipedia.org/wiki/Archimedean_spiral) with `length`
+     * points which (as long as it's left open) never intersects itself.
+     */
+    fun getSpiral(length: Int): Trace {
+        return Trace(0.until(length).map {
+            val angle = it * 0.05
+            val radius = 1 + angle * 0.1
+            Point(radius * cos(angle), radius * sin(angle))
+        })
+    }
+
     fun Trace.reverse(): Trace {
         return Trace(points.reversed())
     }
@@ -0,0 +1,22 @@
+package org.odk.collect.shared.strings
+
+import org.hamcrest.MatcherAssert.assertThat
+import org.hamcrest.Matchers.equalTo
+import org.junit.Test
+import org.odk.collect.shared.strings.Md5.getMd5Hash
+import java.security.MessageDigest
+
+class Md5Test {
+
+    @Test
+    fun `#toHex formats digest the same way as #getMd5Hash`() {
+        val digest = MessageDigest.getInstance("MD5").digest("blah".toByteArray())
+        assertThat(Md5.toHex(digest), equalTo("blah".getMd5Hash()))
+    }
+
+    @Test
+    fun `#toHex pads digests with leading zeros`() {
+        val digest = ByteArray(16).also { it[15] = 1 }
+        assertThat(Md5.toHex(digest), equalTo("00000000000000000000000000000001"))
+    }
+}